@@ -36,20 +36,10 @@ public class Ezero {
 				InputStreamReader locISReader = new InputStreamReader(locFileIn);
 				BufferedReader locBufferedReader = new BufferedReader(locISReader);
 				// Read all of the locations in the file into the
-				// allocted MapBox object. First, allocate storage
-				// for the first location to be read ...
-				Location loc = new Location();
-				// Read one location at a time ...
-				while (loc.read(locBufferedReader)) {
-					// Record location in the MapBox object ...
-					if (!(map.recordLocation(loc))) {
-						// A false return value from "recordLocation"
-						// means that the location is a duplicate.
-						System.out.printf("Duplicate Location:  %s\n", loc.name);
-					} else {
-						// Allocate storage for the next location ...
-						loc = new Location();
-					}
+				// allocated MapBox object, in a single pass. The
+				// duplicates that were discarded are returned ...
+				for (Location loc : map.readLocations(locBufferedReader)) {
+					System.out.printf("Duplicate Location:  %s\n", loc.name);
 				}
 				// Output results ...
 				// Output size of bounding box ...
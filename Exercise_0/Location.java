@@ -12,6 +12,7 @@
 
 
 import java.io.*;
+import java.text.*;
 import java.util.*;
 
 
@@ -20,6 +21,9 @@ public class Location {
 	public double longitude = 0.0;
 	public double latitude = 0.0;
 
+	// True if numbers are written as plain decimals in the default locale ...
+	static final boolean plainLocale = plainLocale();
+
 	// Default constructor ...
 	public Location() {
 		this.name = "";
@@ -57,6 +61,9 @@ public class Location {
 			if (thisLine == null)
 				// No more input, at all ...
 				return (false);
+			if (readPlain(thisLine))
+				// The line was simple enough to read quickly ...
+				return (true);
 			Scanner inScanner = new Scanner(thisLine);
 			inScanner.useDelimiter("\\s+");
 			if (inScanner.hasNext()) {
@@ -84,6 +91,86 @@ public class Location {
 		}
 	}
 
+	// readPlain -- Read a location description from the given line into
+	// this object, as "read" does, if the line holds only a name and up to
+	// two plain decimal numbers, separated by blanks or tabs. This avoids
+	// creating a Scanner for each line, which is slow for very large files.
+	// Return false, without changing this object, if the line must be left
+	// to the Scanner instead.
+	boolean readPlain(String line) {
+		if (!plainLocale)
+			return (false);
+		// Find the first three tokens ...
+		int[] start = new int[3];
+		int[] end = new int[3];
+		int tokens = 0;
+		int i = 0;
+		int n = line.length();
+		while (i < n) {
+			char c = line.charAt(i);
+			if ((c == ' ') || (c == '\t')) {
+				i++;
+			} else if ((c < ' ') || (c > '~')) {
+				// Other kinds of white space, or characters that are not
+				// plain ASCII, are left to the Scanner ...
+				return (false);
+			} else {
+				int first = i;
+				while ((i < n) && (line.charAt(i) > ' ') && (line.charAt(i) <= '~'))
+					i++;
+				if (tokens < 3) {
+					start[tokens] = first;
+					end[tokens] = i;
+				}
+				tokens++;
+			}
+		}
+		if (tokens == 0)
+			return (false);
+		boolean hasLongitude = (tokens > 1);
+		boolean hasLatitude = (tokens > 2);
+		if ((hasLongitude && !isPlainNumber(line, start[1], end[1]))
+		    || (hasLatitude && !isPlainNumber(line, start[2], end[2])))
+			return (false);
+		name = line.substring(start[0], end[0]);
+		if (hasLongitude)
+			longitude = Double.parseDouble(line.substring(start[1], end[1]));
+		if (hasLatitude)
+			latitude = Double.parseDouble(line.substring(start[2], end[2]));
+		return (true);
+	}
+
+	// isPlainNumber -- Return true if and only if the given part of the
+	// given string is an optional minus sign, one or more digits, and
+	// optionally a decimal point followed by any number of digits.
+	static boolean isPlainNumber(String s, int start, int end) {
+		int i = start;
+		if ((i < end) && (s.charAt(i) == '-'))
+			i++;
+		int digits = 0;
+		while ((i < end) && (s.charAt(i) >= '0') && (s.charAt(i) <= '9')) {
+			i++;
+			digits++;
+		}
+		if (digits == 0)
+			return (false);
+		if ((i < end) && (s.charAt(i) == '.')) {
+			i++;
+			while ((i < end) && (s.charAt(i) >= '0') && (s.charAt(i) <= '9'))
+				i++;
+		}
+		return (i == end);
+	}
+
+	// plainLocale -- Return true if the default locale writes numbers
+	// with a period as the decimal point and a hyphen as the minus sign,
+	// so that a Scanner reads plain decimal numbers just as
+	// "Double.parseDouble" does.
+	static boolean plainLocale() {
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault(Locale.Category.FORMAT));
+		return ((symbols.getDecimalSeparator() == '.') && (symbols.getMinusSign() == '-'));
+	}
+
 	// write -- Write the name of this location to the given stream. If the
 	// "showCoords" argument is true, then also output the Cartesian
 	// coordinates of this location, separated by blanks, on the same line.
@@ -1,77 +1,93 @@
 
+import java.io.BufferedReader;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 public class MapBox {
 	public ArrayList<Location> locations;
-	
-	// Constructor instantiates ArrayList object 
+	// Names of the recorded locations, so duplicates are found without going through the list
+	private HashSet<String> names;
+	// Edges of the bounding box, updated as each location is recorded
+	// Start with impossible values so an empty box gives the same edges as before
+	private double minimumX = 181;
+	private double maximumX = -181;
+	private double minimumY = 91;
+	private double maximumY = -91;
+
+	// Constructor instantiates ArrayList object
 	public MapBox() {
 		locations = new ArrayList<Location>();
+		names = new HashSet<String>();
 	}
-	
+
+	// Return smallest longitude value/minimumX of the recorded locations
 	public double Westmost() {
-		// Start with impossible max longitude
-		double minimumX = 181;
-		// Goes through each location in list and return smallest longitude value/minimumX
-		for(Location position : locations) {
-			if(position.longitude < minimumX) {
-				minimumX = position.longitude;
-			}
-		}
 		return minimumX;
 	}
-	
+
+	// Return greatest longitude value/maximumX of the recorded locations
 	public double Eastmost() {
-		// Start with impossible min longitude
-		double maximumX = -181;
-		// Goes through each location in list and return greatest longitude value/maximum X
-		for (Location position : locations) {
-			if (position.longitude > maximumX) {
-				maximumX = position.longitude;
-			}
-		}
 		return maximumX;
 	}
-	
+
+	// Return smallest latitude value/minimumY of the recorded locations
 	public double Southmost() {
-		// Start with impossible max latitude
-		double minimumY = 91;
-		// Goes through each location in list and return smallest latitude value/minimumY
-		for(Location position : locations) {
-			if(position.latitude < minimumY) {
-				minimumY = position.latitude;
-			}
-		}
 		return minimumY;
 	}
-	
+
+	// Return greatest latitude value/maximumY of the recorded locations
 	public double Northmost() {
-		// Start with impossible min latitude
-		double maximumY = -91;
-		// Goes through each location in list and return greatest latitude value/maximumY
-		for(Location position : locations) {
-			if(position.latitude > maximumY) {
-				maximumY = position.latitude;
-			}
-		}
 		return maximumY;
 	}
-	
-	// Goes through each location in list and compares it to location that wants to be added. Duplicated will not be added
+
+	// Checks the names already recorded for the location that wants to be added. Duplicated will not be added
 	public boolean recordLocation(Location location) {
-		boolean newLocation = true;
-		
-		for(Location position : locations) {
-			if(location.equals(position)) {
-				newLocation = false;
-				break;
+		if(!names.add(location.name)) {
+			return false;
+		}
+		locations.add(location);
+
+		// Widen the bounding box to take in the new location
+		if(location.longitude < minimumX) {
+			minimumX = location.longitude;
+		}
+		if(location.longitude > maximumX) {
+			maximumX = location.longitude;
+		}
+		if(location.latitude < minimumY) {
+			minimumY = location.latitude;
+		}
+		if(location.latitude > maximumY) {
+			maximumY = location.latitude;
+		}
+		return true;
+	}
+
+	// Records each location in order and returns the number that were not duplicates
+	public int recordLocations(Iterable<Location> newLocations) {
+		int recorded = 0;
+		for(Location location : newLocations) {
+			if(recordLocation(location)) {
+				recorded++;
 			}
 		}
-		if(newLocation) {
-			locations.add(location);
+		return recorded;
+	}
+
+	// Reads locations from the stream one line at a time, recording each one as it is read,
+	// so the whole file is handled in a single pass. Returns the duplicates that were not added,
+	// in the order they were read
+	public List<Location> readLocations(BufferedReader reader) {
+		List<Location> duplicates = new ArrayList<Location>();
+		Location location = new Location();
+		while(location.read(reader)) {
+			if(!recordLocation(location)) {
+				duplicates.add(location);
+			}
+			location = new Location();
 		}
-		
-		return newLocation;
+		return duplicates;
 	}
-	
+
 }
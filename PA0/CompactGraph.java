@@ -0,0 +1,365 @@
+//
+// CompactGraph
+//
+// This class implements an immutable street map stored in "compressed
+// sparse row" form, for the purposes of fast shortest-path search over
+// very large maps. Rather than keeping a Location object for every place
+// and a Road object for every road segment, locations are identified by
+// consecutive integer indices, and all of the information about them is
+// kept in a handful of primitive arrays. The road segments leading out of
+// the location with index "i" are the segments with indices from
+// "firstRoad[i]" up to (but not including) "firstRoad[i+1]", and for each
+// road segment the destination location index, the incremental path cost,
+// and the (shared) road name are recorded. Location coordinates are kept
+// in single precision.
+//
+// A CompactGraph can be built from a Map that has already been
+// read, in which case location indices follow the order of the map's
+// collection of locations, or it can be read directly from the same
+// location and road files used by Map, without ever allocating a
+// Location or Road object for every place and road segment (the files are
+// tokenized by a MapFileReader). The CompactGraphBuilder class, defined at
+// the end of this file, handles the conversion of a list of road segments
+// into the compressed form.
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class CompactGraph {
+    int locationCount;
+    int roadCount;
+    String[] locationNames;
+    float[] longitudes;
+    float[] latitudes;
+    int[] firstRoad;       // Offsets into the road arrays, per location ...
+    int[] roadTargets;     // Destination location of each road segment ...
+    double[] roadCosts;    // Incremental path cost of each road segment ...
+    String[] roadNames;    // Name of each road segment (shared strings) ...
+    java.util.Map<String, Integer> locationIndex;
+
+    // Constructor, used by CompactGraphBuilder ...
+	CompactGraph(String[] locationNames, float[] longitudes, float[] latitudes,
+		     int[] firstRoad, int[] roadTargets, double[] roadCosts,
+		     String[] roadNames) {
+		this.locationCount = locationNames.length;
+		this.roadCount = roadTargets.length;
+		this.locationNames = locationNames;
+		this.longitudes = longitudes;
+		this.latitudes = latitudes;
+		this.firstRoad = firstRoad;
+		this.roadTargets = roadTargets;
+		this.roadCosts = roadCosts;
+		this.roadNames = roadNames;
+		this.locationIndex = new HashMap<String, Integer>(2 * locationCount);
+		for (int i = locationCount - 1; i >= 0; i--) {
+			// Iterate backwards so that the first of any duplicated
+			// names wins, as with Map.findLocation ...
+			locationIndex.put(locationNames[i], i);
+		}
+	}
+
+    // Constructor with Map specified ...
+	public CompactGraph(Map map) {
+		this(CompactGraphBuilder.fromMap(map));
+	}
+
+    // Copy constructor, sharing the arrays of the given graph ...
+	CompactGraph(CompactGraph g) {
+		this.locationCount = g.locationCount;
+		this.roadCount = g.roadCount;
+		this.locationNames = g.locationNames;
+		this.longitudes = g.longitudes;
+		this.latitudes = g.latitudes;
+		this.firstRoad = g.firstRoad;
+		this.roadTargets = g.roadTargets;
+		this.roadCosts = g.roadCosts;
+		this.roadNames = g.roadNames;
+		this.locationIndex = g.locationIndex;
+	}
+
+    // read -- Read a compact graph directly from the given location file
+    // and road file, which have the same formats as those read by
+    // Map. Return null on error.
+	public static CompactGraph read(String locationFilename, String roadFilename) {
+		CompactGraphBuilder builder = new CompactGraphBuilder();
+		if (builder.readLocations(locationFilename) && builder.readRoads(roadFilename)) {
+			return (builder.build());
+		} else {
+			return (null);
+		}
+	}
+
+    // locationCount -- Return the number of locations on this map.
+	public int locationCount() {
+		return (locationCount);
+	}
+
+    // roadCount -- Return the number of road segments on this map.
+	public int roadCount() {
+		return (roadCount);
+	}
+
+    // findLocation -- Return the index of the location with the given
+    // textual name, or -1 if no such location is found.
+	public int findLocation(String name) {
+		Integer index = locationIndex.get(name);
+		if (index == null)
+			return (-1);
+		return (index);
+	}
+
+    // locationName -- Return the textual name of the given location.
+	public String locationName(int loc) {
+		return (locationNames[loc]);
+	}
+
+    // longitude -- Return the first Cartesian coordinate of the given
+    // location.
+	public double longitude(int loc) {
+		return (longitudes[loc]);
+	}
+
+    // latitude -- Return the second Cartesian coordinate of the given
+    // location.
+	public double latitude(int loc) {
+		return (latitudes[loc]);
+	}
+
+    // firstRoad -- Return the index of the first road segment leading out
+    // of the given location.
+	public int firstRoad(int loc) {
+		return (firstRoad[loc]);
+	}
+
+    // endRoad -- Return one more than the index of the last road segment
+    // leading out of the given location.
+	public int endRoad(int loc) {
+		return (firstRoad[loc + 1]);
+	}
+
+    // roadTarget -- Return the index of the location at the end of the
+    // given road segment.
+	public int roadTarget(int road) {
+		return (roadTargets[road]);
+	}
+
+    // roadCost -- Return the incremental path cost of the given road
+    // segment.
+	public double roadCost(int road) {
+		return (roadCosts[road]);
+	}
+
+    // roadName -- Return the textual name of the given road segment.
+	public String roadName(int road) {
+		return (roadNames[road]);
+	}
+
+    // distance -- Return the straight line distance between the given
+    // locations.
+	public double distance(int loc1, int loc2) {
+		double x = longitudes[loc1] - longitudes[loc2];
+		double y = latitudes[loc1] - latitudes[loc2];
+		return (Math.sqrt((x * x) + (y * y)));
+	}
+
+    // solutionNode -- Build a chain of search tree Node objects describing
+    // the path that visits the given locations, in order, using the given
+    // road segments ("roads[i]" leads from "locs[i]" to "locs[i+1]"), and
+    // return the final node of the chain. Only the Location and Road
+    // objects along the path are allocated, so the "reportSolution" method
+    // of the returned node works as usual.
+	public Node solutionNode(int[] locs, int[] roads, int count) {
+		Node thisNode = null;
+		for (int i = 0; i < count; i++) {
+			int loc = locs[i];
+			Location place = new Location(locationNames[loc], longitudes[loc], latitudes[loc]);
+			Node child = new Node(place, thisNode);
+			if (thisNode != null) {
+				int r = roads[i - 1];
+				Road road = new Road();
+				road.name = roadNames[r];
+				road.fromLocationName = thisNode.loc.name;
+				road.toLocationName = place.name;
+				road.fromLocation = thisNode.loc;
+				road.toLocation = place;
+				road.cost = roadCosts[r];
+				thisNode.loc.recordRoad(road);
+				child.depth = thisNode.depth + 1;
+				child.partialPathCost = thisNode.partialPathCost + road.cost;
+			}
+			thisNode = child;
+		}
+		return (thisNode);
+	}
+
+}
+
+
+class CompactGraphBuilder {
+    List<String> names = new ArrayList<String>();
+    float[] longitudes = new float[16];
+    float[] latitudes = new float[16];
+    java.util.Map<String, Integer> locationIndex = new HashMap<String, Integer>();
+    java.util.Map<String, String> roadNamePool = new HashMap<String, String>();
+    int[] roadSources = new int[16];
+    int[] roadTargets = new int[16];
+    double[] roadCosts = new double[16];
+    String[] roadNames = new String[16];
+    int roadCount = 0;
+
+    // fromMap -- Build a compact graph from the locations and roads of the
+    // given Map, preserving the order of its locations.
+	static CompactGraph fromMap(Map map) {
+		CompactGraphBuilder builder = new CompactGraphBuilder();
+		for (Location loc : map.locations) {
+			builder.addLocation(loc.name, loc.longitude, loc.latitude);
+		}
+		for (Location loc : map.locations) {
+			for (Road r : loc.roads) {
+				builder.addRoad(r.name, loc.index, r.toLocation.index, r.cost);
+			}
+		}
+		return (builder.build());
+	}
+
+    // findLocation -- Return the index of the first location recorded
+    // with the given name, or -1 if there is no such location.
+	int findLocation(String name) {
+		Integer index = locationIndex.get(name);
+		if (index == null)
+			return (-1);
+		return (index);
+	}
+
+    // addLocation -- Record a new location, returning its index.
+	int addLocation(String name, double longitude, double latitude) {
+		int index = names.size();
+		if (index == longitudes.length) {
+			longitudes = Arrays.copyOf(longitudes, 2 * index);
+			latitudes = Arrays.copyOf(latitudes, 2 * index);
+		}
+		names.add(name);
+		longitudes[index] = (float) longitude;
+		latitudes[index] = (float) latitude;
+		if (!locationIndex.containsKey(name))
+			locationIndex.put(name, index);
+		return (index);
+	}
+
+    // addRoad -- Record a new road segment between the given locations.
+    // Equal road names are stored as a single shared string.
+	void addRoad(String name, int from, int to, double cost) {
+		if (roadCount == roadSources.length) {
+			int capacity = 2 * roadCount;
+			roadSources = Arrays.copyOf(roadSources, capacity);
+			roadTargets = Arrays.copyOf(roadTargets, capacity);
+			roadCosts = Arrays.copyOf(roadCosts, capacity);
+			roadNames = Arrays.copyOf(roadNames, capacity);
+		}
+		String shared = roadNamePool.get(name);
+		if (shared == null) {
+			shared = name;
+			roadNamePool.put(name, name);
+		}
+		roadSources[roadCount] = from;
+		roadTargets[roadCount] = to;
+		roadCosts[roadCount] = cost;
+		roadNames[roadCount] = shared;
+		roadCount++;
+	}
+
+    // readLocations -- Read all of the locations in the given location
+    // file. Return false on error.
+	boolean readLocations(String filename) {
+		try {
+			File locFile = new File(filename);
+			if (!(locFile.exists() && locFile.canRead()))
+				return (false);
+			MapFileReader in = new MapFileReader(filename);
+			try {
+				while (in.nextLocation()) {
+					addLocation(in.locationName, in.longitude, in.latitude);
+				}
+				if (in.getError() != null) {
+					System.err.println(in.getError());
+					return (false);
+				}
+				return (true);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+    // readRoads -- Read all of the road segments in the given road file,
+    // connecting previously read locations. Return false on error.
+	boolean readRoads(String filename) {
+		try {
+			File roadFile = new File(filename);
+			if (!(roadFile.exists() && roadFile.canRead()))
+				return (false);
+			MapFileReader in = new MapFileReader(filename);
+			try {
+				while (in.nextRoad()) {
+					int from = findLocation(in.fromLocationName);
+					if (from < 0) {
+						System.err.printf("%s:%d: The location, %s, is not known.\n",
+								  filename, in.getLineNumber(), in.fromLocationName);
+						return (false);
+					}
+					int to = findLocation(in.toLocationName);
+					if (to < 0) {
+						System.err.printf("%s:%d: The location, %s, is not known.\n",
+								  filename, in.getLineNumber(), in.toLocationName);
+						return (false);
+					}
+					addRoad(in.roadName, from, to, in.cost);
+				}
+				if (in.getError() != null) {
+					System.err.println(in.getError());
+					return (false);
+				}
+				return (true);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+    // build -- Return the compact graph containing all recorded locations
+    // and road segments. Road segments are grouped by their "from"
+    // location with a counting sort, keeping the order in which the
+    // segments leading out of each location were recorded.
+	CompactGraph build() {
+		int n = names.size();
+		int[] first = new int[n + 1];
+		for (int i = 0; i < roadCount; i++)
+			first[roadSources[i] + 1]++;
+		for (int loc = 0; loc < n; loc++)
+			first[loc + 1] += first[loc];
+		int[] next = Arrays.copyOf(first, n);
+		int[] targets = new int[roadCount];
+		double[] costs = new double[roadCount];
+		String[] roadNameTable = new String[roadCount];
+		for (int i = 0; i < roadCount; i++) {
+			int slot = next[roadSources[i]]++;
+			targets[slot] = roadTargets[i];
+			costs[slot] = roadCosts[i];
+			roadNameTable[slot] = roadNames[i];
+		}
+		return (new CompactGraph(names.toArray(new String[n]),
+					 Arrays.copyOf(longitudes, n),
+					 Arrays.copyOf(latitudes, n),
+					 first, targets, costs, roadNameTable));
+	}
+
+}
@@ -0,0 +1,159 @@
+//
+// CompactSearch
+//
+// This class implements breadth-first and depth-first search for a path
+// over a CompactGraph, with or without repeated state checking, in the
+// same way as the BFSearch and DFSearch classes do over a Map. Instead of
+// allocating a Node object for every generated child, each search tree
+// node is recorded as an "entry" in a set of parallel primitive arrays
+// (its location, its parent entry, and the road segment leading to it).
+// For breadth-first search, the entries themselves form the FIFO queue,
+// since they are created in the order in which they are to be removed;
+// for depth-first search, a separate LIFO stack of entry indices is kept.
+// Node objects are only built for the path of the solution that is
+// returned, so the solution can be reported with "reportSolution" as usual.
+// The per-location records used for repeated state checking are kept in a
+// SearchWorkspace, so they need not be cleared, or allocated, for each
+// search.
+//
+
+
+import java.util.*;
+
+
+public class CompactSearch {
+    CompactGraph graph;
+    public int nodeExpansionCount;
+
+    // Search tree entries ...
+    int entryCount = 0;
+    int[] entryLocation = new int[64];
+    int[] entryParent = new int[64];
+    int[] entryRoad = new int[64];
+
+    // LIFO stack of entries, for depth-first search ...
+    int[] stack = new int[64];
+    int stackSize = 0;
+
+    // Per-location state for repeated state checking ...
+    SearchWorkspace workspace;
+
+    // Constructor with graph specified ...
+	public CompactSearch(CompactGraph graph) {
+		this.graph = graph;
+	}
+
+    // setWorkspace -- Use the given workspace for per-location state, or,
+    // if it is null, the workspace belonging to the searching thread.
+	public void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+
+    // search -- Search for a path from the location with the given initial
+    // name to the location with the given destination name, expanding at
+    // most "limit" nodes. If "depthFirst" is true, the frontier is a LIFO
+    // stack, and otherwise it is a FIFO queue. Return the final node of the
+    // solution path, or null if no solution was found.
+	public Node search(String initialLoc, String destinationLoc, int limit,
+			   boolean depthFirst, boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		int source = graph.findLocation(initialLoc);
+		int destination = graph.findLocation(destinationLoc);
+		if ((source < 0) || (destination < 0))
+			return (null);
+		int goal = search(source, destination, limit, depthFirst, repeatedStateChecking);
+		if (goal < 0)
+			return (null);
+		return (solutionNode(goal));
+	}
+
+    // search -- Search for a path between the locations with the given
+    // indices, expanding at most "limit" nodes. Return the entry index of
+    // the goal node, or -1 if no solution was found.
+	int search(int source, int destination, int limit, boolean depthFirst,
+		   boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		entryCount = 0;
+		stackSize = 0;
+		int head = 0;
+		SearchWorkspace ws = (workspace != null) ? workspace : SearchWorkspace.forCurrentThread();
+		if (repeatedStateChecking)
+			ws.begin(graph.locationCount());
+
+		push(addEntry(source, -1, -1), depthFirst, repeatedStateChecking, ws);
+
+		while (nodeExpansionCount < limit) {
+			// get and remove top entry
+			int current;
+			if (depthFirst) {
+				if (stackSize == 0)
+					break;
+				current = stack[--stackSize];
+			} else {
+				if (head == entryCount)
+					break;
+				current = head++;
+			}
+			int loc = entryLocation[current];
+
+			if (loc == destination)
+				return (current);
+
+			// expand entry
+			nodeExpansionCount++;
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+				int child = graph.roadTarget(r);
+				// a reached location is either visited or still on the frontier
+				if (repeatedStateChecking && ws.isReached(child))
+					continue;
+				push(addEntry(child, current, r), depthFirst, repeatedStateChecking, ws);
+			}
+		}
+		return (-1);
+	}
+
+    // push -- Place the given entry on the frontier. Entries are already
+    // in FIFO order, so only depth-first search needs to record anything.
+	void push(int entry, boolean depthFirst, boolean repeatedStateChecking, SearchWorkspace ws) {
+		if (repeatedStateChecking)
+			ws.reach(entryLocation[entry]);
+		if (depthFirst) {
+			if (stackSize == stack.length)
+				stack = Arrays.copyOf(stack, 2 * stackSize);
+			stack[stackSize++] = entry;
+		}
+	}
+
+    // addEntry -- Record a new search tree entry, returning its index.
+	int addEntry(int loc, int parent, int road) {
+		if (entryCount == entryLocation.length) {
+			int capacity = 2 * entryCount;
+			entryLocation = Arrays.copyOf(entryLocation, capacity);
+			entryParent = Arrays.copyOf(entryParent, capacity);
+			entryRoad = Arrays.copyOf(entryRoad, capacity);
+		}
+		entryLocation[entryCount] = loc;
+		entryParent[entryCount] = parent;
+		entryRoad[entryCount] = road;
+		return (entryCount++);
+	}
+
+    // solutionNode -- Build the chain of Node objects for the path from
+    // the root entry to the given entry.
+	Node solutionNode(int entry) {
+		int count = 0;
+		for (int e = entry; e >= 0; e = entryParent[e])
+			count++;
+		int[] locs = new int[count];
+		int[] roads = new int[count];
+		int i = count - 1;
+		for (int e = entry; e >= 0; e = entryParent[e]) {
+			locs[i] = entryLocation[e];
+			if (i > 0)
+				roads[i - 1] = entryRoad[e];
+			i--;
+		}
+		return (graph.solutionNode(locs, roads, count));
+	}
+
+}
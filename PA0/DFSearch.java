@@ -4,9 +4,12 @@ import java.util.*;
 
 public class DFSearch {
 	private Map graph;
+	private CompactGraph compactGraph;
 	private String initialLoc;
 	private String destinationLoc;
 	private int limit;
+	private SearchWorkspace workspace;
+	private CompactSearch compactSearch;
 	public int nodeExpansionCount;
 
 	public DFSearch(Map graph, String initialLoc, String destinationLoc, int limit) {
@@ -16,54 +19,77 @@ public class DFSearch {
 		this.limit = limit;
 	}
 	
+	// search over a compact graph rather than a Map
+	public DFSearch(CompactGraph compactGraph, String initialLoc, String destinationLoc, int limit) {
+		this.compactGraph = compactGraph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+	
+	// use the given workspace instead of the one belonging to the current thread
+	public void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+	
 	public Node search(boolean repeatedStateChecking) {
+		if (compactGraph != null) {
+			// keep the compact search so its arrays are reused by later searches
+			if (compactSearch == null) {
+				compactSearch = new CompactSearch(compactGraph);
+			}
+			compactSearch.setWorkspace(workspace);
+			Node solution = compactSearch.search(initialLoc, destinationLoc, limit, true, repeatedStateChecking);
+			nodeExpansionCount = compactSearch.nodeExpansionCount;
+			return solution;
+		}
+		
 		nodeExpansionCount = 0;
-		Node source = null;
 		
-		// find source location to initialize source node
-		for (Location loc : graph.locations) {
-			if (loc.equals(graph.findLocation(initialLoc))) {
-				source = new Node(graph.findLocation(initialLoc));
-				break;
-			}
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
 		}
+		Node source = new Node(sourceLoc);
 		
-		// initialize stack
-		Frontier stack = new Frontier();
+		// start a new search in the workspace, which clears its reached records
+		SearchWorkspace ws = workspace != null ? workspace : SearchWorkspace.forCurrentThread();
+		ws.begin(graph.locations.size());
+		ws.reach(sourceLoc.index);
+		
+		// initialize stack, reusing the workspace's frontier
+		Frontier stack = ws.frontier();
 		stack.addToTop(source);
 		
 		// initialize currentNode to source/initial location
 		Node currentNode = source;
 		
-		// initialize set of visited nodes
-		Set<Location> visited = new HashSet<Location>();
-		
 		// expand out node graph, searching for destination
 		while (!stack.isEmpty() && nodeExpansionCount < limit) {
 			// get and remove top node
 			currentNode = stack.removeTop();
 
-			// mark node as visited
-			visited.add(currentNode.loc);
-
 			// return destination node
-			if (currentNode.loc.equals(graph.findLocation(destinationLoc))) {
+			if (currentNode.loc.index == destination.index) {
 				return currentNode;
 			}
 			
-			// expand node
-			currentNode.expand();
+			// expand node, one road at a time, only creating the children that are kept
 			nodeExpansionCount++;
 			
 			// add children nodes to stack
-			for (Node child : currentNode.children) {
-				// only add if location has not been visited and not in stack
+			for (Road road : currentNode.loc.roads) {
+				// only add if location has not been visited and not in stack,
+				// that is, if it has not been reached yet
 				if(repeatedStateChecking) {
-					if (!visited.contains(child.loc) && !stack.contains(child.loc)) {
-						stack.addToTop(child);
+					if (!ws.isReached(road.toLocation.index)) {
+						ws.reach(road.toLocation.index);
+						stack.addToTop(currentNode.child(road));
 					}
 				} else { // add no matter what with no repeatedStateChecking
-					stack.addToTop(child);
+					stack.addToTop(currentNode.child(road));
 				}
 			}
 			
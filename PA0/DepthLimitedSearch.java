@@ -0,0 +1,124 @@
+package Assignment_0;
+
+import java.util.*;
+
+public class DepthLimitedSearch {
+	private Map graph;
+	private String initialLoc;
+	private String destinationLoc;
+	private int limit;
+	private int depthLimit;
+	// path from the source to the current node, with the next road to try at each depth
+	private Node[] path = new Node[16];
+	private int[] nextRoad = new int[16];
+	public int nodeExpansionCount;
+	// true if some node was not expanded because it was at the depth limit
+	public boolean cutoff;
+
+	public DepthLimitedSearch(Map graph, String initialLoc, String destinationLoc, int limit, int depthLimit) {
+		this.graph = graph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+		this.depthLimit = depthLimit;
+	}
+
+	// change the expansion limit and depth limit before the next search
+	public void setLimits(int limit, int depthLimit) {
+		this.limit = limit;
+		this.depthLimit = depthLimit;
+	}
+
+	// depth-first search that never goes deeper than depthLimit, keeping only the
+	// current path in memory; with repeatedStateChecking, a location already on
+	// the current path is not added again, which rules out cycles (the path itself
+	// is scanned for it, so memory stays O(depth))
+	public Node search(boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		cutoff = false;
+
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
+		}
+
+		// start the path at the source
+		int depth = 0;
+		push(0, new Node(sourceLoc));
+		Node solution = null;
+
+		while (depth >= 0) {
+			Node currentNode = path[depth];
+
+			// check the node the first time it is reached
+			if (nextRoad[depth] == 0) {
+				// return destination node
+				if (currentNode.loc.index == destination.index) {
+					solution = currentNode;
+					break;
+				}
+				// do not expand nodes at the depth limit
+				if (currentNode.depth >= depthLimit) {
+					cutoff = true;
+					pop(depth--);
+					continue;
+				}
+				// stop when the expansion budget runs out
+				if (nodeExpansionCount >= limit) {
+					break;
+				}
+				nodeExpansionCount++;
+			}
+
+			// go down the next road, or back up once all roads are tried
+			List<Road> roads = currentNode.loc.roads;
+			if (nextRoad[depth] < roads.size()) {
+				Road road = roads.get(nextRoad[depth]++);
+				if(repeatedStateChecking) {
+					// only add if location is not already on the current path
+					if (!onPath(road.toLocation, depth)) {
+						push(++depth, currentNode.child(road));
+					}
+				} else { // add no matter what with no repeatedStateChecking
+					push(++depth, currentNode.child(road));
+				}
+			} else {
+				pop(depth--);
+			}
+		}
+
+		// clear what is left of the path so the arrays can be reused
+		while (depth >= 0) {
+			pop(depth--);
+		}
+		return solution;
+	}
+
+	// put a node on the path at the given depth
+	private void push(int depth, Node node) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2 * path.length);
+			nextRoad = Arrays.copyOf(nextRoad, 2 * nextRoad.length);
+		}
+		path[depth] = node;
+		nextRoad[depth] = 0;
+	}
+
+	// take the node at the given depth off the path
+	private void pop(int depth) {
+		path[depth] = null;
+	}
+
+	// check whether the location is on the path from depth 0 up to the given depth
+	private boolean onPath(Location loc, int depth) {
+		for (int i = 0; i <= depth; i++) {
+			if (path[i].loc.index == loc.index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
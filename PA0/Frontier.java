@@ -5,7 +5,7 @@
 // of Node objects, with the kind of list determined by which method is
 // used to insert new Node objects into the list.  In either case, the
 // "removeTop" method extracts and returns the next node to be ejected from
-// the list.  If the "addToBottom" method is used to insert nodes, then the 
+// the list.  If the "addToBottom" method is used to insert nodes, then the
 // Frontier object will act as a queue.  If the "addToTop" method is used to
 // insert nodes, then the Frontier object will act as a stack.  Both of these
 // insertion methods are overloaded to accept either individual Node
@@ -13,6 +13,18 @@
 // to be used to implement the frontier (i.e., the "fringe" or "open list")
 // of nodes in a search tree.
 //
+// The nodes are kept in a circular array (a "ring buffer"), which grows by
+// doubling when it is full, so that adding or removing a node at either
+// end takes constant time and allocates nothing.  Membership is tracked by
+// counting, for each location index, how many nodes for that location are
+// currently in the frontier, so that "contains" remains correct when the
+// same location has been placed in the frontier more than once.  The index
+// of each location name is remembered the first time a node for it enters
+// the frontier, so a location can also be found by name without a scan.
+// Locations that have not been given an index by a map (or that share
+// their name with another location) are found by a scan of the frontier
+// instead.
+//
 // David Noelle -- Created Sun Feb 11 18:39:40 PST 2007
 //                 Modified Wed Sep 15 00:09:35 PDT 2010
 //                   (Implemented overloaded "contains" function.)
@@ -25,31 +37,44 @@ import java.util.*;
 
 
 public class Frontier {
-    List<Node> fringe;
-    Set<String> fringeStateNames;
+    Node[] fringe;
+    int head = 0;            // Position of the top node in "fringe" ...
+    int size = 0;            // Number of nodes in the frontier ...
+    int[] fringeCount;       // Number of nodes for each location index ...
+    int unindexedCount = 0;  // Number of nodes for locations with no index ...
+    HashMap<String, Integer> nameIndex = new HashMap<String, Integer>();
+    boolean[] named;         // Whether each index has been entered by name ...
 
     // Default constructor ...
 	public Frontier() {
-		fringe = new LinkedList<Node>();
-		fringeStateNames = new HashSet<String>();
+		fringe = new Node[16];
+		fringeCount = new int[16];
+		named = new boolean[16];
 	}
 
-    // isEmpty -- Return true if and only if there are currently no nodes in 
+    // isEmpty -- Return true if and only if there are currently no nodes in
     // the frontier.
 	public boolean isEmpty() {
-		return (fringe.isEmpty());
+		return (size == 0);
+	}
+
+    // size -- Return the number of nodes currently in the frontier.
+	public int size() {
+		return (size);
 	}
 
     // removeTop -- Return the Node object at the top of the frontier
     // list.  Also, remove this node from the frontier.  Return null if the
     // frontier is empty.
 	public Node removeTop() {
-		if (fringe.isEmpty()) {
+		if (size == 0) {
 			return (null);
 		} else {
-			Node top = fringe.get(0);
-			fringe.remove(0);
-			fringeStateNames.remove(top.loc.name);
+			Node top = fringe[head];
+			fringe[head] = null;
+			head = (head + 1) & (fringe.length - 1);
+			size--;
+			uncount(top);
 			return (top);
 		}
 	}
@@ -57,11 +82,15 @@ public class Frontier {
     // addToTop -- Add the given Node object to the top of the frontier
     // list.
 	public void addToTop(Node leaf) {
-		fringe.add(0, leaf);
-		fringeStateNames.add(leaf.loc.name);
+		if (size == fringe.length)
+			grow();
+		head = (head - 1) & (fringe.length - 1);
+		fringe[head] = leaf;
+		size++;
+		count(leaf);
 	}
 
-    // addToTop -- Add the given list of Node objects to the top of the 
+    // addToTop -- Add the given list of Node objects to the top of the
     // frontier list.
 	public void addToTop(List<Node> leaves) {
 		for (Node leaf : leaves) {
@@ -69,11 +98,14 @@ public class Frontier {
 		}
 	}
 
-    // addToBottom -- Add the given Node object to the bottom of the 
+    // addToBottom -- Add the given Node object to the bottom of the
     // frontier list.
 	public void addToBottom(Node leaf) {
-		fringe.add(leaf);
-		fringeStateNames.add(leaf.loc.name);
+		if (size == fringe.length)
+			grow();
+		fringe[(head + size) & (fringe.length - 1)] = leaf;
+		size++;
+		count(leaf);
 	}
 
     // addToBottom -- Add the given list of Node objects to the bottom of
@@ -84,23 +116,45 @@ public class Frontier {
 		}
 	}
 
+    // clear -- Remove all of the nodes from the frontier, so that it can
+    // be reused for another search.  The names recorded for each index are
+    // forgotten too, since the next search may be over a different map.
+	public void clear() {
+		while (size > 0)
+			removeTop();
+		head = 0;
+		nameIndex.clear();
+		Arrays.fill(named, false);
+	}
+
     // contains -- Return true if and only if the frontier contains a
-    // Node with the given Location name.
+    // Node with the given Location name.  The name is looked up by index
+    // when possible, and otherwise by a scan of the frontier.
 	public boolean contains(String name) {
-		// This is an efficient way to check the frontier for a node
-		// with a given state, by using a HashSet.
-		if (fringeStateNames.contains(name)) {
-			return (true);
-		} else {
-			// The location was not found in the fringe ...
+		Integer index = nameIndex.get(name);
+		if ((index != null) && (index >= 0)) {
+			if (fringeCount[index] > 0)
+				return (true);
+			if (unindexedCount == 0)
+				return (false);
+		} else if ((index == null) && (unindexedCount == 0)) {
+			// No node with this name has ever entered the frontier ...
 			return (false);
 		}
+		for (int i = 0; i < size; i++) {
+			if (fringe[(head + i) & (fringe.length - 1)].loc.name.equals(name))
+				return (true);
+		}
+		// The location was not found in the fringe ...
+		return (false);
 	}
 
     // contains -- Return true if and only if the frontier contains a
     // Node with the given Location object as its state.
 	public boolean contains(Location loc) {
-		return (contains(loc.name));
+		if (loc.index < 0)
+			return (contains(loc.name));
+		return ((loc.index < fringeCount.length) && (fringeCount[loc.index] > 0));
 	}
 
     // contains -- Return true if and only if the frontier contains an
@@ -110,5 +164,47 @@ public class Frontier {
 		return (contains(leaf.loc));
 	}
 
-}
+    // grow -- Double the capacity of the circular array, moving the nodes
+    // so that the top node is at position zero.
+	void grow() {
+		Node[] larger = new Node[2 * fringe.length];
+		for (int i = 0; i < size; i++)
+			larger[i] = fringe[(head + i) & (fringe.length - 1)];
+		fringe = larger;
+		head = 0;
+	}
 
+    // count -- Record that a node for the location of the given node has
+    // entered the frontier.
+	void count(Node leaf) {
+		int index = leaf.loc.index;
+		if (index < 0) {
+			unindexedCount++;
+			return;
+		}
+		if (index >= fringeCount.length) {
+			fringeCount = Arrays.copyOf(fringeCount, Math.max(index + 1, 2 * fringeCount.length));
+			named = Arrays.copyOf(named, fringeCount.length);
+		}
+		fringeCount[index]++;
+		if (!named[index]) {
+			// Remember the name, or, if another index has it, that it is
+			// shared (as -1) ...
+			named[index] = true;
+			Integer other = nameIndex.put(leaf.loc.name, index);
+			if ((other != null) && (other != index))
+				nameIndex.put(leaf.loc.name, -1);
+		}
+	}
+
+    // uncount -- Record that a node for the location of the given node has
+    // left the frontier.
+	void uncount(Node leaf) {
+		int index = leaf.loc.index;
+		if (index >= 0)
+			fringeCount[index]--;
+		else
+			unindexedCount--;
+	}
+
+}
@@ -0,0 +1,50 @@
+package Assignment_0;
+
+import java.util.*;
+
+public class IterativeDeepeningSearch {
+	private Map graph;
+	private String initialLoc;
+	private String destinationLoc;
+	private int limit;
+	private DepthLimitedSearch depthLimitedSearch;
+	public int nodeExpansionCount;
+	// node expansions of each depth-limited search, in order of depth limit
+	public List<Integer> iterationExpansionCounts = new ArrayList<Integer>();
+
+	public IterativeDeepeningSearch(Map graph, String initialLoc, String destinationLoc, int limit) {
+		this.graph = graph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+
+	// run depth-limited searches with depth limits 0, 1, 2, ... until a solution is
+	// found, no node was cut off by the depth limit, or the expansion limit is used up
+	public Node search(boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		iterationExpansionCounts.clear();
+
+		// keep one depth-limited search so its path stack is reused by every iteration
+		if (depthLimitedSearch == null) {
+			depthLimitedSearch = new DepthLimitedSearch(graph, initialLoc, destinationLoc, limit, 0);
+		}
+
+		for (int depthLimit = 0; nodeExpansionCount < limit; depthLimit++) {
+			depthLimitedSearch.setLimits(limit - nodeExpansionCount, depthLimit);
+			Node solution = depthLimitedSearch.search(repeatedStateChecking);
+			nodeExpansionCount += depthLimitedSearch.nodeExpansionCount;
+			iterationExpansionCounts.add(depthLimitedSearch.nodeExpansionCount);
+
+			// return the solution, or give up if a deeper search would find nothing new
+			if (solution != null) {
+				return solution;
+			}
+			if (!depthLimitedSearch.cutoff) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+}
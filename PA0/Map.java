@@ -27,10 +27,12 @@ public class Map {
     String locationFilename = "locations.dat";
     String roadFilename = "roads.dat";
     List<Location> locations;
+    HashMap<String, Location> locationIndex;
 
     // Default constructor ...
 	public Map() {
 		this.locations = new ArrayList<Location>();
+		this.locationIndex = new HashMap<String, Location>();
 	}
 
     // Constructor with filenames specified ...
@@ -75,45 +77,48 @@ public class Map {
 		return (true);
 	}
 
-    // findLocation -- Search through the collection of locations on
-    // this map for one with the given textual name. Return a reference 
-    // to the corresponding Location object, or null if no such location 
-    // is found.
+    // findLocation -- Look up the location with the given textual name in
+    // the index of locations on this map.  Return a reference to the
+    // corresponding Location object, or null if no such location is found.
+    // If several locations share the name, the first one recorded is found.
 	public Location findLocation(String name) {
-		for (Location loc : locations) {
-			if (loc.name.equals(name))
-				return (loc);
-		}
-		return (null);
+		return (locationIndex.get(name));
 	}
 
     // recordLocation -- Add the given Location object to the collection of
-    // locations for this map.
+    // locations for this map, giving it the next available index and
+    // entering it into the index of locations by name.
 	public void recordLocation(Location loc) {
+		loc.index = locations.size();
 		locations.add(loc);
+		if (!locationIndex.containsKey(loc.name))
+			locationIndex.put(loc.name, loc);
 	}
 
     // readLocations -- Attempt to open the location file specified by the
     // appropriate pathname stored in this Map object.  If this file can
     // be opened for reading, read a collection of locations from this file
-    // into the Map object's collection of Location objects.  Return false
-    // on error.
+    // into the Map object's collection of Location objects.  The file is
+    // tokenized by a MapFileReader, and a malformed line is reported, with
+    // its line number, on the standard error stream.  Return false on error.
 	public boolean readLocations() {
 		try {
 			File locFile = new File(locationFilename);
 			if (locFile.exists() && locFile.canRead()) {
-				FileInputStream locFileIn = new FileInputStream(locFile);
-				InputStreamReader locISReader = new InputStreamReader(locFileIn);
-				BufferedReader locBufferedReader = new BufferedReader(locISReader);
-				// Allocate storage for the first location to be read ...
-				Location loc = new Location();
-				while (loc.read(locBufferedReader)) {
-					// Record location in the map ...
-					recordLocation(loc);
-					// Allocate storage for the next location ...
-					loc = new Location();
+				MapFileReader in = new MapFileReader(locationFilename);
+				try {
+					while (in.nextLocation()) {
+						// Record location in the map ...
+						recordLocation(new Location(in.locationName, in.longitude, in.latitude));
+					}
+					if (in.getError() != null) {
+						System.err.println(in.getError());
+						return (false);
+					}
+					return (true);
+				} finally {
+					in.close();
 				}
-				return (true);
 			} else {
 				// The file cannot be read ...
 				return (false);
@@ -131,37 +136,51 @@ public class Map {
     // Location objects in this Map object's collection of locations.  Note
     // that this means that the map must know about all locations on the map
     // before a road file is read.  This can be done by calling the
-    // "readLocations" method before calling this method.  Return false on
+    // "readLocations" method before calling this method.  Road objects with
+    // the same name share a single name string, and their location names
+    // are those of the corresponding Location objects.  Return false on
     // error.
 	public boolean readRoads() {
 		try {
 			File roadFile = new File(roadFilename);
 			if (roadFile.exists() && roadFile.canRead()) {
-				FileInputStream roadFileIn = new FileInputStream(roadFile);
-				InputStreamReader roadISReader = new InputStreamReader(roadFileIn);
-				BufferedReader roadBufferedReader = new BufferedReader(roadISReader);
-				// Allocate storage for the first road segment ot be read ...
-				Road r = new Road();
-				while (r.read(roadBufferedReader)) {
-					// Fill in connections to location objects ...
-					r.fromLocation = findLocation(r.fromLocationName);
-					if (r.fromLocation == null) {
-						System.err.printf("The location, %s, is not known.\n", r.fromLocationName);
-						roadBufferedReader.close();
-						return (false);
+				MapFileReader in = new MapFileReader(roadFilename);
+				HashMap<String, String> roadNames = new HashMap<String, String>();
+				try {
+					while (in.nextRoad()) {
+						Road r = new Road();
+						// Fill in connections to location objects ...
+						r.fromLocation = findLocation(in.fromLocationName);
+						if (r.fromLocation == null) {
+							System.err.printf("%s:%d: The location, %s, is not known.\n",
+									  roadFilename, in.getLineNumber(), in.fromLocationName);
+							return (false);
+						}
+						r.toLocation = findLocation(in.toLocationName);
+						if (r.toLocation == null) {
+							System.err.printf("%s:%d: The location, %s, is not known.\n",
+									  roadFilename, in.getLineNumber(), in.toLocationName);
+							return (false);
+						}
+						r.name = roadNames.get(in.roadName);
+						if (r.name == null) {
+							r.name = in.roadName;
+							roadNames.put(r.name, r.name);
+						}
+						r.fromLocationName = r.fromLocation.name;
+						r.toLocationName = r.toLocation.name;
+						r.cost = in.cost;
+						// Record the road in the appropriate location ...
+						r.fromLocation.recordRoad(r);
 					}
-					r.toLocation = findLocation(r.toLocationName);
-					if (r.toLocation == null) {
-						System.err.printf("The location, %s, is not known.\n", r.toLocationName);
-						roadBufferedReader.close();
+					if (in.getError() != null) {
+						System.err.println(in.getError());
 						return (false);
 					}
-					// Record the road in the appropriate location ...
-					r.fromLocation.recordRoad(r);
-					// Allocate storage for the next road segment ...
-					r = new Road();
+					return (true);
+				} finally {
+					in.close();
 				}
-				return (true);
 			} else {
 				// The specified road file could not be read ...
 				return (false);
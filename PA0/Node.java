@@ -15,6 +15,17 @@
 // nodes in the search tree in order to output the path from the
 // initial node of the search tree to this node.
 //
+// Filling in the "children" list allocates every child at once and keeps
+// them all reachable from the parent for as long as the search tree is
+// kept, even when most of them are immediately discarded by repeated state
+// checking.  Searches can instead generate children lazily, one at a time,
+// either by iterating over "successors", which creates each child only
+// when it is requested, or by calling "child" for just those road segments
+// whose destinations are worth considering.  Children generated in these
+// ways are not recorded in the "children" list, so the memory used by a
+// search grows with the size of its frontier rather than with the number
+// of nodes ever generated.
+//
 // David Noelle -- Sun Feb 11 18:26:42 PST 2007
 //                 Modified Tue Sep 11 14:57:53 PDT 2018
 //
@@ -33,7 +44,8 @@ public class Node {
 
     // Default constructor ...
 	public Node() {
-		this.children = new ArrayList<Node>();
+		// No list is allocated until the node is expanded ...
+		this.children = Collections.emptyList();
 	}
 
     // Constructor with Location object specified ...
@@ -53,13 +65,39 @@ public class Node {
     // linked into the search tree, and make sure that it's partial path cost
     // is correctly calculated.
 	public void expand() {
-		children.removeAll(children);
-		for (Road r : loc.roads) {
-			Node child = new Node(r.toLocation, this);
-			child.depth = this.depth + 1;
-			child.partialPathCost = this.partialPathCost + r.cost;
-			children.add(child);
-		}
+		children = new ArrayList<Node>(loc.roads.size());
+		for (Road r : loc.roads)
+			children.add(child(r));
+	}
+
+    // child -- Return a new child of this node, reached by following the
+    // given road segment out of this node's location.  The child is not
+    // added to the "children" list.
+	public Node child(Road r) {
+		Node child = new Node(r.toLocation, this);
+		child.depth = this.depth + 1;
+		child.partialPathCost = this.partialPathCost + r.cost;
+		return (child);
+	}
+
+    // successors -- Return the children of this node, generating each one
+    // only when it is requested.  The children are not added to the
+    // "children" list.
+	public Iterable<Node> successors() {
+		return (new Iterable<Node>() {
+				public Iterator<Node> iterator() {
+					final Iterator<Road> roads = loc.roads.iterator();
+					return (new Iterator<Node>() {
+							public boolean hasNext() {
+								return (roads.hasNext());
+							}
+
+							public Node next() {
+								return (child(roads.next()));
+							}
+						});
+				}
+			});
 	}
 
     // isDestination -- Return true if and only if the name of the
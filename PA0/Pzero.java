@@ -12,7 +12,10 @@
 // also examined. A depth limit is provided to the search algorithms, and
 // the algorithms are expected to terminate and report failure if that depth
 // limit is ever reached during search. Summary results are sent to the 
-// standard output stream.
+// standard output stream.  Iterative deepening search, which repeats a
+// depth-limited depth-first search with ever larger depth limits, is
+// tested in the same way, and its node expansions are also reported for
+// each depth limit tried.
 //
 // David Noelle -- Sun Sep 15 22:07:32 PDT 2019
 //
@@ -95,6 +98,33 @@ public class Pzero {
 			}
 			System.out.printf("Number of Node Expansions = %d.\n", dfs.nodeExpansionCount);
 
+			// Testing iterative deepening search without repeated state checking ...
+			System.out.println("TESTING ITERATIVE DEEPENING WITHOUT REPEATED STATE CHECKING");
+			IterativeDeepeningSearch ids = new IterativeDeepeningSearch(graph, initialLoc, destinationLoc, limit);
+			solution = ids.search(false);
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", ids.nodeExpansionCount);
+			System.out.printf("Node Expansions per Iteration = %s.\n", ids.iterationExpansionCounts);
+
+			// Testing iterative deepening search with repeated state checking ...
+			System.out.println("TESTING ITERATIVE DEEPENING WITH REPEATED STATE CHECKING");
+			solution = ids.search(true);
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", ids.nodeExpansionCount);
+			System.out.printf("Node Expansions per Iteration = %s.\n", ids.iterationExpansionCounts);
+
 			// Done ...
 			System.out.println("ALGORITHM COMPARISON COMPLETE");
 		} catch (IOException e) {
@@ -0,0 +1,82 @@
+//
+// SearchWorkspace
+//
+// This class holds the per-location bookkeeping of a search, so that it
+// can be reused from one search to the next instead of being allocated
+// afresh for every query.  Locations are identified by their integer
+// indices (see Map and CompactGraph), and, for each location, the
+// workspace records whether it has been "reached" by the current search,
+// that is, whether a node for it has ever been placed on the frontier.
+// For breadth-first and depth-first search with repeated state checking,
+// a reached location is either still on the frontier or already visited,
+// so no child needs to be generated for it again.
+//
+// Clearing these records between searches would take time proportional
+// to the size of the map, so each record is instead stamped with the
+// number of the search (the "epoch") in which it was written, and a record
+// with an older stamp is treated as empty.  Starting a new search just
+// increments the epoch.  Only when the epoch counter wraps around, after
+// billions of searches, are the stamps actually cleared.  A workspace must
+// only be used by one search at a time, so each thread should have its
+// own; "forCurrentThread" returns a workspace belonging to the calling
+// thread.
+//
+// The workspace also keeps one Frontier, which is cleared and handed out
+// again by "frontier", so that its array does not have to be grown anew
+// for every search.
+//
+
+
+import java.util.*;
+
+
+public class SearchWorkspace {
+    static final ThreadLocal<SearchWorkspace> threadWorkspace = new ThreadLocal<SearchWorkspace>() {
+	    protected SearchWorkspace initialValue() {
+		    return (new SearchWorkspace());
+	    }
+	};
+
+    int epoch = 0;
+    int[] reachedStamp = new int[0];   // Epoch in which each location was reached ...
+    Frontier frontier = new Frontier();
+
+    // forCurrentThread -- Return the workspace belonging to the calling
+    // thread, creating it if necessary.
+	public static SearchWorkspace forCurrentThread() {
+		return (threadWorkspace.get());
+	}
+
+    // begin -- Start a new search over a map with the given number of
+    // locations, forgetting everything recorded by earlier searches.
+	public void begin(int locationCount) {
+		if (reachedStamp.length < locationCount)
+			reachedStamp = Arrays.copyOf(reachedStamp, Math.max(locationCount, 2 * reachedStamp.length));
+		if (epoch == Integer.MAX_VALUE) {
+			// The counter has wrapped, so the stamps must really be cleared ...
+			Arrays.fill(reachedStamp, 0);
+			epoch = 0;
+		}
+		epoch++;
+	}
+
+    // reach -- Record that the location with the given index has been
+    // reached in the current search.
+	public void reach(int loc) {
+		reachedStamp[loc] = epoch;
+	}
+
+    // isReached -- Return true if and only if the location with the given
+    // index has been reached in the current search.
+	public boolean isReached(int loc) {
+		return (reachedStamp[loc] == epoch);
+	}
+
+    // frontier -- Return an empty Frontier for the current search, reusing
+    // the one left by the previous search.
+	public Frontier frontier() {
+		frontier.clear();
+		return (frontier);
+	}
+
+}
@@ -0,0 +1,318 @@
+//
+// BidirectionalSearch
+//
+// This class implements bidirectional shortest-path search over a
+// CompactGraph. Two searches are run at once: a forward search outward
+// from the initial location, following road segments in their usual
+// direction, and a backward search outward from the destination location,
+// following road segments in reverse (using the reverse adjacency of the
+// graph). Each step expands the location at the top of whichever of the
+// two frontiers has the lower key, and whenever a road segment joins a
+// location reached by one search to a location reached by the other, the
+// cost of the complete path through that segment is compared with the
+// best such path found so far. When built with the basic (zero) Heuristic,
+// this is bidirectional uniform-cost search (Dijkstra's algorithm run from
+// both ends). When built with a heuristic that never overestimates and is
+// consistent, such as GoodHeuristic, this is bidirectional A* search.
+//
+// For bidirectional A* search, both searches use the "average" potential
+// function, p(v) = (h(v, destination) - h(initial, v)) / 2, with the
+// forward search ordering locations by g(v) + p(v) and the backward search
+// ordering them by g(v) - p(v). Both searches then see the same reduced
+// road costs, which are never negative, and the search can stop as soon
+// as the sum of the two smallest keys is at least the cost of the best
+// path found so far, at which point that path is known to be optimal. The
+// same test is used for bidirectional uniform-cost search, where p(v) is
+// always zero.
+//
+// Each location is expanded at most once by each search, so this search
+// always performs repeated state checking. The expansions of both
+// searches are counted in "nodeExpansionCount", and the search fails if
+// that count reaches the given limit. As with CompactSearch, Node objects
+// are only built for the solution path, so the solution can be reported
+// with "reportSolution" as usual. A SearchMetrics object given with
+// "setMetrics" is told of the expansions, generated children, frontier
+// sizes, and heuristic evaluations of both searches together.
+//
+
+
+import java.util.*;
+
+
+public class BidirectionalSearch {
+    CompactGraph graph;
+    Heuristic heuristic;
+    String initialLoc;
+    String destinationLoc;
+    int limit;
+    public int nodeExpansionCount;
+    SearchMetrics metrics = null;
+
+    // Per-location state, for the forward and backward searches ...
+    double[] forwardCost;     // Best known path cost from the initial location ...
+    double[] backwardCost;    // Best known path cost to the destination ...
+    int[] forwardParent;      // Previous location on the forward path ...
+    int[] forwardRoad;        // Road segment leading into each location ...
+    int[] backwardNext;       // Next location on the backward path ...
+    int[] backwardRoad;       // Road segment leading out of each location ...
+    boolean[] forwardClosed;
+    boolean[] backwardClosed;
+    double[] potential;       // Cached potential of each reached location ...
+
+    // Locations whose state must be reset before the next search ...
+    int[] touched = new int[64];
+    int touchedCount = 0;
+
+    IndexedHeap forwardFrontier = new IndexedHeap();
+    IndexedHeap backwardFrontier = new IndexedHeap();
+
+    // Best complete path found so far ...
+    double bestCost;
+    int meetingRoad;          // Road segment joining the two searches ...
+    int meetingFrom;
+    int meetingTo;
+
+	// Constructor for bidirectional uniform-cost search ...
+	public BidirectionalSearch(CompactGraph graph, String initialLoc, String destinationLoc,
+				   int limit) {
+		this(graph, initialLoc, destinationLoc, limit, new Heuristic());
+	}
+
+	// Constructor for bidirectional A* search with the given heuristic ...
+	public BidirectionalSearch(CompactGraph graph, String initialLoc, String destinationLoc,
+				   int limit, Heuristic heuristic) {
+		this.graph = graph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+		this.heuristic = heuristic;
+		graph.prepareReverseRoads();
+	}
+
+	// setLocations -- Set the initial and destination locations for the
+	// next search, so that this object can be reused.
+	public void setLocations(String initialLoc, String destinationLoc) {
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+	}
+
+	// setMetrics -- Record measurements of each search in the given
+	// SearchMetrics object, or, if it is null, record none.
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// search -- Search for a shortest path from the initial location to
+	// the destination location. Return the final node of the solution
+	// path, or null if no solution was found within the expansion limit.
+	public Node search() {
+		SearchPath path = searchPath();
+		if (path == null)
+			return (null);
+		return (path.toNode());
+	}
+
+	// searchPath -- Search as "search" does, but return the solution as a
+	// SearchPath, without building any Node objects, or null if no
+	// solution was found.
+	public SearchPath searchPath() {
+		nodeExpansionCount = 0;
+		int source = graph.findLocation(initialLoc);
+		int destination = graph.findLocation(destinationLoc);
+		if ((source < 0) || (destination < 0))
+			return (null);
+		if (!search(source, destination))
+			return (null);
+		return (solutionPath(source, destination));
+	}
+
+	// search -- Search for a shortest path between the locations with the
+	// given indices. Return true if one was found within the expansion
+	// limit, in which case its cost is left in "bestCost".
+	boolean search(int source, int destination) {
+		if (metrics == null)
+			return (meet(source, destination));
+		metrics.begin();
+		boolean found = meet(source, destination);
+		metrics.end();
+		return (found);
+	}
+
+	// meet -- Perform the search for "search".
+	boolean meet(int source, int destination) {
+		nodeExpansionCount = 0;
+		bestCost = Double.POSITIVE_INFINITY;
+		meetingRoad = -1;
+		if (source == destination) {
+			bestCost = 0.0;
+			return (true);
+		}
+		reset();
+
+		label(source, source, destination);
+		forwardCost[source] = 0.0;
+		forwardFrontier.insert(source, potential[source]);
+		label(destination, source, destination);
+		backwardCost[destination] = 0.0;
+		backwardFrontier.insert(destination, -potential[destination]);
+
+		while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+			double forwardKey = forwardFrontier.peekKey();
+			double backwardKey = backwardFrontier.peekKey();
+			if (forwardKey + backwardKey >= bestCost)
+				break;
+			if (nodeExpansionCount >= limit)
+				return (false);
+			nodeExpansionCount++;
+			if (metrics != null)
+				metrics.expanded((forwardKey <= backwardKey) ? forwardFrontier.peek()
+						 : backwardFrontier.peek(), Math.min(forwardKey, backwardKey));
+			if (forwardKey <= backwardKey) {
+				expandForward(forwardFrontier.removeTop(), source, destination);
+			} else {
+				expandBackward(backwardFrontier.removeTop(), source, destination);
+			}
+		}
+		return (meetingRoad >= 0);
+	}
+
+	// expandForward -- Expand the given location in the forward search,
+	// following the road segments leading out of it.
+	void expandForward(int loc, int source, int destination) {
+		forwardClosed[loc] = true;
+		double cost = forwardCost[loc];
+		if (metrics != null)
+			metrics.generated(graph.endRoad(loc) - graph.firstRoad(loc));
+		for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+			int child = graph.roadTarget(r);
+			double childCost = cost + graph.roadCost(r);
+			if (backwardCost[child] + childCost < bestCost) {
+				bestCost = backwardCost[child] + childCost;
+				meetingRoad = r;
+				meetingFrom = loc;
+				meetingTo = child;
+			}
+			if (forwardClosed[child] || (childCost >= forwardCost[child]))
+				continue;
+			if ((metrics != null) && (forwardCost[child] < Double.POSITIVE_INFINITY))
+				metrics.reopened();
+			label(child, source, destination);
+			forwardCost[child] = childCost;
+			forwardParent[child] = loc;
+			forwardRoad[child] = r;
+			forwardFrontier.insert(child, childCost + potential[child]);
+			if (metrics != null)
+				metrics.frontierSize(forwardFrontier.size() + backwardFrontier.size());
+		}
+	}
+
+	// expandBackward -- Expand the given location in the backward search,
+	// following the road segments leading into it.
+	void expandBackward(int loc, int source, int destination) {
+		backwardClosed[loc] = true;
+		double cost = backwardCost[loc];
+		if (metrics != null)
+			metrics.generated(graph.endReverseRoad(loc) - graph.firstReverseRoad(loc));
+		for (int i = graph.firstReverseRoad(loc); i < graph.endReverseRoad(loc); i++) {
+			int r = graph.reverseRoad(i);
+			int parent = graph.reverseSource(i);
+			double parentCost = cost + graph.roadCost(r);
+			if (forwardCost[parent] + parentCost < bestCost) {
+				bestCost = forwardCost[parent] + parentCost;
+				meetingRoad = r;
+				meetingFrom = parent;
+				meetingTo = loc;
+			}
+			if (backwardClosed[parent] || (parentCost >= backwardCost[parent]))
+				continue;
+			if ((metrics != null) && (backwardCost[parent] < Double.POSITIVE_INFINITY))
+				metrics.reopened();
+			label(parent, source, destination);
+			backwardCost[parent] = parentCost;
+			backwardNext[parent] = loc;
+			backwardRoad[parent] = r;
+			backwardFrontier.insert(parent, parentCost - potential[parent]);
+			if (metrics != null)
+				metrics.frontierSize(forwardFrontier.size() + backwardFrontier.size());
+		}
+	}
+
+	// label -- Compute the potential of the given location, the first time
+	// that it is reached by either search, and remember to reset its state
+	// before the next search.
+	void label(int loc, int source, int destination) {
+		if (!Double.isNaN(potential[loc]))
+			return;
+		if (metrics != null) {
+			metrics.heuristicEvaluated();
+			metrics.heuristicEvaluated();
+		}
+		potential[loc] = 0.5 * (heuristic.heuristicValue(graph, loc, destination)
+					- heuristic.heuristicValue(graph, source, loc));
+		if (touchedCount == touched.length)
+			touched = Arrays.copyOf(touched, 2 * touchedCount);
+		touched[touchedCount++] = loc;
+	}
+
+	// reset -- Prepare the per-location state for a new search. Only the
+	// locations reached by the previous search need to be cleared.
+	void reset() {
+		int n = graph.locationCount();
+		if ((forwardCost == null) || (forwardCost.length < n)) {
+			forwardCost = new double[n];
+			backwardCost = new double[n];
+			forwardParent = new int[n];
+			forwardRoad = new int[n];
+			backwardNext = new int[n];
+			backwardRoad = new int[n];
+			forwardClosed = new boolean[n];
+			backwardClosed = new boolean[n];
+			potential = new double[n];
+			Arrays.fill(forwardCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(backwardCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(potential, Double.NaN);
+		} else {
+			for (int i = 0; i < touchedCount; i++) {
+				int loc = touched[i];
+				forwardCost[loc] = Double.POSITIVE_INFINITY;
+				backwardCost[loc] = Double.POSITIVE_INFINITY;
+				forwardClosed[loc] = false;
+				backwardClosed[loc] = false;
+				potential[loc] = Double.NaN;
+			}
+		}
+		touchedCount = 0;
+		forwardFrontier.clear();
+		backwardFrontier.clear();
+	}
+
+	// solutionPath -- Return the best path found, which follows the
+	// forward search from the initial location to the meeting road
+	// segment, and then the backward search from the end of that segment
+	// to the destination location.
+	SearchPath solutionPath(int source, int destination) {
+		if (source == destination)
+			return (new SearchPath(graph, new int[] { source }, new int[0], 1));
+		int forwardCount = 1;
+		for (int loc = meetingFrom; loc != source; loc = forwardParent[loc])
+			forwardCount++;
+		int count = forwardCount + 1;
+		for (int loc = meetingTo; loc != destination; loc = backwardNext[loc])
+			count++;
+		int[] locs = new int[count];
+		int[] roads = new int[count - 1];
+		locs[forwardCount - 1] = meetingFrom;
+		for (int i = forwardCount - 1; i > 0; i--) {
+			roads[i - 1] = forwardRoad[locs[i]];
+			locs[i - 1] = forwardParent[locs[i]];
+		}
+		roads[forwardCount - 1] = meetingRoad;
+		locs[forwardCount] = meetingTo;
+		for (int i = forwardCount; i < count - 1; i++) {
+			roads[i] = backwardRoad[locs[i]];
+			locs[i + 1] = backwardNext[locs[i]];
+		}
+		return (new SearchPath(graph, locs, roads, count));
+	}
+
+}
@@ -0,0 +1,553 @@
+//
+// CompactGraph
+//
+// This class implements an immutable street map stored in "compressed
+// sparse row" form, for the purposes of fast shortest-path search over
+// very large maps. Rather than keeping a Location object for every place
+// and a Road object for every road segment, locations are identified by
+// consecutive integer indices, and all of the information about them is
+// kept in a handful of primitive arrays. The road segments leading out of
+// the location with index "i" are the segments with indices from
+// "firstRoad[i]" up to (but not including) "firstRoad[i+1]", and for each
+// road segment the destination location index, the incremental path cost,
+// and the road name are recorded. Location coordinates are kept in single
+// precision, which is plenty for heuristic estimates. Location names and
+// the distinct road names are kept in StringTable objects, and a location
+// is found by name through an open-addressing hash table of location
+// indices, so no String or boxed Integer object is kept per location.
+//
+// All of these arrays are held in NIO buffers. For a graph that is built
+// in memory, the buffers simply wrap ordinary Java arrays, but they may
+// also be slices of a memory-mapped file, which is how MapSnapshot loads
+// a previously saved graph without reading or decoding the whole file.
+//
+// A CompactGraph can be built from a StreetMap that has already been
+// read, in which case location indices follow the order of the map's
+// collection of locations, or it can be read directly from the same
+// location and road files used by StreetMap, without ever allocating a
+// Location or Road object for every place and road segment (the files are
+// tokenized by a MapFileReader). The CompactGraphBuilder class, defined at
+// the end of this file, handles the conversion of a list of road segments
+// into the compressed form.
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+
+public class CompactGraph {
+    int locationCount;
+    int roadCount;
+    IntBuffer firstRoad;       // Offsets into the road buffers, per location ...
+    IntBuffer roadTargets;     // Destination location of each road segment ...
+    DoubleBuffer roadCosts;    // Incremental path cost of each road segment ...
+    IntBuffer roadNameIds;     // Road name table entry of each road segment ...
+    FloatBuffer longitudes;
+    FloatBuffer latitudes;
+    StringTable locationNames;
+    StringTable roadNames;
+    IntBuffer nameHash;        // Location index plus one, or zero if empty ...
+    double costPerDistance;
+
+    // Reverse adjacency, built on demand by "prepareReverseRoads" ...
+    int[] firstReverseRoad;    // Offsets into the reverse road arrays ...
+    int[] reverseRoads;        // Road segments leading into each location ...
+    int[] reverseSources;      // Location at the start of each of those ...
+
+	// Constructor, used by CompactGraphBuilder and MapSnapshot. If the
+	// given cost to distance ratio is NaN, it is computed from the roads.
+	CompactGraph(IntBuffer firstRoad, IntBuffer roadTargets, DoubleBuffer roadCosts,
+		     IntBuffer roadNameIds, FloatBuffer longitudes, FloatBuffer latitudes,
+		     StringTable locationNames, StringTable roadNames, IntBuffer nameHash,
+		     double costPerDistance) {
+		this.locationCount = firstRoad.capacity() - 1;
+		this.roadCount = roadTargets.capacity();
+		this.firstRoad = firstRoad;
+		this.roadTargets = roadTargets;
+		this.roadCosts = roadCosts;
+		this.roadNameIds = roadNameIds;
+		this.longitudes = longitudes;
+		this.latitudes = latitudes;
+		this.locationNames = locationNames;
+		this.roadNames = roadNames;
+		this.nameHash = nameHash;
+		if (Double.isNaN(costPerDistance))
+			costPerDistance = computeCostPerDistance();
+		this.costPerDistance = costPerDistance;
+	}
+
+	// Constructor with StreetMap specified ...
+	public CompactGraph(StreetMap map) {
+		this(CompactGraphBuilder.fromMap(map));
+	}
+
+	// Copy constructor, sharing the buffers of the given graph ...
+	CompactGraph(CompactGraph g) {
+		this.locationCount = g.locationCount;
+		this.roadCount = g.roadCount;
+		this.firstRoad = g.firstRoad;
+		this.roadTargets = g.roadTargets;
+		this.roadCosts = g.roadCosts;
+		this.roadNameIds = g.roadNameIds;
+		this.longitudes = g.longitudes;
+		this.latitudes = g.latitudes;
+		this.locationNames = g.locationNames;
+		this.roadNames = g.roadNames;
+		this.nameHash = g.nameHash;
+		this.costPerDistance = g.costPerDistance;
+		this.firstReverseRoad = g.firstReverseRoad;
+		this.reverseRoads = g.reverseRoads;
+		this.reverseSources = g.reverseSources;
+	}
+
+	// withCosts -- Return a graph with the same locations and road segments
+	// as this one, sharing all of its buffers and its reverse adjacency (if
+	// built), but with the given road segment costs and the given smallest
+	// cost to distance ratio.
+	synchronized CompactGraph withCosts(double[] costs, double costPerDistance) {
+		CompactGraph g = new CompactGraph(this);
+		g.roadCosts = DoubleBuffer.wrap(costs);
+		g.costPerDistance = costPerDistance;
+		return (g);
+	}
+
+	// copyCosts -- Return a new array holding the cost of every road
+	// segment, in order.
+	double[] copyCosts() {
+		double[] costs = new double[roadCount];
+		for (int r = 0; r < roadCount; r++)
+			costs[r] = roadCosts.get(r);
+		return (costs);
+	}
+
+	// read -- Read a compact graph directly from the given location file
+	// and road file, which have the same formats as those read by
+	// StreetMap. Return null on error.
+	public static CompactGraph read(String locationFilename, String roadFilename) {
+		CompactGraphBuilder builder = new CompactGraphBuilder();
+		if (builder.readLocations(locationFilename) && builder.readRoads(roadFilename)) {
+			return (builder.build());
+		} else {
+			return (null);
+		}
+	}
+
+	// locationCount -- Return the number of locations on this map.
+	public int locationCount() {
+		return (locationCount);
+	}
+
+	// roadCount -- Return the number of road segments on this map.
+	public int roadCount() {
+		return (roadCount);
+	}
+
+	// checksum -- Return a 64-bit hash (FNV-1a) of the road segments leaving
+	// each location, their destinations, and their costs. Files of tables
+	// computed from this graph store it, so that tables computed before a
+	// road or cost was changed are not used with the changed graph.
+	public long checksum() {
+		long hash = 0xcbf29ce484222325L;
+		for (int loc = 0; loc <= locationCount; loc++)
+			hash = mix(hash, firstRoad.get(loc));
+		for (int r = 0; r < roadCount; r++) {
+			hash = mix(hash, roadTargets.get(r));
+			hash = mix(hash, Double.doubleToLongBits(roadCosts.get(r)));
+		}
+		return (hash);
+	}
+
+	// mix -- Add the eight bytes of the given value to the given FNV-1a hash.
+	static long mix(long hash, long value) {
+		for (int i = 0; i < 8; i++) {
+			hash ^= (value >>> (8 * i)) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return (hash);
+	}
+
+	// findLocation -- Return the index of the location with the given
+	// textual name, or -1 if no such location is found. If several
+	// locations share the name, the first one is found.
+	public int findLocation(String name) {
+		byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+		int mask = nameHash.capacity() - 1;
+		int slot = StringTable.hash(utf8) & mask;
+		while (true) {
+			int entry = nameHash.get(slot);
+			if (entry == 0)
+				return (-1);
+			if (locationNames.matches(entry - 1, utf8))
+				return (entry - 1);
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	// locationName -- Return the textual name of the given location.
+	public String locationName(int loc) {
+		return (locationNames.get(loc));
+	}
+
+	// longitude -- Return the first Cartesian coordinate of the given
+	// location.
+	public double longitude(int loc) {
+		return (longitudes.get(loc));
+	}
+
+	// latitude -- Return the second Cartesian coordinate of the given
+	// location.
+	public double latitude(int loc) {
+		return (latitudes.get(loc));
+	}
+
+	// firstRoad -- Return the index of the first road segment leading out
+	// of the given location.
+	public int firstRoad(int loc) {
+		return (firstRoad.get(loc));
+	}
+
+	// endRoad -- Return one more than the index of the last road segment
+	// leading out of the given location.
+	public int endRoad(int loc) {
+		return (firstRoad.get(loc + 1));
+	}
+
+	// roadTarget -- Return the index of the location at the end of the
+	// given road segment.
+	public int roadTarget(int road) {
+		return (roadTargets.get(road));
+	}
+
+	// roadCost -- Return the incremental path cost of the given road
+	// segment.
+	public double roadCost(int road) {
+		return (roadCosts.get(road));
+	}
+
+	// roadName -- Return the textual name of the given road segment.
+	public String roadName(int road) {
+		return (roadNames.get(roadNameIds.get(road)));
+	}
+
+	// prepareReverseRoads -- Build the reverse adjacency of this map, which
+	// lists, for each location, the road segments leading into it, in the
+	// same compressed form as the road segments leading out of it. This is
+	// needed by searches that work backward from the destination, and it
+	// must be called before any of the reverse road methods are used. It
+	// only does any work the first time that it is called.
+	public synchronized void prepareReverseRoads() {
+		if (firstReverseRoad != null)
+			return;
+		int[] first = new int[locationCount + 1];
+		for (int r = 0; r < roadCount; r++)
+			first[roadTarget(r) + 1]++;
+		for (int loc = 0; loc < locationCount; loc++)
+			first[loc + 1] += first[loc];
+		int[] next = Arrays.copyOf(first, locationCount);
+		int[] roads = new int[roadCount];
+		int[] sources = new int[roadCount];
+		for (int loc = 0; loc < locationCount; loc++) {
+			for (int r = firstRoad(loc); r < endRoad(loc); r++) {
+				int slot = next[roadTarget(r)]++;
+				roads[slot] = r;
+				sources[slot] = loc;
+			}
+		}
+		reverseRoads = roads;
+		reverseSources = sources;
+		firstReverseRoad = first;
+	}
+
+	// firstReverseRoad -- Return the position, in the reverse adjacency, of
+	// the first road segment leading into the given location.
+	public int firstReverseRoad(int loc) {
+		return (firstReverseRoad[loc]);
+	}
+
+	// endReverseRoad -- Return one more than the position, in the reverse
+	// adjacency, of the last road segment leading into the given location.
+	public int endReverseRoad(int loc) {
+		return (firstReverseRoad[loc + 1]);
+	}
+
+	// reverseRoad -- Return the index of the road segment at the given
+	// position in the reverse adjacency.
+	public int reverseRoad(int position) {
+		return (reverseRoads[position]);
+	}
+
+	// reverseSource -- Return the index of the location at the start of the
+	// road segment at the given position in the reverse adjacency.
+	public int reverseSource(int position) {
+		return (reverseSources[position]);
+	}
+
+	// distance -- Return the straight line distance between the given
+	// locations.
+	public double distance(int loc1, int loc2) {
+		double x = longitudes.get(loc1) - longitudes.get(loc2);
+		double y = latitudes.get(loc1) - latitudes.get(loc2);
+		return (Math.sqrt((x * x) + (y * y)));
+	}
+
+	// costPerDistance -- Return the smallest ratio of incremental path cost
+	// to straight line distance over all road segments on this map. The
+	// straight line distance between two locations, multiplied by this
+	// ratio, never overestimates the cost of traveling between them, which
+	// makes this ratio useful for admissible and consistent heuristics.
+	public double costPerDistance() {
+		return (costPerDistance);
+	}
+
+	// computeCostPerDistance -- Determine the smallest cost to distance
+	// ratio over all road segments, ignoring segments of zero length.
+	// Single precision coordinates are rounded, so the ratio is reduced
+	// slightly to keep it from overestimating.
+	double computeCostPerDistance() {
+		double ratio = Double.POSITIVE_INFINITY;
+		for (int loc = 0; loc < locationCount; loc++) {
+			for (int r = firstRoad(loc); r < endRoad(loc); r++) {
+				double d = distance(loc, roadTarget(r));
+				if (d > 0.0)
+					ratio = Math.min(ratio, roadCost(r) / d);
+			}
+		}
+		if (Double.isInfinite(ratio))
+			return (0.0);
+		return (Math.max(0.0, ratio * (1.0 - 1.0e-6)));
+	}
+
+	// solutionNode -- Build a chain of search tree Node objects describing
+	// the path that visits the given locations, in order, using the given
+	// road segments ("roads[i]" leads from "locs[i]" to "locs[i+1]"), and
+	// return the final node of the chain. Only the Location and Road
+	// objects along the path are allocated, so the "reportSolution" method
+	// of the returned node works as usual.
+	public Node solutionNode(int[] locs, int[] roads, int count) {
+		Node thisNode = null;
+		for (int i = 0; i < count; i++) {
+			int loc = locs[i];
+			Location place = new Location(locationName(loc), longitude(loc), latitude(loc));
+			Node child = new Node(place, thisNode);
+			if (thisNode != null) {
+				int r = roads[i - 1];
+				Road road = new Road();
+				road.name = roadName(r);
+				road.fromLocationName = thisNode.loc.name;
+				road.toLocationName = place.name;
+				road.fromLocation = thisNode.loc;
+				road.toLocation = place;
+				road.cost = roadCost(r);
+				thisNode.loc.recordRoad(road);
+				child.road = road;
+				child.depth = thisNode.depth + 1;
+				child.partialPathCost = thisNode.partialPathCost + road.cost;
+			}
+			thisNode = child;
+		}
+		return (thisNode);
+	}
+
+}
+
+
+class CompactGraphBuilder {
+    List<String> names = new ArrayList<String>();
+    float[] longitudes = new float[16];
+    float[] latitudes = new float[16];
+    Map<String, Integer> locationIndex = new HashMap<String, Integer>();
+    Map<String, Integer> roadNameIndex = new HashMap<String, Integer>();
+    List<String> roadNames = new ArrayList<String>();
+    int[] roadSources = new int[16];
+    int[] roadTargets = new int[16];
+    double[] roadCosts = new double[16];
+    int[] roadNameIds = new int[16];
+    int roadCount = 0;
+
+	// fromMap -- Build a compact graph from the locations and roads of the
+	// given StreetMap, preserving the order of its locations.
+	static CompactGraph fromMap(StreetMap map) {
+		CompactGraphBuilder builder = new CompactGraphBuilder();
+		for (Location loc : map.locations) {
+			builder.addLocation(loc.name, loc.longitude, loc.latitude);
+		}
+		for (Location loc : map.locations) {
+			for (Road r : loc.roads) {
+				builder.addRoad(r.name, loc.index, r.toLocation.index, r.cost);
+			}
+		}
+		return (builder.build());
+	}
+
+	// findLocation -- Return the index of the first location recorded
+	// with the given name, or -1 if there is no such location.
+	int findLocation(String name) {
+		Integer index = locationIndex.get(name);
+		if (index == null)
+			return (-1);
+		return (index);
+	}
+
+	// addLocation -- Record a new location, returning its index.
+	int addLocation(String name, double longitude, double latitude) {
+		int index = names.size();
+		if (index == longitudes.length) {
+			longitudes = Arrays.copyOf(longitudes, 2 * index);
+			latitudes = Arrays.copyOf(latitudes, 2 * index);
+		}
+		names.add(name);
+		longitudes[index] = (float) longitude;
+		latitudes[index] = (float) latitude;
+		if (!locationIndex.containsKey(name))
+			locationIndex.put(name, index);
+		return (index);
+	}
+
+	// addRoad -- Record a new road segment between the given locations.
+	// Equal road names are stored only once, in the road name table.
+	void addRoad(String name, int from, int to, double cost) {
+		if (roadCount == roadSources.length) {
+			int capacity = 2 * roadCount;
+			roadSources = Arrays.copyOf(roadSources, capacity);
+			roadTargets = Arrays.copyOf(roadTargets, capacity);
+			roadCosts = Arrays.copyOf(roadCosts, capacity);
+			roadNameIds = Arrays.copyOf(roadNameIds, capacity);
+		}
+		Integer nameId = roadNameIndex.get(name);
+		if (nameId == null) {
+			nameId = roadNames.size();
+			roadNameIndex.put(name, nameId);
+			roadNames.add(name);
+		}
+		roadSources[roadCount] = from;
+		roadTargets[roadCount] = to;
+		roadCosts[roadCount] = cost;
+		roadNameIds[roadCount] = nameId;
+		roadCount++;
+	}
+
+	// readLocations -- Read all of the locations in the given location
+	// file. Return false on error.
+	boolean readLocations(String filename) {
+		try {
+			File locFile = new File(filename);
+			if (!(locFile.exists() && locFile.canRead()))
+				return (false);
+			MapFileReader in = new MapFileReader(filename);
+			try {
+				while (in.nextLocation()) {
+					addLocation(in.locationName, in.longitude, in.latitude);
+				}
+				if (in.getError() != null) {
+					System.err.println(in.getError());
+					return (false);
+				}
+				return (true);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+	// readRoads -- Read all of the road segments in the given road file,
+	// connecting previously read locations. Return false on error.
+	boolean readRoads(String filename) {
+		try {
+			File roadFile = new File(filename);
+			if (!(roadFile.exists() && roadFile.canRead()))
+				return (false);
+			MapFileReader in = new MapFileReader(filename);
+			try {
+				while (in.nextRoad()) {
+					int from = findLocation(in.fromLocationName);
+					if (from < 0) {
+						System.err.printf("%s:%d: The location, %s, is not known.\n",
+								  filename, in.getLineNumber(), in.fromLocationName);
+						return (false);
+					}
+					int to = findLocation(in.toLocationName);
+					if (to < 0) {
+						System.err.printf("%s:%d: The location, %s, is not known.\n",
+								  filename, in.getLineNumber(), in.toLocationName);
+						return (false);
+					}
+					addRoad(in.roadName, from, to, in.cost);
+				}
+				if (in.getError() != null) {
+					System.err.println(in.getError());
+					return (false);
+				}
+				return (true);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+	// build -- Return the compact graph containing all recorded locations
+	// and road segments. Road segments are grouped by their "from"
+	// location with a counting sort, keeping the order in which the
+	// segments leading out of each location were recorded.
+	CompactGraph build() {
+		int n = names.size();
+		int[] first = new int[n + 1];
+		for (int i = 0; i < roadCount; i++)
+			first[roadSources[i] + 1]++;
+		for (int loc = 0; loc < n; loc++)
+			first[loc + 1] += first[loc];
+		int[] next = Arrays.copyOf(first, n);
+		int[] targets = new int[roadCount];
+		double[] costs = new double[roadCount];
+		int[] nameIds = new int[roadCount];
+		for (int i = 0; i < roadCount; i++) {
+			int slot = next[roadSources[i]]++;
+			targets[slot] = roadTargets[i];
+			costs[slot] = roadCosts[i];
+			nameIds[slot] = roadNameIds[i];
+		}
+		StringTable locationNames = new StringTable(names);
+		return (new CompactGraph(IntBuffer.wrap(first), IntBuffer.wrap(targets),
+					 DoubleBuffer.wrap(costs), IntBuffer.wrap(nameIds),
+					 FloatBuffer.wrap(Arrays.copyOf(longitudes, n)),
+					 FloatBuffer.wrap(Arrays.copyOf(latitudes, n)),
+					 locationNames, new StringTable(roadNames),
+					 buildNameHash(locationNames), Double.NaN));
+	}
+
+	// buildNameHash -- Build the open-addressing hash table used to find
+	// locations by name. The table has a power of two size, at least twice
+	// the number of locations, and each occupied slot holds a location
+	// index plus one. Only the first location with a given name is entered.
+	static IntBuffer buildNameHash(StringTable names) {
+		int capacity = 2;
+		while (capacity < 2 * names.size())
+			capacity *= 2;
+		int mask = capacity - 1;
+		int[] table = new int[capacity];
+		for (int i = 0; i < names.size(); i++) {
+			byte[] utf8 = names.get(i).getBytes(StandardCharsets.UTF_8);
+			int slot = StringTable.hash(utf8) & mask;
+			boolean duplicate = false;
+			while (table[slot] != 0) {
+				if (names.matches(table[slot] - 1, utf8)) {
+					duplicate = true;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (!duplicate)
+				table[slot] = i + 1;
+		}
+		return (IntBuffer.wrap(table));
+	}
+
+}
@@ -0,0 +1,223 @@
+//
+// CompactSearch
+//
+// This class implements best-first search for a shortest path over a
+// CompactGraph. Depending on the sorting strategy, it performs uniform-cost
+// search (ordering by partial path cost), greedy search (ordering by
+// heuristic value), or A* search (ordering by the sum of the two), with or
+// without repeated state checking, just like the search classes that work
+// over a StreetMap. Instead of allocating a Node object for every generated
+// child, each search tree node is recorded as an "entry" in a set of
+// parallel primitive arrays (its location, its parent entry, the road
+// segment leading to it, and its partial path cost), and the frontier is an
+// IndexedHeap of entry or location indices. Node objects are only built for
+// the path of the solution that is returned, so the solution can be
+// reported with "reportSolution" as usual.
+//
+// With repeated state checking, the frontier holds at most one entry per
+// location, and a newly generated child replaces the frontier entry for
+// its location if its sorting statistic is strictly lower. Without repeated
+// state checking, every generated child is added to the frontier. The
+// per-location records used for repeated state checking are kept in a
+// SearchWorkspace (by default, the one belonging to the searching thread),
+// so they need not be cleared, or allocated, for each search.
+//
+// A SearchMetrics object given with "setMetrics" is told of every
+// expansion, generated child, frontier size, replaced frontier entry, and
+// heuristic evaluation of each search.
+//
+
+
+import java.util.*;
+
+
+public class CompactSearch {
+    CompactGraph graph;
+    SortBy sortingStrategy;
+    Heuristic heuristic;
+    public int nodeExpansionCount;
+
+    // Search tree entries ...
+    int entryCount = 0;
+    int[] entryLocation = new int[64];
+    int[] entryParent = new int[64];
+    int[] entryRoad = new int[64];
+    double[] entryCost = new double[64];
+
+    // Per-location state for repeated state checking ...
+    SearchWorkspace workspace;
+
+    SearchMetrics metrics = null;
+
+    IndexedHeap frontier = new IndexedHeap();
+
+	// Constructor with graph, sorting strategy, and heuristic specified ...
+	public CompactSearch(CompactGraph graph, SortBy strategy, Heuristic heuristic) {
+		this.graph = graph;
+		this.sortingStrategy = strategy;
+		this.heuristic = heuristic;
+	}
+
+	// setWorkspace -- Use the given workspace for per-location state, or,
+	// if it is null, the workspace belonging to the searching thread.
+	public void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+
+	// setMetrics -- Record measurements of each search in the given
+	// SearchMetrics object, or, if it is null, record none.
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// search -- Search for a shortest path from the location with the
+	// given initial name to the location with the given destination
+	// name, expanding at most "limit" nodes. Return the final node of
+	// the solution path, or null if no solution was found.
+	public Node search(String initialLoc, String destinationLoc, int limit,
+			   boolean repeatedStateChecking) {
+		SearchPath path = searchPath(initialLoc, destinationLoc, limit, repeatedStateChecking);
+		if (path == null)
+			return (null);
+		return (path.toNode());
+	}
+
+	// searchPath -- Search as "search" does, but return the solution as a
+	// SearchPath, without building any Node objects, or null if no
+	// solution was found.
+	public SearchPath searchPath(String initialLoc, String destinationLoc, int limit,
+				     boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		int source = graph.findLocation(initialLoc);
+		int destination = graph.findLocation(destinationLoc);
+		if ((source < 0) || (destination < 0))
+			return (null);
+		int goal = search(source, destination, limit, repeatedStateChecking);
+		if (goal < 0)
+			return (null);
+		return (solutionPath(goal));
+	}
+
+	// search -- Search for a shortest path between the locations with the
+	// given indices, expanding at most "limit" nodes. Return the entry
+	// index of the goal node, or -1 if no solution was found.
+	int search(int source, int destination, int limit, boolean repeatedStateChecking) {
+		if (metrics == null)
+			return (bestFirst(source, destination, limit, repeatedStateChecking));
+		metrics.begin();
+		int goal = bestFirst(source, destination, limit, repeatedStateChecking);
+		metrics.end();
+		return (goal);
+	}
+
+	// bestFirst -- Perform the search for "search".
+	int bestFirst(int source, int destination, int limit, boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		entryCount = 0;
+		frontier.clear();
+		SearchWorkspace ws = (workspace != null) ? workspace : SearchWorkspace.forCurrentThread();
+		if (repeatedStateChecking)
+			ws.begin(graph.locationCount());
+
+		int root = addEntry(source, -1, -1, 0.0);
+		push(root, source, destination, repeatedStateChecking, ws);
+
+		while (!frontier.isEmpty() && nodeExpansionCount < limit) {
+			// get and remove top entry
+			double topKey = (metrics != null) ? frontier.peekKey() : 0.0;
+			int top = frontier.removeTop();
+			int current = repeatedStateChecking ? ws.getEntry(top) : top;
+			int loc = entryLocation[current];
+
+			if (repeatedStateChecking)
+				ws.visit(loc);
+
+			if (loc == destination)
+				return (current);
+
+			// expand entry
+			nodeExpansionCount++;
+			double cost = entryCost[current];
+			if (metrics != null) {
+				metrics.expanded(loc, topKey);
+				metrics.generated(graph.endRoad(loc) - graph.firstRoad(loc));
+			}
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+				int child = graph.roadTarget(r);
+				if (repeatedStateChecking && ws.isVisited(child))
+					continue;
+				double childCost = cost + graph.roadCost(r);
+				if (repeatedStateChecking && frontier.contains(child)) {
+					// keep the existing frontier entry unless this one is better
+					double k = key(child, childCost, destination);
+					if (k >= frontier.getKey(child))
+						continue;
+					if (metrics != null)
+						metrics.reopened();
+				}
+				int entry = addEntry(child, current, r, childCost);
+				push(entry, child, destination, repeatedStateChecking, ws);
+			}
+		}
+		return (-1);
+	}
+
+	// key -- Return the sorting statistic of a node at the given location
+	// with the given partial path cost.
+	double key(int loc, double cost, int destination) {
+		if ((metrics != null) && (sortingStrategy != SortBy.g))
+			metrics.heuristicEvaluated();
+		switch (sortingStrategy) {
+		case h:
+			return (heuristic.heuristicValue(graph, loc, destination));
+		case f:
+			return (cost + heuristic.heuristicValue(graph, loc, destination));
+		default:
+			return (cost);
+		}
+	}
+
+	// push -- Place the given entry on the frontier. With repeated state
+	// checking, the frontier is keyed by location, and the workspace
+	// records which entry is on the frontier for each location.
+	void push(int entry, int loc, int destination, boolean repeatedStateChecking,
+		  SearchWorkspace ws) {
+		double k = key(loc, entryCost[entry], destination);
+		if (repeatedStateChecking) {
+			ws.setEntry(loc, entry);
+			frontier.insert(loc, k);
+		} else {
+			frontier.insert(entry, k);
+		}
+		if (metrics != null)
+			metrics.frontierSize(frontier.size());
+	}
+
+	// addEntry -- Record a new search tree entry, returning its index.
+	int addEntry(int loc, int parent, int road, double cost) {
+		if (entryCount == entryLocation.length) {
+			int capacity = 2 * entryCount;
+			entryLocation = Arrays.copyOf(entryLocation, capacity);
+			entryParent = Arrays.copyOf(entryParent, capacity);
+			entryRoad = Arrays.copyOf(entryRoad, capacity);
+			entryCost = Arrays.copyOf(entryCost, capacity);
+		}
+		entryLocation[entryCount] = loc;
+		entryParent[entryCount] = parent;
+		entryRoad[entryCount] = road;
+		entryCost[entryCount] = cost;
+		return (entryCount++);
+	}
+
+	// pathCost -- Return the partial path cost of the given entry.
+	double pathCost(int entry) {
+		return (entryCost[entry]);
+	}
+
+	// solutionPath -- Return the path from the root entry to the given
+	// entry.
+	SearchPath solutionPath(int entry) {
+		return (SearchPath.fromParents(graph, entry, entryParent, entryLocation, entryRoad));
+	}
+
+}
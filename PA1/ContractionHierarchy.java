@@ -0,0 +1,508 @@
+//
+// ContractionHierarchy
+//
+// This class implements a "contraction hierarchy" over a CompactGraph, a
+// preprocessed form of the map that answers shortest-path queries many
+// times faster than A* search. During preprocessing, the locations of the
+// map are "contracted" one at a time, in order of increasing importance.
+// Contracting a location removes it from the remaining map, and, for each
+// pair of remaining neighbors whose cheapest connection passed through the
+// removed location, a "shortcut" segment with the combined cost of the two
+// road segments is added between them. Whether such a shortcut is needed
+// is decided by a small, bounded uniform-cost "witness" search for some
+// other path that is at least as cheap. The order of contraction gives
+// each location a rank, and the original road segments together with all
+// of the shortcuts form the hierarchy.
+//
+// Any shortest path then has an equally cheap path in the hierarchy that
+// first climbs to locations of ever higher rank and then descends, so a
+// query (see ContractionSearch) only needs a forward search that follows
+// segments upward from the initial location and a backward search that
+// follows segments upward, in reverse, from the destination. Both of these
+// searches stay within a tiny part of the map.
+//
+// Every segment of the hierarchy is recorded as an "edge", with its two
+// end locations and its cost. An edge is either an original road segment,
+// in which case its road segment index is recorded, or a shortcut, in
+// which case the two edges that it replaces are recorded, so that any
+// shortcut can be unpacked into the original road segments that it
+// stands for. For queries, the edges leading upward out of each location
+// and the edges leading upward into each location (in reverse) are kept
+// in compressed form, like the road segments of a CompactGraph.
+//
+// Locations are ordered for contraction by a priority that is recomputed
+// lazily: the number of shortcuts that contracting the location would add,
+// less the number of edges that it would remove, plus the number of its
+// neighbors that have already been contracted. The HierarchyBuilder class,
+// defined at the end of this file, does this preprocessing. Since it can
+// take a while for a large map, the hierarchy can be saved to a file with
+// "save" and read back with "load", which checks that the file was built
+// for a map with the same road segments and costs (by the checksum of the
+// graph, which is stored in the file).
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class ContractionHierarchy {
+    static final int MAGIC = 0x43484859;   // "CHHY" ...
+    static final int VERSION = 2;
+
+    CompactGraph graph;
+    int[] rank;                // Order in which each location was contracted ...
+
+    // Edges: original road segments and shortcuts ...
+    int edgeCount;
+    int[] edgeFrom;
+    int[] edgeTo;
+    double[] edgeCost;
+    int[] edgeRoad;            // Road segment of an original edge, or -1 ...
+    int[] edgeFirst;           // First replaced edge of a shortcut, or -1 ...
+    int[] edgeSecond;          // Second replaced edge of a shortcut, or -1 ...
+
+    // Edges leading to higher ranked locations, by lower end location ...
+    int[] upFirst;
+    int[] upEdges;
+    int[] upTargets;
+    double[] upCosts;
+
+    // Edges leading from higher ranked locations, by lower end location ...
+    int[] downFirst;
+    int[] downEdges;
+    int[] downSources;
+    double[] downCosts;
+
+	// Constructor with graph, ranks, and edges specified ...
+	ContractionHierarchy(CompactGraph graph, int[] rank, int edgeCount, int[] edgeFrom,
+			     int[] edgeTo, double[] edgeCost, int[] edgeRoad, int[] edgeFirst,
+			     int[] edgeSecond) {
+		this.graph = graph;
+		this.rank = rank;
+		this.edgeCount = edgeCount;
+		this.edgeFrom = edgeFrom;
+		this.edgeTo = edgeTo;
+		this.edgeCost = edgeCost;
+		this.edgeRoad = edgeRoad;
+		this.edgeFirst = edgeFirst;
+		this.edgeSecond = edgeSecond;
+		index();
+	}
+
+	// build -- Contract every location of the given graph and return the
+	// resulting hierarchy.
+	public static ContractionHierarchy build(CompactGraph graph) {
+		return (new HierarchyBuilder(graph).build());
+	}
+
+	// build -- Contract every location of the given street map and return
+	// the resulting hierarchy. Location indices follow the order of the
+	// map's collection of locations.
+	public static ContractionHierarchy build(StreetMap map) {
+		return (build(new CompactGraph(map)));
+	}
+
+	// getGraph -- Return the graph on which this hierarchy was built.
+	public CompactGraph getGraph() {
+		return (graph);
+	}
+
+	// shortcutCount -- Return the number of shortcuts in this hierarchy.
+	public int shortcutCount() {
+		int count = 0;
+		for (int e = 0; e < edgeCount; e++) {
+			if (edgeRoad[e] < 0)
+				count++;
+		}
+		return (count);
+	}
+
+	// index -- Build the compressed lists of upward edges for queries.
+	void index() {
+		int n = graph.locationCount();
+		upFirst = new int[n + 1];
+		downFirst = new int[n + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[edgeFrom[e]] < rank[edgeTo[e]]) {
+				upFirst[edgeFrom[e] + 1]++;
+			} else {
+				downFirst[edgeTo[e] + 1]++;
+			}
+		}
+		for (int loc = 0; loc < n; loc++) {
+			upFirst[loc + 1] += upFirst[loc];
+			downFirst[loc + 1] += downFirst[loc];
+		}
+		upEdges = new int[upFirst[n]];
+		upTargets = new int[upFirst[n]];
+		upCosts = new double[upFirst[n]];
+		downEdges = new int[downFirst[n]];
+		downSources = new int[downFirst[n]];
+		downCosts = new double[downFirst[n]];
+		int[] upNext = Arrays.copyOf(upFirst, n);
+		int[] downNext = Arrays.copyOf(downFirst, n);
+		for (int e = 0; e < edgeCount; e++) {
+			if (rank[edgeFrom[e]] < rank[edgeTo[e]]) {
+				int slot = upNext[edgeFrom[e]]++;
+				upEdges[slot] = e;
+				upTargets[slot] = edgeTo[e];
+				upCosts[slot] = edgeCost[e];
+			} else {
+				int slot = downNext[edgeTo[e]]++;
+				downEdges[slot] = e;
+				downSources[slot] = edgeFrom[e];
+				downCosts[slot] = edgeCost[e];
+			}
+		}
+	}
+
+	// save -- Write this hierarchy to the file with the given pathname.
+	// Return false on error, in which case no file is left behind.
+	public boolean save(String filename) {
+		File file = new File(filename);
+		boolean opened = false;
+		boolean written = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			opened = true;
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(graph.locationCount());
+				out.writeInt(graph.roadCount());
+				out.writeLong(graph.checksum());
+				out.writeInt(edgeCount);
+				for (int loc = 0; loc < graph.locationCount(); loc++)
+					out.writeInt(rank[loc]);
+				for (int e = 0; e < edgeCount; e++) {
+					out.writeInt(edgeFrom[e]);
+					out.writeInt(edgeTo[e]);
+					out.writeDouble(edgeCost[e]);
+					out.writeInt(edgeRoad[e]);
+					out.writeInt(edgeFirst[e]);
+					out.writeInt(edgeSecond[e]);
+				}
+			} finally {
+				out.close();
+			}
+			written = true;
+			return (true);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to write hierarchy file %s: %s\n", filename, e.getMessage());
+			return (false);
+		} finally {
+			// Leave no partial hierarchy file behind ...
+			if (opened && !written)
+				file.delete();
+		}
+	}
+
+	// load -- Read a hierarchy for the given graph from the file with the
+	// given pathname. Return null if the file cannot be read or was built
+	// for a different map.
+	public static ContractionHierarchy load(CompactGraph graph, String filename) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+			try {
+				if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+					System.err.printf("%s is not a hierarchy file of version %d.\n", filename, VERSION);
+					return (null);
+				}
+				int n = in.readInt();
+				int m = in.readInt();
+				long checksum = in.readLong();
+				if ((n != graph.locationCount()) || (m != graph.roadCount())
+				    || (checksum != graph.checksum())) {
+					System.err.printf("%s was built for a different map, or before its roads changed.\n",
+							  filename);
+					return (null);
+				}
+				int count = in.readInt();
+				int[] rank = new int[n];
+				for (int loc = 0; loc < n; loc++)
+					rank[loc] = in.readInt();
+				int[] edgeFrom = new int[count];
+				int[] edgeTo = new int[count];
+				double[] edgeCost = new double[count];
+				int[] edgeRoad = new int[count];
+				int[] edgeFirst = new int[count];
+				int[] edgeSecond = new int[count];
+				for (int e = 0; e < count; e++) {
+					edgeFrom[e] = in.readInt();
+					edgeTo[e] = in.readInt();
+					edgeCost[e] = in.readDouble();
+					edgeRoad[e] = in.readInt();
+					edgeFirst[e] = in.readInt();
+					edgeSecond[e] = in.readInt();
+				}
+				return (new ContractionHierarchy(graph, rank, count, edgeFrom, edgeTo, edgeCost,
+								 edgeRoad, edgeFirst, edgeSecond));
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to read hierarchy file %s: %s\n", filename, e.getMessage());
+			return (null);
+		}
+	}
+
+}
+
+
+class HierarchyBuilder {
+    static final int WITNESS_SETTLE_LIMIT = 500;
+    static final int ESTIMATE_SETTLE_LIMIT = 50;   // For priorities only ...
+
+    CompactGraph graph;
+    int locationCount;
+
+    // Edges: original road segments and shortcuts ...
+    int edgeCount = 0;
+    int[] edgeFrom = new int[16];
+    int[] edgeTo = new int[16];
+    double[] edgeCost = new double[16];
+    int[] edgeRoad = new int[16];
+    int[] edgeFirst = new int[16];
+    int[] edgeSecond = new int[16];
+
+    // Edges into and out of each location that remain uncontracted ...
+    int[][] outEdges;
+    int[] outCount;
+    int[][] inEdges;
+    int[] inCount;
+
+    int[] contractedNeighbors;
+
+    // Witness search state ...
+    double[] witnessCost;
+    int[] targetMark;          // Stamp of the last search for which each is a target ...
+    int targetStamp = 0;
+    int targetsLeft;
+    int[] touched;
+    int touchedCount = 0;
+    IndexedHeap witnessFrontier = new IndexedHeap();
+
+	// Constructor with graph specified ...
+	HierarchyBuilder(CompactGraph graph) {
+		this.graph = graph;
+		this.locationCount = graph.locationCount();
+		int n = locationCount;
+		outEdges = new int[n][];
+		outCount = new int[n];
+		inEdges = new int[n][];
+		inCount = new int[n];
+		contractedNeighbors = new int[n];
+		witnessCost = new double[n];
+		targetMark = new int[n];
+		Arrays.fill(witnessCost, Double.POSITIVE_INFINITY);
+		touched = new int[16];
+		for (int loc = 0; loc < n; loc++) {
+			outEdges[loc] = new int[Math.max(2, graph.endRoad(loc) - graph.firstRoad(loc))];
+			inEdges[loc] = new int[2];
+		}
+		for (int loc = 0; loc < n; loc++) {
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+				if (graph.roadTarget(r) != loc)
+					addEdge(loc, graph.roadTarget(r), graph.roadCost(r), r, -1, -1);
+			}
+		}
+	}
+
+	// build -- Contract every location, in order of priority, and return
+	// the resulting hierarchy.
+	ContractionHierarchy build() {
+		int n = locationCount;
+		int[] rank = new int[n];
+		IndexedHeap queue = new IndexedHeap();
+		for (int loc = 0; loc < n; loc++)
+			queue.insert(loc, priority(loc));
+		int[] neighbors = new int[16];
+		int order = 0;
+		while (!queue.isEmpty()) {
+			int loc = queue.removeTop();
+			// Priorities change as neighbors are contracted, so recheck ...
+			double p = priority(loc);
+			if (!queue.isEmpty() && (p > queue.peekKey())) {
+				queue.insert(loc, p);
+				continue;
+			}
+			int neighborCount = 0;
+			for (int i = 0; i < inCount[loc] + outCount[loc]; i++) {
+				int e = (i < inCount[loc]) ? inEdges[loc][i] : outEdges[loc][i - inCount[loc]];
+				int other = (i < inCount[loc]) ? edgeFrom[e] : edgeTo[e];
+				if (neighborCount == neighbors.length)
+					neighbors = Arrays.copyOf(neighbors, 2 * neighborCount);
+				neighbors[neighborCount++] = other;
+			}
+			contract(loc, false);
+			rank[loc] = order++;
+			for (int i = 0; i < neighborCount; i++) {
+				if (queue.contains(neighbors[i]))
+					queue.changeKey(neighbors[i], priority(neighbors[i]));
+			}
+		}
+		return (new ContractionHierarchy(graph, rank, edgeCount,
+						 Arrays.copyOf(edgeFrom, edgeCount), Arrays.copyOf(edgeTo, edgeCount),
+						 Arrays.copyOf(edgeCost, edgeCount), Arrays.copyOf(edgeRoad, edgeCount),
+						 Arrays.copyOf(edgeFirst, edgeCount), Arrays.copyOf(edgeSecond, edgeCount)));
+	}
+
+	// priority -- Return the contraction priority of the given location:
+	// the number of shortcuts that contracting it would add, less the
+	// number of edges that it would remove, plus the number of its
+	// neighbors that have already been contracted.
+	double priority(int loc) {
+		int shortcuts = contract(loc, true);
+		return (shortcuts - (inCount[loc] + outCount[loc]) + contractedNeighbors[loc]);
+	}
+
+	// contract -- Add the shortcuts needed to remove the given location
+	// from the remaining map, and return the number of them. If "dryRun"
+	// is true, only count the shortcuts, leaving the map unchanged.
+	int contract(int loc, boolean dryRun) {
+		int shortcuts = 0;
+		for (int i = 0; i < inCount[loc]; i++) {
+			int in = inEdges[loc][i];
+			int source = edgeFrom[in];
+			double maxCost = -1.0;
+			targetStamp++;
+			targetsLeft = 0;
+			for (int j = 0; j < outCount[loc]; j++) {
+				int out = outEdges[loc][j];
+				int target = edgeTo[out];
+				if (target == source)
+					continue;
+				maxCost = Math.max(maxCost, edgeCost[in] + edgeCost[out]);
+				if (targetMark[target] != targetStamp) {
+					targetMark[target] = targetStamp;
+					targetsLeft++;
+				}
+			}
+			if (maxCost < 0.0)
+				continue;
+			witnessSearch(source, loc, maxCost, dryRun ? ESTIMATE_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+			for (int j = 0; j < outCount[loc]; j++) {
+				int out = outEdges[loc][j];
+				int target = edgeTo[out];
+				if (target == source)
+					continue;
+				double cost = edgeCost[in] + edgeCost[out];
+				if (witnessCost[target] <= cost)
+					continue;
+				shortcuts++;
+				if (!dryRun) {
+					addEdge(source, target, cost, -1, in, out);
+					// Later witness searches may use the new shortcut ...
+					touch(target, cost);
+				}
+			}
+		}
+		if (!dryRun) {
+			for (int i = 0; i < inCount[loc]; i++) {
+				int e = inEdges[loc][i];
+				removeEdge(outEdges, outCount, edgeFrom[e], e);
+				contractedNeighbors[edgeFrom[e]]++;
+			}
+			for (int i = 0; i < outCount[loc]; i++) {
+				int e = outEdges[loc][i];
+				removeEdge(inEdges, inCount, edgeTo[e], e);
+				contractedNeighbors[edgeTo[e]]++;
+			}
+			inCount[loc] = 0;
+			outCount[loc] = 0;
+		}
+		return (shortcuts);
+	}
+
+	// witnessSearch -- Find the costs of the cheapest paths from the given
+	// source location that avoid the given excluded location, by uniform-
+	// cost search over the remaining map, stopping at the given cost or
+	// after the given number of locations have been settled, or once every
+	// marked target location has been settled. Costs are left
+	// in "witnessCost", with an infinite cost for locations not reached.
+	// Estimating priorities uses a smaller settle limit than contraction,
+	// which can only make the estimated number of shortcuts too high.
+	void witnessSearch(int source, int excluded, double maxCost, int settleLimit) {
+		for (int i = 0; i < touchedCount; i++)
+			witnessCost[touched[i]] = Double.POSITIVE_INFINITY;
+		touchedCount = 0;
+		witnessFrontier.clear();
+		touch(source, 0.0);
+		witnessFrontier.insert(source, 0.0);
+		int settled = 0;
+		while (!witnessFrontier.isEmpty() && (settled < settleLimit)) {
+			double cost = witnessFrontier.peekKey();
+			if (cost > maxCost)
+				break;
+			int loc = witnessFrontier.removeTop();
+			settled++;
+			if ((targetMark[loc] == targetStamp) && (--targetsLeft == 0))
+				break;
+			for (int i = 0; i < outCount[loc]; i++) {
+				int e = outEdges[loc][i];
+				int target = edgeTo[e];
+				if (target == excluded)
+					continue;
+				double targetCost = cost + edgeCost[e];
+				if (targetCost < witnessCost[target]) {
+					touch(target, targetCost);
+					witnessFrontier.insert(target, targetCost);
+				}
+			}
+		}
+	}
+
+	// touch -- Record a new witness cost for the given location.
+	void touch(int loc, double cost) {
+		if (witnessCost[loc] == Double.POSITIVE_INFINITY) {
+			if (touchedCount == touched.length)
+				touched = Arrays.copyOf(touched, 2 * touchedCount);
+			touched[touchedCount++] = loc;
+		}
+		witnessCost[loc] = cost;
+	}
+
+	// addEdge -- Record a new edge, returning its index.
+	int addEdge(int from, int to, double cost, int road, int first, int second) {
+		if (edgeCount == edgeFrom.length) {
+			int capacity = 2 * edgeCount;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeCost = Arrays.copyOf(edgeCost, capacity);
+			edgeRoad = Arrays.copyOf(edgeRoad, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+		}
+		edgeFrom[edgeCount] = from;
+		edgeTo[edgeCount] = to;
+		edgeCost[edgeCount] = cost;
+		edgeRoad[edgeCount] = road;
+		edgeFirst[edgeCount] = first;
+		edgeSecond[edgeCount] = second;
+		appendEdge(outEdges, outCount, from, edgeCount);
+		appendEdge(inEdges, inCount, to, edgeCount);
+		return (edgeCount++);
+	}
+
+	// appendEdge -- Add the given edge to the given location's list.
+	static void appendEdge(int[][] lists, int[] counts, int loc, int e) {
+		if (counts[loc] == lists[loc].length)
+			lists[loc] = Arrays.copyOf(lists[loc], 2 * counts[loc]);
+		lists[loc][counts[loc]++] = e;
+	}
+
+	// removeEdge -- Remove the given edge from the given location's list.
+	static void removeEdge(int[][] lists, int[] counts, int loc, int e) {
+		int[] list = lists[loc];
+		for (int i = 0; i < counts[loc]; i++) {
+			if (list[i] == e) {
+				list[i] = list[--counts[loc]];
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,290 @@
+//
+// ContractionSearch
+//
+// This class answers shortest-path queries using a ContractionHierarchy.
+// A forward uniform-cost search from the initial location follows only
+// edges that lead to locations of higher rank, and a backward uniform-cost
+// search from the destination location follows only edges that lead, in
+// reverse, to locations of higher rank. Every location reached by both
+// searches is a candidate "meeting" location, and the cheapest path
+// through a meeting location is the cheapest path overall. Each search
+// stops once the top of its frontier costs at least as much as the best
+// path found so far, and the query ends when both have stopped.
+//
+// The path found in the hierarchy may include shortcuts, and each of
+// these is unpacked, with an explicit stack rather than by recursion, into
+// the original road segments that it stands for. The returned solution is
+// therefore an ordinary chain of Node objects built from real Road
+// objects, which can be reported with "reportSolution" as usual.
+//
+// The hierarchy is never modified, so a single hierarchy can be shared by
+// many ContractionSearch objects, each of which keeps the per-location
+// state for its own queries and reuses it from one query to the next.
+// A SearchMetrics object given with "setMetrics" is told of the
+// expansions, generated children, and frontier sizes of both searches
+// together.
+//
+
+
+import java.util.*;
+
+
+public class ContractionSearch {
+    ContractionHierarchy hierarchy;
+    String initialLoc;
+    String destinationLoc;
+    int limit;
+    public int nodeExpansionCount;
+    SearchMetrics metrics = null;
+
+    // Per-location state, for the forward and backward searches ...
+    double[] forwardCost;
+    double[] backwardCost;
+    int[] forwardEdge;        // Hierarchy edge leading into each location ...
+    int[] backwardEdge;       // Hierarchy edge leading out of each location ...
+    int[] touched = new int[64];
+    int touchedCount = 0;
+
+    IndexedHeap forwardFrontier = new IndexedHeap();
+    IndexedHeap backwardFrontier = new IndexedHeap();
+    int[] stack = new int[64];
+
+	// Constructor with hierarchy, locations, and expansion limit specified ...
+	public ContractionSearch(ContractionHierarchy hierarchy, String initialLoc,
+				 String destinationLoc, int limit) {
+		this.hierarchy = hierarchy;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+
+	// setLocations -- Set the initial and destination locations for the
+	// next query, so that this object can be reused.
+	public void setLocations(String initialLoc, String destinationLoc) {
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+	}
+
+	// setMetrics -- Record measurements of each query in the given
+	// SearchMetrics object, or, if it is null, record none.
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// search -- Search for a shortest path from the initial location to
+	// the destination location. Return the final node of the solution
+	// path, or null if no solution was found within the expansion limit.
+	public Node search() {
+		SearchPath path = searchPath();
+		if (path == null)
+			return (null);
+		return (path.toNode());
+	}
+
+	// searchPath -- Search as "search" does, but return the solution as a
+	// SearchPath, without building any Node objects, or null if no
+	// solution was found.
+	public SearchPath searchPath() {
+		CompactGraph graph = hierarchy.graph;
+		nodeExpansionCount = 0;
+		int source = graph.findLocation(initialLoc);
+		int destination = graph.findLocation(destinationLoc);
+		if ((source < 0) || (destination < 0))
+			return (null);
+		int meeting = search(source, destination);
+		if (meeting < 0)
+			return (null);
+		return (solutionPath(source, destination, meeting));
+	}
+
+	// search -- Search for a shortest path between the locations with the
+	// given indices. Return the index of the meeting location of the best
+	// path, or -1 if no solution was found within the expansion limit.
+	int search(int source, int destination) {
+		if (metrics == null)
+			return (climb(source, destination));
+		metrics.begin();
+		int meeting = climb(source, destination);
+		metrics.end();
+		return (meeting);
+	}
+
+	// climb -- Perform the search for "search".
+	int climb(int source, int destination) {
+		nodeExpansionCount = 0;
+		reset();
+		touch(source);
+		forwardCost[source] = 0.0;
+		forwardFrontier.insert(source, 0.0);
+		touch(destination);
+		backwardCost[destination] = 0.0;
+		backwardFrontier.insert(destination, 0.0);
+		double bestCost = (source == destination) ? 0.0 : Double.POSITIVE_INFINITY;
+		int meeting = (source == destination) ? source : -1;
+
+		while (true) {
+			boolean forwardDone = forwardFrontier.isEmpty() || (forwardFrontier.peekKey() >= bestCost);
+			boolean backwardDone = backwardFrontier.isEmpty() || (backwardFrontier.peekKey() >= bestCost);
+			if (forwardDone && backwardDone)
+				break;
+			if (nodeExpansionCount >= limit)
+				return (-1);
+			nodeExpansionCount++;
+			boolean forward = backwardDone
+				|| (!forwardDone && (forwardFrontier.peekKey() <= backwardFrontier.peekKey()));
+			if (forward) {
+				double cost = forwardFrontier.peekKey();
+				int loc = forwardFrontier.removeTop();
+				if (metrics != null) {
+					metrics.expanded(loc, cost);
+					metrics.generated(hierarchy.upFirst[loc + 1] - hierarchy.upFirst[loc]);
+				}
+				for (int i = hierarchy.upFirst[loc]; i < hierarchy.upFirst[loc + 1]; i++) {
+					int target = hierarchy.upTargets[i];
+					double targetCost = cost + hierarchy.upCosts[i];
+					if (targetCost < forwardCost[target]) {
+						if ((metrics != null) && (forwardCost[target] < Double.POSITIVE_INFINITY))
+							metrics.reopened();
+						touch(target);
+						forwardCost[target] = targetCost;
+						forwardEdge[target] = hierarchy.upEdges[i];
+						forwardFrontier.insert(target, targetCost);
+						if (metrics != null)
+							metrics.frontierSize(forwardFrontier.size() + backwardFrontier.size());
+						if (targetCost + backwardCost[target] < bestCost) {
+							bestCost = targetCost + backwardCost[target];
+							meeting = target;
+						}
+					}
+				}
+			} else {
+				double cost = backwardFrontier.peekKey();
+				int loc = backwardFrontier.removeTop();
+				if (metrics != null) {
+					metrics.expanded(loc, cost);
+					metrics.generated(hierarchy.downFirst[loc + 1] - hierarchy.downFirst[loc]);
+				}
+				for (int i = hierarchy.downFirst[loc]; i < hierarchy.downFirst[loc + 1]; i++) {
+					int other = hierarchy.downSources[i];
+					double otherCost = cost + hierarchy.downCosts[i];
+					if (otherCost < backwardCost[other]) {
+						if ((metrics != null) && (backwardCost[other] < Double.POSITIVE_INFINITY))
+							metrics.reopened();
+						touch(other);
+						backwardCost[other] = otherCost;
+						backwardEdge[other] = hierarchy.downEdges[i];
+						backwardFrontier.insert(other, otherCost);
+						if (metrics != null)
+							metrics.frontierSize(forwardFrontier.size() + backwardFrontier.size());
+						if (otherCost + forwardCost[other] < bestCost) {
+							bestCost = otherCost + forwardCost[other];
+							meeting = other;
+						}
+					}
+				}
+			}
+		}
+		return (meeting);
+	}
+
+	// pathCost -- Return the cost of the path found by the most recent
+	// query through the given meeting location.
+	double pathCost(int meeting) {
+		return (forwardCost[meeting] + backwardCost[meeting]);
+	}
+
+	// touch -- Remember to reset the state of the given location before
+	// the next query.
+	void touch(int loc) {
+		if ((forwardCost[loc] == Double.POSITIVE_INFINITY)
+		    && (backwardCost[loc] == Double.POSITIVE_INFINITY)) {
+			if (touchedCount == touched.length)
+				touched = Arrays.copyOf(touched, 2 * touchedCount);
+			touched[touchedCount++] = loc;
+		}
+	}
+
+	// reset -- Prepare the per-location state for a new query. Only the
+	// locations reached by the previous query need to be cleared.
+	void reset() {
+		int n = hierarchy.graph.locationCount();
+		if ((forwardCost == null) || (forwardCost.length < n)) {
+			forwardCost = new double[n];
+			backwardCost = new double[n];
+			forwardEdge = new int[n];
+			backwardEdge = new int[n];
+			Arrays.fill(forwardCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(backwardCost, Double.POSITIVE_INFINITY);
+		} else {
+			for (int i = 0; i < touchedCount; i++) {
+				forwardCost[touched[i]] = Double.POSITIVE_INFINITY;
+				backwardCost[touched[i]] = Double.POSITIVE_INFINITY;
+			}
+		}
+		touchedCount = 0;
+		forwardFrontier.clear();
+		backwardFrontier.clear();
+	}
+
+	// solutionPath -- Return the best path, which climbs from the initial
+	// location to the meeting location along forward search edges and then
+	// descends to the destination location along backward search edges,
+	// with every shortcut unpacked.
+	SearchPath solutionPath(int source, int destination, int meeting) {
+		// Hierarchy edges along the path, in order ...
+		int edgeCount = 0;
+		for (int loc = meeting; loc != source; loc = hierarchy.edgeFrom[forwardEdge[loc]])
+			edgeCount++;
+		int forwardCount = edgeCount;
+		for (int loc = meeting; loc != destination; loc = hierarchy.edgeTo[backwardEdge[loc]])
+			edgeCount++;
+		int[] edges = new int[edgeCount];
+		int i = forwardCount;
+		for (int loc = meeting; loc != source; loc = hierarchy.edgeFrom[forwardEdge[loc]])
+			edges[--i] = forwardEdge[loc];
+		i = forwardCount;
+		for (int loc = meeting; loc != destination; loc = hierarchy.edgeTo[backwardEdge[loc]])
+			edges[i++] = backwardEdge[loc];
+
+		// Road segments along the path ...
+		int roadCount = 0;
+		for (int e : edges)
+			roadCount += unpack(e, null, 0);
+		int[] roads = new int[roadCount];
+		int position = 0;
+		for (int e : edges)
+			position += unpack(e, roads, position);
+		int[] locs = new int[roadCount + 1];
+		locs[0] = source;
+		CompactGraph graph = hierarchy.graph;
+		for (int r = 0; r < roadCount; r++)
+			locs[r + 1] = graph.roadTarget(roads[r]);
+		return (new SearchPath(graph, locs, roads, roadCount + 1));
+	}
+
+	// unpack -- Store the road segments that the given edge stands for, in
+	// order, in the given array starting at the given position, and return
+	// the number of them. If the array is null, only count them. The edge
+	// is unpacked with an explicit stack, so that long chains of shortcuts
+	// cannot overflow the call stack.
+	int unpack(int edge, int[] roads, int position) {
+		int count = 0;
+		int top = 0;
+		stack[top++] = edge;
+		while (top > 0) {
+			int e = stack[--top];
+			if (hierarchy.edgeRoad[e] >= 0) {
+				if (roads != null)
+					roads[position + count] = hierarchy.edgeRoad[e];
+				count++;
+			} else {
+				if (top + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				stack[top++] = hierarchy.edgeSecond[e];
+				stack[top++] = hierarchy.edgeFirst[e];
+			}
+		}
+		return (count);
+	}
+
+}
@@ -0,0 +1,438 @@
+//
+// DStarLiteSearch
+//
+// This class implements incremental shortest-path search over a StreetMap
+// whose road segment costs change while it is in use, using the D* Lite
+// algorithm of Koenig and Likhachev (which is Lifelong Planning A* run
+// backward from the destination, so the initial location may also move).
+// The first search finds a shortest path much as A* search would, but the
+// search keeps, for every location, its best known cost to the destination
+// ("g") and a one-step lookahead of that cost ("rhs"), computed from the
+// costs of its successors. When road segment costs are changed with the
+// map's "setRoadCost" method, the search is told of each change (it is a
+// RoadCostListener), and the next call to "search" recomputes "rhs" only
+// for the locations at the start of the changed road segments, and then
+// repairs the costs of just those locations whose costs are affected,
+// rather than starting over. Locations are taken from the frontier in
+// order of the two-part key
+//
+//    [ min(g, rhs) + h(initial, s) + km ; min(g, rhs) ]
+//
+// where "km" grows by the heuristic distance moved each time the initial
+// location changes, so keys already on the frontier remain lower bounds.
+//
+// The heuristic is the straight line distance multiplied by the smallest
+// ratio of cost to distance of any road segment on the map, so it never
+// overestimates and is consistent whatever the road segment costs are.
+// If a change lowers some road segment's cost below that ratio, or the map
+// is changed in any other way (such as by recording new locations or road
+// segments), the search starts over on its next call. It also starts over
+// when the destination changes.
+//
+// After each call to "search", "nodeExpansionCount" holds the number of
+// locations expanded by that call, "nodesTouched" holds the number of
+// different locations whose costs were examined or changed by that call,
+// and "roadsChanged" holds the number of road segment cost changes that it
+// took into account. The search fails if the expansion count reaches the
+// given limit, but the work done is kept, so a later call continues from
+// where it left off. A SearchMetrics object given with "setMetrics" is told
+// of the expansions (with the first part of each key), the predecessors
+// generated, the frontier sizes, the heuristic evaluations, and the
+// locations whose costs were raised (as reopenings). Only the solution
+// path is built out of Node objects, so it can be reported with
+// "reportSolution" as usual. A search should be closed, with "close", when
+// it is no longer needed, so that the map stops telling it of changes.
+//
+
+
+import java.util.*;
+
+
+public class DStarLiteSearch implements RoadCostListener {
+    StreetMap map;
+    String initialLoc;
+    String destinationLoc;
+    int limit;
+    public int nodeExpansionCount = 0;
+    public int nodesTouched = 0;
+    public int roadsChanged = 0;
+    SearchMetrics metrics = null;
+
+    // Per-location state ...
+    double[] g = new double[0];        // Best known cost to the destination ...
+    double[] rhs = new double[0];      // One-step lookahead of that cost ...
+    double[] xs = new double[0];       // Longitude of each location ...
+    double[] ys = new double[0];       // Latitude of each location ...
+    int[] firstIn = new int[1];        // Start of each location's incoming roads ...
+    Road[] inRoads = new Road[0];      // Road segments, grouped by destination ...
+    int[] touchStamp = new int[0];     // Call in which each location was last touched ...
+    int touchEpoch = 0;
+    int size = 0;
+    DStarLiteQueue queue = new DStarLiteQueue();
+
+    // Search state kept from one call to the next ...
+    double km = 0.0;
+    double costPerDistance = 0.0;
+    int start = -1;
+    int lastStart = -1;
+    int goal = -1;
+    int mapVersion = 0;
+    boolean needsReset = true;
+
+    // Changes reported since the last call, guarded by "changedRoads" ...
+    List<Road> changedRoads = new ArrayList<Road>();
+
+	// Constructor with map, locations, and limit specified ...
+	public DStarLiteSearch(StreetMap map, String initialLoc, String destinationLoc, int limit) {
+		this.map = map;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+		map.addRoadCostListener(this);
+	}
+
+	// setLocations -- Change the initial and destination locations used
+	// by later searches. Moving the initial location keeps the work done
+	// so far, but changing the destination starts the search over.
+	public synchronized void setLocations(String initialLoc, String destinationLoc) {
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+	}
+
+	// setMetrics -- Record measurements of each search in the given
+	// SearchMetrics object, or in none if it is null.
+	public synchronized void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// close -- Stop being told of changes to the map's road segment costs.
+	public void close() {
+		map.removeRoadCostListener(this);
+	}
+
+	// roadCostChanged -- Remember that the cost of the given road segment
+	// has changed, so the next search can take it into account.
+	public void roadCostChanged(Road road, double oldCost) {
+		synchronized (changedRoads) {
+			changedRoads.add(road);
+		}
+	}
+
+	// search -- Find a shortest path from the initial location to the
+	// destination, given the current road segment costs, reusing the work
+	// of earlier calls. Return the destination node of the solution path,
+	// or null if there is no path or the expansion limit was reached.
+	public synchronized Node search() {
+		if (metrics == null)
+			return (replan());
+		metrics.begin();
+		Node solution = replan();
+		metrics.end();
+		return (solution);
+	}
+
+	// replan -- Bring the search state up to date with the map and the
+	// locations, and return the solution, as described for "search".
+	Node replan() {
+		nodeExpansionCount = 0;
+		nodesTouched = 0;
+		roadsChanged = 0;
+		touchEpoch++;
+		Location startLocation = map.findLocation(initialLoc);
+		Location goalLocation = map.findLocation(destinationLoc);
+		if ((startLocation == null) || (goalLocation == null))
+			return (null);
+		start = startLocation.index;
+		List<Road> changes;
+		synchronized (changedRoads) {
+			changes = new ArrayList<Road>(changedRoads);
+			changedRoads.clear();
+			if ((map.getVersion() != mapVersion) || (goalLocation.index != goal)
+			    || (map.locations.size() != size))
+				needsReset = true;
+		}
+		roadsChanged = changes.size();
+		// A cost lower than the heuristic allows makes it inconsistent ...
+		for (int i = 0; (i < changes.size()) && !needsReset; i++) {
+			Road r = changes.get(i);
+			double d = distance(r.fromLocation.index, r.toLocation.index);
+			if ((d > 0.0) && (r.cost < costPerDistance * d))
+				needsReset = true;
+		}
+		if (needsReset) {
+			reset(goalLocation.index);
+		} else {
+			if (start != lastStart) {
+				km += h(lastStart, start);
+				lastStart = start;
+			}
+			// Recompute the lookahead at the start of each changed road ...
+			int changeEpoch = touchEpoch;
+			for (Road r : changes) {
+				int u = r.fromLocation.index;
+				if ((u == goal) || (touchStamp[u] == changeEpoch))
+					continue;
+				touch(u);
+				rhs[u] = lookahead(u);
+				updateVertex(u);
+			}
+		}
+		if (!computeShortestPath())
+			return (null);
+		return (path());
+	}
+
+	// reset -- Forget all earlier work, and start a new search toward the
+	// location with the given index.
+	void reset(int goalIndex) {
+		synchronized (changedRoads) {
+			changedRoads.clear();
+			mapVersion = map.getVersion();
+		}
+		needsReset = false;
+		size = map.locations.size();
+		if (g.length < size) {
+			g = new double[size];
+			rhs = new double[size];
+			xs = new double[size];
+			ys = new double[size];
+			touchStamp = new int[size];
+		}
+		Arrays.fill(g, 0, size, Double.POSITIVE_INFINITY);
+		Arrays.fill(rhs, 0, size, Double.POSITIVE_INFINITY);
+		// Group the road segments by destination, to find predecessors,
+		// and find the smallest ratio of cost to distance ...
+		firstIn = new int[size + 1];
+		int roadCount = 0;
+		for (Location loc : map.locations) {
+			xs[loc.index] = loc.longitude;
+			ys[loc.index] = loc.latitude;
+		}
+		for (Location loc : map.locations) {
+			for (Road r : loc.roads) {
+				firstIn[r.toLocation.index + 1]++;
+				roadCount++;
+			}
+		}
+		for (int i = 0; i < size; i++)
+			firstIn[i + 1] += firstIn[i];
+		inRoads = new Road[roadCount];
+		int[] next = Arrays.copyOf(firstIn, size);
+		costPerDistance = Double.POSITIVE_INFINITY;
+		for (Location loc : map.locations) {
+			for (Road r : loc.roads) {
+				inRoads[next[r.toLocation.index]++] = r;
+				double d = distance(r.fromLocation.index, r.toLocation.index);
+				if (d > 0.0)
+					costPerDistance = Math.min(costPerDistance, r.cost / d);
+			}
+		}
+		if (Double.isInfinite(costPerDistance))
+			costPerDistance = 0.0;
+		queue.clear();
+		km = 0.0;
+		goal = goalIndex;
+		lastStart = start;
+		touch(goal);
+		rhs[goal] = 0.0;
+		queue.insert(goal, h(start, goal), 0.0);
+	}
+
+	// computeShortestPath -- Expand locations until the initial location's
+	// cost is known. Return false if the expansion limit was reached first.
+	boolean computeShortestPath() {
+		while (!queue.isEmpty()
+		       && (keyLess(queue.peekKey(), queue.peekSecondKey(), firstKey(start), secondKey(start))
+			   || (rhs[start] != g[start]))) {
+			if (nodeExpansionCount >= limit)
+				return (false);
+			int u = queue.peek();
+			double oldFirst = queue.peekKey();
+			double oldSecond = queue.peekSecondKey();
+			double newFirst = firstKey(u);
+			double newSecond = secondKey(u);
+			if (keyLess(oldFirst, oldSecond, newFirst, newSecond)) {
+				// The key is out of date, since the initial location moved ...
+				queue.insert(u, newFirst, newSecond);
+				continue;
+			}
+			nodeExpansionCount++;
+			int inDegree = firstIn[u + 1] - firstIn[u];
+			if (metrics != null) {
+				metrics.expanded(u, oldFirst);
+				metrics.generated(inDegree);
+			}
+			if (g[u] > rhs[u]) {
+				// Overconsistent, so its cost is now known ...
+				g[u] = rhs[u];
+				queue.remove(u);
+				for (int i = firstIn[u]; i < firstIn[u + 1]; i++) {
+					Road r = inRoads[i];
+					int p = r.fromLocation.index;
+					if ((p != goal) && (r.cost + g[u] < rhs[p])) {
+						touch(p);
+						rhs[p] = r.cost + g[u];
+						updateVertex(p);
+					}
+				}
+			} else {
+				// Underconsistent, so its cost was raised, and those that
+				// depended upon it must be recomputed ...
+				double oldG = g[u];
+				g[u] = Double.POSITIVE_INFINITY;
+				if (metrics != null)
+					metrics.reopened();
+				for (int i = firstIn[u]; i < firstIn[u + 1]; i++) {
+					Road r = inRoads[i];
+					int p = r.fromLocation.index;
+					if ((p != goal) && (rhs[p] == r.cost + oldG)) {
+						touch(p);
+						rhs[p] = lookahead(p);
+					}
+					updateVertex(p);
+				}
+				if (u != goal)
+					rhs[u] = lookahead(u);
+				updateVertex(u);
+			}
+		}
+		return (true);
+	}
+
+	// path -- Return the destination node of a shortest path from the
+	// initial location, found by following, from each location, the road
+	// segment that leads most cheaply to the destination, or null if the
+	// destination cannot be reached.
+	Node path() {
+		if (Double.isInfinite(g[start]) && (start != goal))
+			return (null);
+		Node node = new Node(map.locations.get(start));
+		int s = start;
+		// A consistent state never needs more steps than there are locations ...
+		for (int steps = 0; (s != goal) && (steps < size); steps++) {
+			Road best = null;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (Road r : map.locations.get(s).roads) {
+				double cost = r.cost + g[r.toLocation.index];
+				if (cost < bestCost) {
+					best = r;
+					bestCost = cost;
+				}
+			}
+			if (best == null)
+				return (null);
+			node = node.child(best);
+			s = best.toLocation.index;
+		}
+		return ((s == goal) ? node : null);
+	}
+
+	// lookahead -- Return the smallest cost of reaching the destination
+	// from the location with the given index, through any of its road
+	// segments, given the current costs of its successors.
+	double lookahead(int s) {
+		double best = Double.POSITIVE_INFINITY;
+		for (Road r : map.locations.get(s).roads)
+			best = Math.min(best, r.cost + g[r.toLocation.index]);
+		return (best);
+	}
+
+	// updateVertex -- Place the location with the given index on the
+	// frontier, with an up to date key, if its costs differ, or remove it
+	// from the frontier if they agree.
+	void updateVertex(int s) {
+		if (g[s] != rhs[s]) {
+			queue.insert(s, firstKey(s), secondKey(s));
+			if (metrics != null)
+				metrics.frontierSize(queue.size());
+		} else {
+			queue.remove(s);
+		}
+	}
+
+	// firstKey -- Return the first part of the key of the location with
+	// the given index.
+	double firstKey(int s) {
+		return (Math.min(g[s], rhs[s]) + h(start, s) + km);
+	}
+
+	// secondKey -- Return the second part of the key of the location with
+	// the given index.
+	double secondKey(int s) {
+		return (Math.min(g[s], rhs[s]));
+	}
+
+	// keyLess -- Return true if and only if the first key is lower than the
+	// second, comparing their first parts and then their second parts.
+	static boolean keyLess(double first1, double second1, double first2, double second2) {
+		return ((first1 < first2) || ((first1 == first2) && (second1 < second2)));
+	}
+
+	// touch -- Count the location with the given index among those touched
+	// by this call, if it has not been counted already.
+	void touch(int s) {
+		if (touchStamp[s] != touchEpoch) {
+			touchStamp[s] = touchEpoch;
+			nodesTouched++;
+		}
+	}
+
+	// h -- Return the heuristic estimate of the cost of the cheapest path
+	// between the locations with the given indices.
+	double h(int a, int b) {
+		if (metrics != null)
+			metrics.heuristicEvaluated();
+		return (costPerDistance * distance(a, b));
+	}
+
+	// distance -- Return the straight line distance between the locations
+	// with the given indices.
+	double distance(int a, int b) {
+		double x = xs[a] - xs[b];
+		double y = ys[a] - ys[b];
+		return (Math.sqrt(x * x + y * y));
+	}
+
+}
+
+
+class DStarLiteQueue extends IndexedHeap {
+    double[] secondKey = new double[16];   // Second part of each key ...
+
+	// insert -- Add the given identifier to the queue with the given two-
+	// part key, or change its key if it is already present.
+	public void insert(int id, double first, double second) {
+		remove(id);
+		ensureCapacity(id + 1);
+		secondKey[id] = second;
+		insert(id, first);
+	}
+
+	// peekSecondKey -- Return the second part of the smallest key in the
+	// queue, or positive infinity if the queue is empty.
+	public double peekSecondKey() {
+		if (size == 0)
+			return (Double.POSITIVE_INFINITY);
+		return (secondKey[heap[0]]);
+	}
+
+	// ensureCapacity -- Grow the internal arrays, if needed, so that
+	// identifiers less than the given value may be stored.
+	public void ensureCapacity(int capacity) {
+		super.ensureCapacity(capacity);
+		if (secondKey.length < position.length)
+			secondKey = Arrays.copyOf(secondKey, position.length);
+	}
+
+	// less -- Return true if and only if the first identifier should be
+	// removed before the second, comparing the first parts of their keys,
+	// then the second parts, then the identifiers.
+	boolean less(int id1, int id2) {
+		if (key[id1] != key[id2])
+			return (key[id1] < key[id2]);
+		if (secondKey[id1] != secondKey[id2])
+			return (secondKey[id1] < secondKey[id2]);
+		return (id1 < id2);
+	}
+
+}
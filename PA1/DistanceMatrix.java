@@ -0,0 +1,430 @@
+//
+// DistanceMatrix
+//
+// This class computes the costs of the cheapest paths from each of a list
+// of origin locations to each of a list of destination locations, all at
+// once, returning them as a matrix with one row per origin and one column
+// per destination. Where no path exists, the entry is positive infinity.
+//
+// Without a contraction hierarchy, each row is found by a single uniform-
+// cost search (Dijkstra's algorithm) from the origin, which stops as soon
+// as every destination has been visited, rather than by one search per
+// entry. With a hierarchy, supplied by "setHierarchy", the "bucket"
+// algorithm is used instead. First, from each destination, the backward
+// search of a ContractionSearch query is run to completion, and every
+// location that it reaches is given a "bucket" entry recording the
+// destination and the cost of reaching it. Then, from each origin, the
+// forward search is run to completion, and, for each location that it
+// reaches, the entries in that location's bucket give candidate path
+// costs to their destinations through it. Both kinds of search stay
+// within a tiny part of the map, so this is much faster for large
+// matrices.
+//
+// The searches from different origins (and, with a hierarchy, from
+// different destinations) are run in parallel on a fixed pool of worker
+// threads. Each thread keeps its own per-location state, which it reuses
+// from one search to the next, and each row of the matrix is written by
+// only one thread. The graph and the hierarchy are never modified.
+//
+// The "main" method provides a simple batch driver. It reads a map and a
+// file listing location names, one per line, computes the matrix of path
+// costs between every pair of them, and reports it.
+//
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class DistanceMatrix {
+    CompactGraph graph;
+    ContractionHierarchy hierarchy = null;
+    ExecutorService pool;
+    ThreadLocal<DistanceMatrixWorker> workers;
+
+	// Constructor with graph and number of threads specified ...
+	public DistanceMatrix(CompactGraph graph, int threadCount) {
+		this.graph = graph;
+		this.pool = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread worker = new Thread(task, "distance-matrix");
+					worker.setDaemon(true);
+					return (worker);
+				}
+			});
+		this.workers = new ThreadLocal<DistanceMatrixWorker>() {
+				protected DistanceMatrixWorker initialValue() {
+					return (new DistanceMatrixWorker(DistanceMatrix.this));
+				}
+			};
+	}
+
+	// Constructor with street map and number of threads specified ...
+	public DistanceMatrix(StreetMap map, int threadCount) {
+		this(new CompactGraph(map), threadCount);
+	}
+
+	// setHierarchy -- Use the given contraction hierarchy, which must have
+	// been built for this graph, to compute matrices with the bucket
+	// algorithm. A null hierarchy restores one search per origin.
+	public void setHierarchy(ContractionHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+	}
+
+	// compute -- Return the matrix of path costs from the locations with
+	// the given origin names to the locations with the given destination
+	// names. Return null if any name is not on the map, or if the
+	// computation fails.
+	public double[][] compute(List<String> origins, List<String> destinations) {
+		int[] from = findLocations(origins);
+		if (from == null)
+			return (null);
+		int[] to = (destinations == origins) ? from : findLocations(destinations);
+		if (to == null)
+			return (null);
+		return (compute(from, to));
+	}
+
+	// compute -- Return the matrix of path costs from the locations with
+	// the given origin indices to the locations with the given destination
+	// indices. Return null if the computation fails.
+	public double[][] compute(final int[] origins, final int[] destinations) {
+		final double[][] matrix = new double[origins.length][];
+		if (hierarchy == null) {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(origins.length);
+			for (int i = 0; i < origins.length; i++) {
+				final int row = i;
+				tasks.add(new Callable<Void>() {
+						public Void call() {
+							matrix[row] = workers.get().row(origins[row], destinations);
+							return (null);
+						}
+					});
+			}
+			if (!runAll(tasks))
+				return (null);
+			return (matrix);
+		}
+
+		// Fill the buckets, from a backward search from each destination ...
+		final DistanceMatrixBuckets[] found = new DistanceMatrixBuckets[destinations.length];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int j = 0; j < destinations.length; j++) {
+			final int column = j;
+			tasks.add(new Callable<Void>() {
+					public Void call() {
+						found[column] = workers.get().upward(destinations[column], false);
+						return (null);
+					}
+				});
+		}
+		if (!runAll(tasks))
+			return (null);
+		final DistanceMatrixBuckets buckets = DistanceMatrixBuckets.merge(graph.locationCount(), found);
+
+		// Scan the buckets, from a forward search from each origin ...
+		tasks.clear();
+		for (int i = 0; i < origins.length; i++) {
+			final int row = i;
+			tasks.add(new Callable<Void>() {
+					public Void call() {
+						matrix[row] = workers.get().scan(origins[row], buckets, destinations.length);
+						return (null);
+					}
+				});
+		}
+		if (!runAll(tasks))
+			return (null);
+		return (matrix);
+	}
+
+	// row -- Return the path costs from the location with the given origin
+	// index to the locations with the given destination indices, computed
+	// on the calling thread by a single uniform-cost search.
+	public double[] row(int origin, int[] destinations) {
+		return (workers.get().row(origin, destinations));
+	}
+
+	// shutdown -- Stop the worker threads once any matrices that are being
+	// computed are finished.
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// findLocations -- Return the indices of the locations with the given
+	// names, or null, after reporting the problem, if any is not found.
+	int[] findLocations(List<String> names) {
+		int[] locs = new int[names.size()];
+		for (int i = 0; i < locs.length; i++) {
+			locs[i] = graph.findLocation(names.get(i));
+			if (locs[i] < 0) {
+				System.err.printf("Unknown location \"%s\".\n", names.get(i));
+				return (null);
+			}
+		}
+		return (locs);
+	}
+
+	// runAll -- Run the given tasks on the worker threads, and wait for all
+	// of them to finish. Return false if any of them failed.
+	boolean runAll(List<Callable<Void>> tasks) {
+		try {
+			for (Future<Void> done : pool.invokeAll(tasks))
+				done.get();
+			return (true);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return (false);
+		} catch (ExecutionException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to compute distance matrix: %s\n", e.getCause());
+			return (false);
+		}
+	}
+
+	// readLocationNames -- Read a list of location names, one per line,
+	// from the file with the given pathname. Return null on error.
+	public static List<String> readLocationNames(String filename) {
+		List<String> names = new ArrayList<String>();
+		MapFileReader in;
+		try {
+			in = new MapFileReader(filename);
+		} catch (IOException e) {
+			System.err.printf("Unable to open location list %s: %s\n", filename, e.getMessage());
+			return (null);
+		}
+		try {
+			while (in.nextLine())
+				names.add(in.nextToken());
+			return (names);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to read location list %s: %s\n", filename, e.getMessage());
+			return (null);
+		} finally {
+			in.close();
+		}
+	}
+
+	// main -- Read a map and a list of locations, named on the command
+	// line along with an optional number of threads and an optional "ch"
+	// to use a contraction hierarchy, compute the matrix of path costs
+	// between every pair of the listed locations, and report it, one row
+	// per line, followed by a summary.
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: java DistanceMatrix <locations> <roads> <location list> [threads] [ch]");
+			return;
+		}
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		if (args.length > 3)
+			threadCount = Integer.parseInt(args[3]);
+		boolean useHierarchy = (args.length > 4) && args[4].equals("ch");
+		CompactGraph graph = CompactGraph.read(args[0], args[1]);
+		if (graph == null) {
+			System.err.println("Error:  Unable to read map.");
+			return;
+		}
+		List<String> names = readLocationNames(args[2]);
+		if (names == null)
+			return;
+		DistanceMatrix distances = new DistanceMatrix(graph, threadCount);
+		if (useHierarchy)
+			distances.setHierarchy(ContractionHierarchy.build(graph));
+		long start = System.nanoTime();
+		double[][] matrix = distances.compute(names, names);
+		long elapsed = System.nanoTime() - start;
+		distances.shutdown();
+		if (matrix == null)
+			return;
+		for (int i = 0; i < matrix.length; i++) {
+			StringBuilder line = new StringBuilder(names.get(i));
+			for (double cost : matrix[i])
+				line.append(String.format(" %f", cost));
+			System.out.println(line);
+		}
+		System.out.printf("Computed a %d by %d matrix on %d threads%s in %.3f ms.\n",
+				  matrix.length, matrix.length, threadCount,
+				  useHierarchy ? " with a contraction hierarchy" : "", elapsed / 1.0e6);
+	}
+
+}
+
+
+class DistanceMatrixBuckets {
+    int[] first;       // Start of the entries of each location ...
+    int[] column;      // Destination column of each entry ...
+    double[] cost;     // Cost from the location to the destination ...
+    int count;         // Number of entries, or of locations reached ...
+    int[] locs;        // Locations reached by a single search ...
+
+	// Constructor with the locations reached by a single search, and their
+	// costs, specified ...
+	DistanceMatrixBuckets(int[] locs, double[] cost, int count) {
+		this.locs = locs;
+		this.cost = cost;
+		this.count = count;
+	}
+
+	// Constructor with merged bucket arrays specified ...
+	DistanceMatrixBuckets(int[] first, int[] column, double[] cost) {
+		this.first = first;
+		this.column = column;
+		this.cost = cost;
+		this.count = column.length;
+	}
+
+	// merge -- Combine the locations reached by the backward search from
+	// each destination into one bucket for each location.
+	static DistanceMatrixBuckets merge(int locationCount, DistanceMatrixBuckets[] found) {
+		int[] first = new int[locationCount + 1];
+		int total = 0;
+		for (DistanceMatrixBuckets search : found) {
+			for (int k = 0; k < search.count; k++)
+				first[search.locs[k] + 1]++;
+			total += search.count;
+		}
+		for (int loc = 0; loc < locationCount; loc++)
+			first[loc + 1] += first[loc];
+		int[] next = Arrays.copyOf(first, locationCount);
+		int[] column = new int[total];
+		double[] cost = new double[total];
+		for (int j = 0; j < found.length; j++) {
+			DistanceMatrixBuckets search = found[j];
+			for (int k = 0; k < search.count; k++) {
+				int position = next[search.locs[k]]++;
+				column[position] = j;
+				cost[position] = search.cost[k];
+			}
+		}
+		return (new DistanceMatrixBuckets(first, column, cost));
+	}
+
+}
+
+
+class DistanceMatrixWorker {
+    DistanceMatrix matrix;
+    double[] cost;
+    int[] touched = new int[64];
+    int touchedCount = 0;
+    int[] targetStamp;
+    int epoch = 0;
+    IndexedHeap frontier = new IndexedHeap();
+
+	// Constructor with matrix specified ...
+	public DistanceMatrixWorker(DistanceMatrix matrix) {
+		this.matrix = matrix;
+		int n = matrix.graph.locationCount();
+		cost = new double[n];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		targetStamp = new int[n];
+	}
+
+	// row -- Run a uniform-cost search from the given origin until every
+	// one of the given destinations has been visited, and return the costs
+	// of reaching them.
+	double[] row(int origin, int[] destinations) {
+		CompactGraph graph = matrix.graph;
+		reset();
+		// Mark each distinct destination, so the search knows when to stop ...
+		int remaining = 0;
+		for (int dst : destinations) {
+			if (targetStamp[dst] != epoch) {
+				targetStamp[dst] = epoch;
+				remaining++;
+			}
+		}
+		reach(origin, 0.0);
+		while (!frontier.isEmpty() && (remaining > 0)) {
+			double g = frontier.peekKey();
+			int loc = frontier.removeTop();
+			if (targetStamp[loc] == epoch) {
+				targetStamp[loc] = 0;
+				remaining--;
+			}
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++)
+				reach(graph.roadTarget(r), g + graph.roadCost(r));
+		}
+		double[] costs = new double[destinations.length];
+		for (int j = 0; j < destinations.length; j++)
+			costs[j] = cost[destinations[j]];
+		return (costs);
+	}
+
+	// upward -- Run the forward (or, if "forward" is false, the backward)
+	// search of a contraction hierarchy query from the given location to
+	// completion, and return every location reached along with its cost.
+	DistanceMatrixBuckets upward(int start, boolean forward) {
+		ContractionHierarchy hierarchy = matrix.hierarchy;
+		int[] first = forward ? hierarchy.upFirst : hierarchy.downFirst;
+		int[] others = forward ? hierarchy.upTargets : hierarchy.downSources;
+		double[] costs = forward ? hierarchy.upCosts : hierarchy.downCosts;
+		reset();
+		reach(start, 0.0);
+		while (!frontier.isEmpty()) {
+			double g = frontier.peekKey();
+			int loc = frontier.removeTop();
+			for (int i = first[loc]; i < first[loc + 1]; i++)
+				reach(others[i], g + costs[i]);
+		}
+		int[] locs = Arrays.copyOf(touched, touchedCount);
+		double[] reachedCosts = new double[touchedCount];
+		for (int k = 0; k < touchedCount; k++)
+			reachedCosts[k] = cost[locs[k]];
+		return (new DistanceMatrixBuckets(locs, reachedCosts, touchedCount));
+	}
+
+	// scan -- Run the forward search of a contraction hierarchy query from
+	// the given origin to completion, and return the cheapest costs to
+	// the destinations recorded in the buckets of the locations reached.
+	double[] scan(int origin, DistanceMatrixBuckets buckets, int columns) {
+		ContractionHierarchy hierarchy = matrix.hierarchy;
+		double[] costs = new double[columns];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		reset();
+		reach(origin, 0.0);
+		while (!frontier.isEmpty()) {
+			double g = frontier.peekKey();
+			int loc = frontier.removeTop();
+			for (int k = buckets.first[loc]; k < buckets.first[loc + 1]; k++) {
+				int j = buckets.column[k];
+				costs[j] = Math.min(costs[j], g + buckets.cost[k]);
+			}
+			for (int i = hierarchy.upFirst[loc]; i < hierarchy.upFirst[loc + 1]; i++)
+				reach(hierarchy.upTargets[i], g + hierarchy.upCosts[i]);
+		}
+		return (costs);
+	}
+
+	// reach -- Record the given cost for the given location, and place it
+	// on the frontier, if it is cheaper than any recorded before.
+	void reach(int loc, double g) {
+		if (g >= cost[loc])
+			return;
+		if (cost[loc] == Double.POSITIVE_INFINITY) {
+			if (touchedCount == touched.length)
+				touched = Arrays.copyOf(touched, 2 * touchedCount);
+			touched[touchedCount++] = loc;
+		}
+		cost[loc] = g;
+		frontier.decreaseKey(loc, g);
+	}
+
+	// reset -- Prepare the per-location state for a new search. Only the
+	// locations reached by the previous search need to be cleared.
+	void reset() {
+		for (int k = 0; k < touchedCount; k++)
+			cost[touched[k]] = Double.POSITIVE_INFINITY;
+		touchedCount = 0;
+		frontier.clear();
+		epoch++;
+		if (epoch == Integer.MAX_VALUE) {
+			// The counter has wrapped, so the stamps must really be cleared ...
+			Arrays.fill(targetStamp, 0);
+			epoch = 1;
+		}
+	}
+
+}
@@ -64,5 +64,13 @@ public class GoodHeuristic extends Heuristic {
 	
 		return estimatedTravelCostToDest;
 	}
+	
+	// heuristicValue -- Return the straight line distance between the two locations
+	// multiplied by the smallest travel cost to distance ratio of any road on the
+	// compact graph. No road is faster than that ratio, so the estimate never
+	// overestimates and it is consistent.
+	public double heuristicValue(CompactGraph graph, int from, int to) {
+		return graph.distance(from, to) * graph.costPerDistance();
+	}
 
 }
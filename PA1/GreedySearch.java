@@ -4,9 +4,15 @@ import java.util.*;
 
 public class GreedySearch {
 	private StreetMap graph;
+	private CompactGraph compactGraph;
 	private String initialLoc;
 	private String destinationLoc;
 	private int limit;
+	private boolean useHeapFrontier = true;
+	private SearchWorkspace workspace;
+	private CompactSearch compactSearch;
+	private SearchMetrics metrics;
+	private Heuristic heuristic;
 	public int nodeExpansionCount;
 
 	public GreedySearch(StreetMap graph, String initialLoc, String destinationLoc, int limit) {
@@ -16,60 +22,131 @@ public class GreedySearch {
 		this.limit = limit;
 	}
 	
+	// search over a compact graph rather than a StreetMap
+	public GreedySearch(CompactGraph compactGraph, String initialLoc, String destinationLoc, int limit) {
+		this.compactGraph = compactGraph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+	
+	// choose between the binary heap frontier (default) and the TreeSet based SortedFrontier
+	public void setHeapFrontier(boolean useHeapFrontier) {
+		this.useHeapFrontier = useHeapFrontier;
+	}
+	
+	// use the given workspace instead of the one belonging to the current thread
+	public void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+	
+	// use the given heuristic (such as a LandmarkHeuristic) instead of GoodHeuristic
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+		compactSearch = null;
+	}
+	
+	// record measurements of each search in the given metrics object, or none if it is null
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
 	public Node search(boolean repeatedStateChecking) {
-		Heuristic goodHeuristic = new GoodHeuristic(graph.findLocation(destinationLoc));
+		if (compactGraph != null) {
+			// keep the compact search so its arrays are reused by later searches
+			if (compactSearch == null) {
+				compactSearch = new CompactSearch(compactGraph, SortBy.h,
+						heuristic != null ? heuristic : new GoodHeuristic());
+			}
+			compactSearch.setWorkspace(workspace);
+			compactSearch.setMetrics(metrics);
+			Node solution = compactSearch.search(initialLoc, destinationLoc, limit, repeatedStateChecking);
+			nodeExpansionCount = compactSearch.nodeExpansionCount;
+			return solution;
+		}
+		
+		if (metrics == null) {
+			return searchMap(repeatedStateChecking);
+		}
+		metrics.begin();
+		Node solution = searchMap(repeatedStateChecking);
+		metrics.end();
+		return solution;
+	}
+	
+	// search the StreetMap itself, reporting to the metrics object, if any, as it goes
+	private Node searchMap(boolean repeatedStateChecking) {
 		nodeExpansionCount = 0;
-		Node source = null;
 		
-		// find source location to initialize source node
-		for (Location loc : graph.locations) {
-			if (loc.equals(graph.findLocation(initialLoc))) {
-				source = new Node(graph.findLocation(initialLoc));
-				break;
-			}
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
 		}
+		Heuristic goodHeuristic = heuristic != null ? heuristic : new GoodHeuristic();
+		goodHeuristic.setDestination(destination);
+		Node source = new Node(sourceLoc);
+		
+		// start a new search in the workspace, which clears its visited and key records
+		SearchWorkspace ws = workspace != null ? workspace : SearchWorkspace.forCurrentThread();
+		ws.begin(graph.locations.size());
 		
-		// initialize queue
-		SortedFrontier queue = new SortedFrontier(SortBy.h);
+		// initialize queue, keyed by location when checking repeated states
+		SortedFrontier queue;
+		if (useHeapFrontier) {
+			queue = ws.frontier(SortBy.h, repeatedStateChecking);
+		} else {
+			queue = new SortedFrontier(SortBy.h);
+		}
 		queue.addSorted(source);
+		ws.offer(sourceLoc.index, 0.0);
 		
 		// initialize currentNode to source/initial location
 		Node currentNode = source;
 		
-		// initialize set of visited nodes
-		Set<Location> visited = new HashSet<Location>();
-		
 		// expand out node graph, searching for destination
 		while (!queue.isEmpty() && nodeExpansionCount < limit) {
 			// get and remove top node
 			currentNode = queue.removeTop();
 
 			// mark node as visited
-			visited.add(currentNode.loc);
+			ws.visit(currentNode.loc.index);
 
 			// return destination node
-			if (currentNode.loc.equals(graph.findLocation(destinationLoc))) {
+			if (currentNode.loc.index == destination.index) {
 				return currentNode;
 			}
 
-			// expand node
-			currentNode.expand(goodHeuristic);
+			// expand node, generating children one at a time without keeping a list of them
 			nodeExpansionCount++;
+			if (metrics != null) {
+				metrics.expanded(currentNode.loc.index, currentNode.heuristicValue);
+				metrics.generated(currentNode.loc.roads.size());
+			}
 			
 			// add children nodes to queue
-			for (Node child : currentNode.children) {
+			for (Node child : currentNode.successors(goodHeuristic)) {
 				if(repeatedStateChecking) {
-					// add if location has not been visited and not in queue
-					if (!visited.contains(child.loc) && !queue.contains(child.loc)) {
-						queue.addSorted(child);
-					} 
-					// if not visited but in queue, add if heuristic value is lower or equal
-					else if (!visited.contains(child.loc) && child.heuristicValue <= queue.find(child).heuristicValue) {
-						queue.addSorted(child);
+					// add if location has not been visited, and either not in queue or
+					// its heuristic value is lower or equal to the queued one
+					if (!ws.isVisited(child.loc.index)) {
+						boolean reached = metrics != null && ws.isReached(child.loc.index);
+						if (ws.offer(child.loc.index, child.heuristicValue)) {
+							if (reached) {
+								metrics.reopened();
+							}
+							queue.addSorted(child);
+						}
 					}
 				} else { // add no matter what with no repeatedStateChecking
 					queue.addSorted(child);
 				}
+				if (metrics != null) {
+					// each child's heuristic value was computed as it was generated
+					metrics.heuristicEvaluated();
+					metrics.frontierSize(queue.size());
+				}
 			}
 		}
 		return null;
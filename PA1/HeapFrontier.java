@@ -0,0 +1,236 @@
+//
+// HeapFrontier
+//
+// This class implements a priority queue of Node objects with the same
+// interface as SortedFrontier, but backed by an IndexedHeap of primitive
+// keys rather than by a TreeSet. As with SortedFrontier, the contents can
+// be ordered by partial path cost, by heuristic value, or by the sum of
+// these two statistics, and the node with the lowest value is the first
+// to be removed. Ordering nodes only involves comparing the stored keys,
+// so no comparator needs to walk the "parent" chains of tied nodes.
+//
+// A HeapFrontier can be used in one of two modes. In "keyed" mode, which
+// is appropriate for search with repeated state checking, the frontier
+// holds at most one node per location. Adding a node for a location that
+// is already in the frontier replaces the existing node only if the new
+// node has a strictly lower key (a "decrease-key" operation), and
+// otherwise leaves the frontier unchanged. Nodes are keyed by the index
+// that StreetMap assigns to each recorded location, so finding the node
+// for a given Location involves no hashing of names. (Locations that were
+// never recorded in a map are keyed by name instead.) In unkeyed mode,
+// which is appropriate for search without repeated state checking, every
+// added node is kept, even if several nodes share a location. In that
+// mode, and whenever a node is looked up by name rather than by Location
+// object, the "contains" and "find" methods must scan the frontier.
+//
+
+
+import java.util.*;
+
+
+public class HeapFrontier extends SortedFrontier {
+    boolean keyed;
+    IndexedHeap heap;
+    Node[] nodes;                      // Node stored under each identifier ...
+    Map<String, Integer> locationIds;  // Identifiers of unindexed locations ...
+    int[] freeIds;                     // Recycled identifiers for unkeyed mode ...
+    int freeCount = 0;
+    int nextId = 0;
+
+	// Default constructor ...
+	public HeapFrontier() {
+		this(SortBy.g, true);
+	}
+
+	// Constructor with sorting strategy specified ...
+	public HeapFrontier(SortBy strategy) {
+		this(strategy, true);
+	}
+
+	// Constructor with sorting strategy and mode specified ...
+	public HeapFrontier(SortBy strategy, boolean keyed) {
+		super(strategy, false);
+		this.keyed = keyed;
+		this.heap = new IndexedHeap();
+		this.nodes = new Node[16];
+		this.locationIds = new HashMap<String, Integer>();
+		this.freeIds = new int[16];
+	}
+
+	// isEmpty -- Return true if and only if there are currently no nodes in
+	// the frontier.
+	public boolean isEmpty() {
+		return (heap.isEmpty());
+	}
+
+	// size -- Return the number of nodes currently in the frontier.
+	public int size() {
+		return (heap.size());
+	}
+
+	// removeTop -- Return the Node object at the top of the frontier
+	// list. Also, remove this node from the frontier. Return null if the
+	// frontier is empty.
+	public Node removeTop() {
+		int id = heap.removeTop();
+		if (id < 0)
+			return (null);
+		Node top = nodes[id];
+		release(id);
+		return (top);
+	}
+
+	// addSorted -- Add the given Node object to the frontier in the
+	// appropriate position, given its sorting statistics. In keyed mode,
+	// a node for a location already in the frontier only replaces the
+	// existing node if its key is strictly lower.
+	public void addSorted(Node thisNode) {
+		double k = keyOf(thisNode);
+		if (keyed) {
+			int id = locationId(thisNode.loc);
+			if (heap.contains(id)) {
+				if (k < heap.getKey(id)) {
+					nodes[id] = thisNode;
+					heap.decreaseKey(id, k);
+				}
+			} else {
+				store(id, thisNode);
+				heap.insert(id, k);
+			}
+		} else {
+			int id = allocate();
+			store(id, thisNode);
+			heap.insert(id, k);
+		}
+	}
+
+	// remove -- Remove a specified Node object from the frontier.
+	public void remove(Node thisNode) {
+		int id = idOf(thisNode);
+		if (id >= 0) {
+			heap.remove(id);
+			release(id);
+		}
+	}
+
+	// contains -- Return true if and only if the frontier contains a
+	// Node with the given Location name.
+	public boolean contains(String name) {
+		return (find(name) != null);
+	}
+
+	// contains -- Return true if and only if the frontier contains a
+	// Node with the given Location object as its state.
+	public boolean contains(Location loc) {
+		return (find(loc) != null);
+	}
+
+	// find -- Return a Node in the frontier with the given location
+	// name, or null if there is no such Node. If there are several such
+	// nodes, the one with the lowest key is returned.
+	public Node find(String name) {
+		Node best = null;
+		for (int slot = 0; slot < heap.size; slot++) {
+			Node thisNode = nodes[heap.heap[slot]];
+			if (thisNode.loc.name.equals(name)) {
+				if ((best == null) || (keyOf(thisNode) < keyOf(best)))
+					best = thisNode;
+			}
+		}
+		return (best);
+	}
+
+	// find -- Return a Node in the frontier with the given Location object
+	// as its state, or null if there is no such Node. In keyed mode, this
+	// requires no search.
+	public Node find(Location loc) {
+		if (!keyed)
+			return (find(loc.name));
+		int id = locationId(loc);
+		if (heap.contains(id))
+			return (nodes[id]);
+		return (null);
+	}
+
+	// clear -- Remove every node from the frontier, so that it can be
+	// reused for another search. This takes time proportional to the
+	// number of nodes in the frontier, not to the size of its tables.
+	public void clear() {
+		for (int slot = 0; slot < heap.size; slot++)
+			nodes[heap.heap[slot]] = null;
+		heap.clear();
+		locationIds.clear();
+		freeCount = 0;
+		nextId = 0;
+	}
+
+	// keyOf -- Return the sorting statistic of the given node, according to
+	// the sorting strategy of this frontier.
+	double keyOf(Node thisNode) {
+		switch (sortingStrategy) {
+		case h:
+			return (thisNode.heuristicValue);
+		case f:
+			return (thisNode.partialPathCost + thisNode.heuristicValue);
+		default:
+			return (thisNode.partialPathCost);
+		}
+	}
+
+	// locationId -- Return the keyed-mode identifier of the given location.
+	// Indexed locations use even identifiers derived from their indices,
+	// and unindexed locations are given odd identifiers by name.
+	int locationId(Location loc) {
+		if (loc.index >= 0)
+			return (2 * loc.index);
+		Integer id = locationIds.get(loc.name);
+		if (id == null) {
+			id = 2 * locationIds.size() + 1;
+			locationIds.put(loc.name, id);
+		}
+		return (id);
+	}
+
+	// idOf -- Return the identifier under which the given node is stored,
+	// or -1 if the node is not in the frontier.
+	int idOf(Node thisNode) {
+		if (keyed) {
+			int id = locationId(thisNode.loc);
+			if (heap.contains(id) && (nodes[id] == thisNode))
+				return (id);
+			return (-1);
+		}
+		for (int slot = 0; slot < heap.size; slot++) {
+			if (nodes[heap.heap[slot]] == thisNode)
+				return (heap.heap[slot]);
+		}
+		return (-1);
+	}
+
+	// allocate -- Return an unused unkeyed-mode identifier, preferring
+	// recycled ones so that the node table stays as small as the frontier.
+	int allocate() {
+		if (freeCount > 0)
+			return (freeIds[--freeCount]);
+		return (nextId++);
+	}
+
+	// store -- Record the given node under the given identifier.
+	void store(int id, Node thisNode) {
+		if (id >= nodes.length)
+			nodes = Arrays.copyOf(nodes, Math.max(id + 1, 2 * nodes.length));
+		nodes[id] = thisNode;
+	}
+
+	// release -- Forget the node stored under the given identifier, which
+	// has just left the heap.
+	void release(int id) {
+		nodes[id] = null;
+		if (!keyed) {
+			if (freeCount == freeIds.length)
+				freeIds = Arrays.copyOf(freeIds, 2 * freeIds.length);
+			freeIds[freeCount++] = id;
+		}
+	}
+
+}
@@ -49,4 +49,14 @@ public class Heuristic {
 		return (0.0);
 	}
 
+	// heuristicValue -- Return an estimate of the cost of the cheapest
+	// path from the location with index "from" to the location with index
+	// "to" on the given CompactGraph. This version is used by searches
+	// that run directly over a CompactGraph, and it does not depend on the
+	// destination recorded in this object. For this skeletal class, a
+	// value of zero is returned for every pair of locations.
+	public double heuristicValue(CompactGraph graph, int from, int to) {
+		return (0.0);
+	}
+
 }
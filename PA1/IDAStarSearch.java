@@ -0,0 +1,159 @@
+package Assignment_1;
+
+import java.util.*;
+
+public class IDAStarSearch {
+	private StreetMap graph;
+	private String initialLoc;
+	private String destinationLoc;
+	private int limit;
+	private Heuristic heuristic;
+	private SearchMetrics metrics;
+	// path from the source to the current node, with the next road to try at each depth
+	private Node[] path = new Node[16];
+	private int[] nextRoad = new int[16];
+	// number of times each location appears on the current path
+	private int[] onPath = new int[0];
+	public int nodeExpansionCount;
+	// number of depth-first searches run, one for each f bound tried
+	public int iterationCount;
+
+	public IDAStarSearch(StreetMap graph, String initialLoc, String destinationLoc, int limit) {
+		this.graph = graph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+
+	// use the given heuristic (such as a LandmarkHeuristic) instead of GoodHeuristic
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	// record measurements of each search in the given metrics object, or none if it is null
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// repeat a depth-first search that skips nodes whose partial path cost + heuristic
+	// value is above a bound, raising the bound each time to the smallest value that
+	// was skipped, so only the current path is ever kept in memory; the current path
+	// is reported to the metrics object as the frontier
+	public Node search(boolean repeatedStateChecking) {
+		if (metrics == null) {
+			return deepen(repeatedStateChecking);
+		}
+		metrics.begin();
+		Node solution = deepen(repeatedStateChecking);
+		metrics.end();
+		return solution;
+	}
+
+	// the iterations themselves
+	private Node deepen(boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		iterationCount = 0;
+
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
+		}
+		Heuristic goodHeuristic = heuristic != null ? heuristic : new GoodHeuristic();
+		goodHeuristic.setDestination(destination);
+		if (onPath.length < graph.locations.size()) {
+			onPath = new int[graph.locations.size()];
+		}
+
+		// the source node has a heuristic value of zero, as in AStarSearch
+		double bound = 0.0;
+		while (nodeExpansionCount < limit) {
+			iterationCount++;
+			double nextBound = Double.POSITIVE_INFINITY;
+			int depth = 0;
+			push(0, new Node(sourceLoc));
+			Node solution = null;
+
+			while (depth >= 0) {
+				Node currentNode = path[depth];
+
+				// check the node the first time it is reached
+				if (nextRoad[depth] == 0) {
+					// return destination node
+					if (currentNode.loc.index == destination.index) {
+						solution = currentNode;
+						break;
+					}
+					// stop when the expansion budget runs out
+					if (nodeExpansionCount >= limit) {
+						break;
+					}
+					nodeExpansionCount++;
+					if (metrics != null) {
+						metrics.expanded(currentNode.loc.index, currentNode.partialPathCost + currentNode.heuristicValue);
+						metrics.generated(currentNode.loc.roads.size());
+					}
+				}
+
+				// go down the next road, or back up once all roads are tried
+				List<Road> roads = currentNode.loc.roads;
+				if (nextRoad[depth] < roads.size()) {
+					Road road = roads.get(nextRoad[depth]++);
+					// skip locations already on the current path, with repeated state checking
+					if (repeatedStateChecking && onPath[road.toLocation.index] > 0) {
+						continue;
+					}
+					Node child = currentNode.child(road, goodHeuristic);
+					double f = child.partialPathCost + child.heuristicValue;
+					if (metrics != null) {
+						metrics.heuristicEvaluated();
+					}
+					if (f > bound) {
+						// remember the smallest value above the bound for the next iteration
+						nextBound = Math.min(nextBound, f);
+					} else {
+						push(++depth, child);
+						if (metrics != null) {
+							metrics.frontierSize(depth + 1);
+						}
+					}
+				} else {
+					pop(depth--);
+				}
+			}
+
+			// clear what is left of the path so the arrays can be reused
+			while (depth >= 0) {
+				pop(depth--);
+			}
+			if (solution != null) {
+				return solution;
+			}
+			// nothing was skipped, so no larger bound would find a solution
+			if (Double.isInfinite(nextBound)) {
+				return null;
+			}
+			bound = nextBound;
+		}
+		return null;
+	}
+
+	// put a node on the path at the given depth
+	private void push(int depth, Node node) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2 * path.length);
+			nextRoad = Arrays.copyOf(nextRoad, 2 * nextRoad.length);
+		}
+		path[depth] = node;
+		nextRoad[depth] = 0;
+		onPath[node.loc.index]++;
+	}
+
+	// take the node at the given depth off the path
+	private void pop(int depth) {
+		onPath[path[depth].loc.index]--;
+		path[depth] = null;
+	}
+
+}
@@ -0,0 +1,233 @@
+//
+// IndexedHeap
+//
+// This class implements a binary min-heap of small integer identifiers,
+// each of which is associated with a double precision key. The heap is
+// "indexed" in the sense that it records the current heap position of
+// every identifier it contains, so membership tests, key lookups, and
+// key decreases for a given identifier take constant or logarithmic time
+// without searching. Ties between equal keys are broken in favor of the
+// smaller identifier, which keeps the ordering of removals deterministic.
+// Everything is stored in primitive arrays that grow on demand, so
+// inserting and removing identifiers does not allocate any objects. This
+// class is intended to serve as the core of priority-queue frontiers for
+// shortest-path search, where the identifiers are location indices or
+// search tree node indices.
+//
+
+
+import java.util.*;
+
+
+public class IndexedHeap {
+    int[] heap;        // Identifiers, in heap order ...
+    int[] position;    // Heap slot of each identifier, or -1 if absent ...
+    double[] key;      // Key of each identifier ...
+    int size = 0;
+
+	// Default constructor ...
+	public IndexedHeap() {
+		this(16);
+	}
+
+	// Constructor with initial identifier capacity specified ...
+	public IndexedHeap(int capacity) {
+		if (capacity < 1)
+			capacity = 1;
+		this.heap = new int[capacity];
+		this.position = new int[capacity];
+		this.key = new double[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	// isEmpty -- Return true if and only if the heap contains no
+	// identifiers.
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	// size -- Return the number of identifiers currently in the heap.
+	public int size() {
+		return (size);
+	}
+
+	// contains -- Return true if and only if the given identifier is
+	// currently in the heap.
+	public boolean contains(int id) {
+		return ((id < position.length) && (position[id] >= 0));
+	}
+
+	// getKey -- Return the key currently associated with the given
+	// identifier. The result is only meaningful if the identifier is
+	// in the heap.
+	public double getKey(int id) {
+		return (key[id]);
+	}
+
+	// peek -- Return the identifier with the smallest key, without
+	// removing it, or -1 if the heap is empty.
+	public int peek() {
+		if (size == 0)
+			return (-1);
+		return (heap[0]);
+	}
+
+	// peekKey -- Return the smallest key in the heap, or positive infinity
+	// if the heap is empty.
+	public double peekKey() {
+		if (size == 0)
+			return (Double.POSITIVE_INFINITY);
+		return (key[heap[0]]);
+	}
+
+	// insert -- Add the given identifier to the heap with the given key.
+	// If the identifier is already present, its key is simply changed to
+	// the given value.
+	public void insert(int id, double k) {
+		if (contains(id)) {
+			changeKey(id, k);
+			return;
+		}
+		ensureCapacity(id + 1);
+		key[id] = k;
+		heap[size] = id;
+		position[id] = size;
+		size++;
+		siftUp(size - 1);
+	}
+
+	// decreaseKey -- Lower the key of the given identifier to the given
+	// value, inserting the identifier if it is absent. Return true if the
+	// heap was changed and false if the identifier was already present with
+	// a key no larger than the given one.
+	public boolean decreaseKey(int id, double k) {
+		if (!contains(id)) {
+			insert(id, k);
+			return (true);
+		}
+		if (k < key[id]) {
+			key[id] = k;
+			siftUp(position[id]);
+			return (true);
+		}
+		return (false);
+	}
+
+	// changeKey -- Set the key of an identifier already in the heap to the
+	// given value, restoring heap order in whichever direction is needed.
+	public void changeKey(int id, double k) {
+		double old = key[id];
+		key[id] = k;
+		if (k < old) {
+			siftUp(position[id]);
+		} else {
+			siftDown(position[id]);
+		}
+	}
+
+	// removeTop -- Remove and return the identifier with the smallest key.
+	// Return -1 if the heap is empty.
+	public int removeTop() {
+		if (size == 0)
+			return (-1);
+		int top = heap[0];
+		removeAt(0);
+		return (top);
+	}
+
+	// remove -- Remove the given identifier from the heap, if present.
+	public void remove(int id) {
+		if (contains(id))
+			removeAt(position[id]);
+	}
+
+	// clear -- Remove all identifiers from the heap. This takes time
+	// proportional to the number of identifiers in the heap, not to the
+	// capacity of the heap.
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			position[heap[i]] = -1;
+		size = 0;
+	}
+
+	// ensureCapacity -- Grow the internal arrays, if needed, so that
+	// identifiers less than the given value may be stored.
+	public void ensureCapacity(int capacity) {
+		if (capacity <= position.length)
+			return;
+		int newCapacity = Math.max(capacity, 2 * position.length);
+		heap = Arrays.copyOf(heap, newCapacity);
+		key = Arrays.copyOf(key, newCapacity);
+		int oldCapacity = position.length;
+		position = Arrays.copyOf(position, newCapacity);
+		Arrays.fill(position, oldCapacity, newCapacity, -1);
+	}
+
+	// removeAt -- Remove the identifier at the given heap slot, moving the
+	// last identifier into its place and restoring heap order.
+	void removeAt(int slot) {
+		int id = heap[slot];
+		position[id] = -1;
+		size--;
+		if (slot < size) {
+			int last = heap[size];
+			heap[slot] = last;
+			position[last] = slot;
+			siftDown(slot);
+			siftUp(position[last]);
+		}
+	}
+
+	// less -- Return true if and only if the first identifier should be
+	// removed before the second.
+	boolean less(int id1, int id2) {
+		double k1 = key[id1];
+		double k2 = key[id2];
+		if (k1 < k2)
+			return (true);
+		if (k1 > k2)
+			return (false);
+		return (id1 < id2);
+	}
+
+	// siftUp -- Move the identifier at the given slot toward the root until
+	// its parent is no larger.
+	void siftUp(int slot) {
+		int id = heap[slot];
+		while (slot > 0) {
+			int parentSlot = (slot - 1) >>> 1;
+			int parentId = heap[parentSlot];
+			if (!less(id, parentId))
+				break;
+			heap[slot] = parentId;
+			position[parentId] = slot;
+			slot = parentSlot;
+		}
+		heap[slot] = id;
+		position[id] = slot;
+	}
+
+	// siftDown -- Move the identifier at the given slot toward the leaves
+	// until neither child is smaller.
+	void siftDown(int slot) {
+		int id = heap[slot];
+		int half = size >>> 1;
+		while (slot < half) {
+			int childSlot = 2 * slot + 1;
+			int childId = heap[childSlot];
+			int rightSlot = childSlot + 1;
+			if ((rightSlot < size) && less(heap[rightSlot], childId)) {
+				childSlot = rightSlot;
+				childId = heap[childSlot];
+			}
+			if (!less(childId, id))
+				break;
+			heap[slot] = childId;
+			position[childId] = slot;
+			slot = childSlot;
+		}
+		heap[slot] = id;
+		position[id] = slot;
+	}
+
+}
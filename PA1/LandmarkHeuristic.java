@@ -0,0 +1,313 @@
+//
+// LandmarkHeuristic
+//
+// This class extends the Heuristic class, providing a "landmark" heuristic
+// function (often called ALT, for A*, landmarks, and the triangle
+// inequality). A small number of locations on the map are chosen as
+// landmarks, and, ahead of time, the cost of the cheapest path from each
+// landmark to every location, and from every location to each landmark,
+// is computed by running uniform-cost search to completion from each
+// landmark, once over the road segments and once over the road segments
+// in reverse. For any landmark L, the triangle inequality then gives two
+// lower bounds on the cost of the cheapest path from a location v to the
+// destination t:
+//
+//    d(L, t) - d(L, v)    and    d(v, L) - d(t, L)
+//
+// and the heuristic value is the largest of these bounds over all of the
+// landmarks (or zero, if they are all negative). This heuristic never
+// overestimates and is consistent, and, unlike straight line distance, it
+// takes account of the actual road network, so it is usually much closer
+// to the true remaining path cost.
+//
+// Landmarks are chosen by "farthest" selection: each new landmark is the
+// location that is farthest, by round trip path cost, from the landmarks
+// chosen so far, which spreads them around the edges of the map. The
+// distance tables are kept in primitive arrays, with the distances for
+// each location stored together, so computing a heuristic value touches
+// only two short runs of memory. Since computing the tables takes two
+// complete searches per landmark, they can be saved to a file with "save"
+// and read back with "load", which checks that the file was computed for
+// a map with the same road segments and costs (by the checksum of the
+// graph, which is stored in the file).
+//
+// Locations are identified by the indices of a CompactGraph. A CompactGraph
+// built from a StreetMap uses the same indices as the map, so this
+// heuristic can also be used by searches over the StreetMap itself, in
+// which case the destination must be set with "setDestination".
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class LandmarkHeuristic extends Heuristic {
+    static final int MAGIC = 0x4C4D524B;   // "LMRK" ...
+    static final int VERSION = 2;
+
+    CompactGraph graph;
+    int landmarkCount;
+    int[] landmarks;
+    double[] fromLandmark;   // d(L, v), at index v * landmarkCount + L ...
+    double[] toLandmark;     // d(v, L), at index v * landmarkCount + L ...
+
+	// Constructor with graph and precomputed tables specified ...
+	LandmarkHeuristic(CompactGraph graph, int[] landmarks, double[] fromLandmark,
+			  double[] toLandmark) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.landmarkCount = landmarks.length;
+		this.fromLandmark = fromLandmark;
+		this.toLandmark = toLandmark;
+	}
+
+	// Constructor with graph and number of landmarks specified, which
+	// chooses the landmarks and computes the distance tables ...
+	public LandmarkHeuristic(CompactGraph graph, int count) {
+		this.graph = graph;
+		int n = graph.locationCount();
+		int width = Math.max(0, Math.min(count, n));
+		this.landmarkCount = width;
+		this.landmarks = new int[width];
+		this.fromLandmark = new double[n * width];
+		this.toLandmark = new double[n * width];
+		graph.prepareReverseRoads();
+		double[] from = new double[n];
+		double[] to = new double[n];
+		double[] nearest = new double[n];   // Round trip cost to nearest landmark ...
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		IndexedHeap frontier = new IndexedHeap();
+		int next = farthestFrom(0, from, frontier);
+		for (int i = 0; i < width; i++) {
+			landmarks[i] = next;
+			shortestPaths(next, false, from, frontier);
+			shortestPaths(next, true, to, frontier);
+			next = -1;
+			double farthest = -1.0;
+			for (int v = 0; v < n; v++) {
+				fromLandmark[v * width + i] = from[v];
+				toLandmark[v * width + i] = to[v];
+				double roundTrip = from[v] + to[v];
+				if (roundTrip < nearest[v])
+					nearest[v] = roundTrip;
+				// Landmarks themselves, at zero cost, are never picked again ...
+				if ((nearest[v] > 0.0) && (nearest[v] > farthest)
+				    && (nearest[v] < Double.POSITIVE_INFINITY)) {
+					farthest = nearest[v];
+					next = v;
+				}
+			}
+			if (next < 0) {
+				// Every reachable location is a landmark already ...
+				landmarkCount = i + 1;
+				landmarks = Arrays.copyOf(landmarks, landmarkCount);
+				fromLandmark = copyColumns(fromLandmark, n, width, landmarkCount);
+				toLandmark = copyColumns(toLandmark, n, width, landmarkCount);
+				break;
+			}
+		}
+	}
+
+	// Constructor with street map and number of landmarks specified ...
+	public LandmarkHeuristic(StreetMap map, int count) {
+		this(new CompactGraph(map), count);
+	}
+
+	// getLandmarkCount -- Return the number of landmarks in use.
+	public int getLandmarkCount() {
+		return (landmarkCount);
+	}
+
+	// getLandmark -- Return the name of the landmark with the given index.
+	public String getLandmark(int i) {
+		return (graph.locationName(landmarks[i]));
+	}
+
+	// heuristicValue -- Return the landmark lower bound on the cost of the
+	// cheapest path from the location of the given search tree node to the
+	// destination. Note that the given Node should not be modified within
+	// the body of this function.
+	public double heuristicValue(Node thisNode) {
+		int from = indexOf(thisNode.loc);
+		int to = indexOf(destination);
+		if ((from < 0) || (to < 0))
+			return (0.0);
+		return (bound(from, to));
+	}
+
+	// heuristicValue -- Return the landmark lower bound on the cost of the
+	// cheapest path from the location with index "from" to the location
+	// with index "to". The given graph must be the one for which the
+	// distance tables were computed.
+	public double heuristicValue(CompactGraph graph, int from, int to) {
+		return (bound(from, to));
+	}
+
+	// bound -- Return the largest of the triangle inequality bounds given by
+	// the landmarks. Bounds involving an unreachable landmark are skipped.
+	double bound(int from, int to) {
+		double best = 0.0;
+		int v = from * landmarkCount;
+		int t = to * landmarkCount;
+		for (int i = 0; i < landmarkCount; i++) {
+			double forward = fromLandmark[t + i] - fromLandmark[v + i];
+			if ((forward > best) && (forward < Double.POSITIVE_INFINITY))
+				best = forward;
+			double backward = toLandmark[v + i] - toLandmark[t + i];
+			if ((backward > best) && (backward < Double.POSITIVE_INFINITY))
+				best = backward;
+		}
+		return (best);
+	}
+
+	// indexOf -- Return the graph index of the given location, or -1 if the
+	// location is not on the graph. Locations recorded in the StreetMap from
+	// which the graph was built already carry the right index.
+	int indexOf(Location loc) {
+		if (loc == null)
+			return (-1);
+		if ((loc.index >= 0) && (loc.index < graph.locationCount()))
+			return (loc.index);
+		return (graph.findLocation(loc.name));
+	}
+
+	// save -- Write the landmarks and distance tables to the file with the
+	// given pathname. Return false on error, in which case no file is left
+	// behind.
+	public boolean save(String filename) {
+		File file = new File(filename);
+		boolean opened = false;
+		boolean written = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			opened = true;
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(graph.locationCount());
+				out.writeInt(graph.roadCount());
+				out.writeLong(graph.checksum());
+				out.writeInt(landmarkCount);
+				for (int i = 0; i < landmarkCount; i++)
+					out.writeInt(landmarks[i]);
+				for (int i = 0; i < fromLandmark.length; i++)
+					out.writeDouble(fromLandmark[i]);
+				for (int i = 0; i < toLandmark.length; i++)
+					out.writeDouble(toLandmark[i]);
+			} finally {
+				out.close();
+			}
+			written = true;
+			return (true);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to write landmark file %s: %s\n", filename, e.getMessage());
+			return (false);
+		} finally {
+			// Leave no partial landmark file behind ...
+			if (opened && !written)
+				file.delete();
+		}
+	}
+
+	// load -- Read landmarks and distance tables for the given graph from
+	// the file with the given pathname. Return null if the file cannot be
+	// read or was computed for a different map.
+	public static LandmarkHeuristic load(CompactGraph graph, String filename) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+			try {
+				if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) {
+					System.err.printf("%s is not a landmark file of version %d.\n", filename, VERSION);
+					return (null);
+				}
+				int n = in.readInt();
+				int m = in.readInt();
+				long checksum = in.readLong();
+				if ((n != graph.locationCount()) || (m != graph.roadCount())
+				    || (checksum != graph.checksum())) {
+					System.err.printf("%s was computed for a different map, or before its roads changed.\n",
+							  filename);
+					return (null);
+				}
+				int k = in.readInt();
+				int[] landmarks = new int[k];
+				for (int i = 0; i < k; i++)
+					landmarks[i] = in.readInt();
+				double[] fromLandmark = new double[n * k];
+				for (int i = 0; i < fromLandmark.length; i++)
+					fromLandmark[i] = in.readDouble();
+				double[] toLandmark = new double[n * k];
+				for (int i = 0; i < toLandmark.length; i++)
+					toLandmark[i] = in.readDouble();
+				return (new LandmarkHeuristic(graph, landmarks, fromLandmark, toLandmark));
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to read landmark file %s: %s\n", filename, e.getMessage());
+			return (null);
+		}
+	}
+
+	// farthestFrom -- Return the reachable location farthest, by path
+	// cost, from the given one. The given array is used as scratch space.
+	int farthestFrom(int start, double[] cost, IndexedHeap frontier) {
+		if (graph.locationCount() == 0)
+			return (-1);
+		shortestPaths(start, false, cost, frontier);
+		int farthest = start;
+		for (int v = 0; v < cost.length; v++) {
+			if ((cost[v] > cost[farthest]) && (cost[v] < Double.POSITIVE_INFINITY))
+				farthest = v;
+		}
+		return (farthest);
+	}
+
+	// shortestPaths -- Fill the given array with the cost of the cheapest
+	// path from the given location to every location (or, if "reverse" is
+	// true, from every location to the given location), by uniform-cost
+	// search without a depth limit. Unreachable locations get an infinite
+	// cost.
+	void shortestPaths(int start, boolean reverse, double[] cost, IndexedHeap frontier) {
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		frontier.clear();
+		cost[start] = 0.0;
+		frontier.insert(start, 0.0);
+		while (!frontier.isEmpty()) {
+			double c = frontier.peekKey();
+			int loc = frontier.removeTop();
+			if (reverse) {
+				for (int i = graph.firstReverseRoad(loc); i < graph.endReverseRoad(loc); i++) {
+					int other = graph.reverseSource(i);
+					double otherCost = c + graph.roadCost(graph.reverseRoad(i));
+					if (otherCost < cost[other]) {
+						cost[other] = otherCost;
+						frontier.insert(other, otherCost);
+					}
+				}
+			} else {
+				for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+					int other = graph.roadTarget(r);
+					double otherCost = c + graph.roadCost(r);
+					if (otherCost < cost[other]) {
+						cost[other] = otherCost;
+						frontier.insert(other, otherCost);
+					}
+				}
+			}
+		}
+	}
+
+	// copyColumns -- Return a copy of a table with "n" rows of "width"
+	// entries, keeping only the first "count" entries of each row.
+	static double[] copyColumns(double[] table, int n, int width, int count) {
+		double[] copy = new double[n * count];
+		for (int v = 0; v < n; v++)
+			System.arraycopy(table, v * width, copy, v * count, count);
+		return (copy);
+	}
+
+}
@@ -0,0 +1,232 @@
+//
+// LiveMap
+//
+// This class holds a street map that can be replaced, while queries keep
+// running over it, by a newer version read from updated location and road
+// files (or from a map snapshot file). Each version of the map is an
+// immutable CompactGraph, wrapped in a MapVersion object, so any number of
+// threads can search a version at once without locking. The current
+// version is kept in an AtomicReference. To run a query, a reader calls
+// "acquire", which returns the current version without taking any lock,
+// searches it for as long as it likes, and then calls "release" on the
+// version. A reader always sees one consistent version from start to
+// finish, even if a newer one is published in the meantime.
+//
+// New versions are built by a single loader thread, owned by this object,
+// and published with one atomic swap of the current version, so readers
+// never wait for a map to be read. (A version may also be published
+// directly, with "publish", by any thread.) Every version counts its
+// references: one for being current, plus one for each reader that has
+// acquired it and not yet released it. When a version has been replaced
+// and its last reader releases it, its count reaches zero, it is retired,
+// and "released" is called, which subclasses may override to free any
+// resources kept for it. A retired version can never be acquired again;
+// a reader that loses the race with a swap simply tries again with the
+// newer version, so acquiring never blocks.
+//
+// Before publishing a version, the loader builds its reverse adjacency
+// (see CompactGraph.prepareReverseRoads), so the version is complete and
+// never changes once readers can see it. The loader can also watch a pair
+// of location and road files, publishing a new version whenever either
+// file changes.
+//
+
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+public class LiveMap {
+    AtomicReference<MapVersion> current = new AtomicReference<MapVersion>();
+    AtomicInteger versionCount = new AtomicInteger(0);
+    AtomicLong releasedCount = new AtomicLong(0);
+    ScheduledExecutorService loader;
+
+	// Default constructor ...
+	public LiveMap() {
+		this.loader = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread worker = new Thread(task, "map-loader");
+					worker.setDaemon(true);
+					return (worker);
+				}
+			});
+	}
+
+	// Constructor with first version specified ...
+	public LiveMap(CompactGraph graph) {
+		this();
+		publish(graph);
+	}
+
+	// Constructor with street map specified, from which the first version
+	// is built ...
+	public LiveMap(StreetMap map) {
+		this(new CompactGraph(map));
+	}
+
+	// acquire -- Return the current version of the map, which the caller
+	// must release when it is done with it, or null if no version has been
+	// published yet. This never blocks.
+	public MapVersion acquire() {
+		while (true) {
+			MapVersion version = current.get();
+			if (version == null)
+				return (null);
+			if (version.retain())
+				return (version);
+			// Replaced and retired since it was read, so try the newer one ...
+		}
+	}
+
+	// publish -- Make a new version holding the given graph the current
+	// version, releasing the version it replaces. Return the number of the
+	// new version.
+	public int publish(CompactGraph graph) {
+		graph.prepareReverseRoads();
+		MapVersion version = new MapVersion(this, graph, versionCount.incrementAndGet());
+		MapVersion old = current.getAndSet(version);
+		if (old != null)
+			old.release();
+		return (version.number());
+	}
+
+	// reload -- Read a new version of the map from the location file and
+	// road file with the given pathnames, and publish it. This runs on the
+	// calling thread. Return false, leaving the current version in place,
+	// if the files cannot be read.
+	public boolean reload(String locationFilename, String roadFilename) {
+		CompactGraph graph = CompactGraph.read(locationFilename, roadFilename);
+		if (graph == null)
+			return (false);
+		publish(graph);
+		return (true);
+	}
+
+	// reloadSnapshot -- Load a new version of the map from the snapshot
+	// file with the given pathname, and publish it, as above.
+	public boolean reloadSnapshot(String filename) {
+		CompactGraph graph = MapSnapshot.load(filename);
+		if (graph == null)
+			return (false);
+		publish(graph);
+		return (true);
+	}
+
+	// reloadLater -- Have the loader thread reload the map from the given
+	// location and road files. The result tells whether the reload
+	// succeeded, once it is done.
+	public Future<Boolean> reloadLater(final String locationFilename, final String roadFilename) {
+		return (loader.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					return (reload(locationFilename, roadFilename));
+				}
+			}));
+	}
+
+	// watch -- Have the loader thread check the given location and road
+	// files every given number of milliseconds, and reload the map
+	// whenever either has been modified since the last check.
+	public void watch(final String locationFilename, final String roadFilename, long intervalMillis) {
+		final File locationFile = new File(locationFilename);
+		final File roadFile = new File(roadFilename);
+		final long[] lastModified = { locationFile.lastModified(), roadFile.lastModified() };
+		loader.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					long locationTime = locationFile.lastModified();
+					long roadTime = roadFile.lastModified();
+					if ((locationTime == lastModified[0]) && (roadTime == lastModified[1]))
+						return;
+					// Only remember the times once the files read well, so a
+					// half-written file is tried again at the next check ...
+					if (reload(locationFilename, roadFilename)) {
+						lastModified[0] = locationTime;
+						lastModified[1] = roadTime;
+					}
+				}
+			}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	// versionCount -- Return the number of versions published so far.
+	public int versionCount() {
+		return (versionCount.get());
+	}
+
+	// releasedCount -- Return the number of versions retired so far.
+	public long releasedCount() {
+		return (releasedCount.get());
+	}
+
+	// shutdown -- Stop the loader thread, and release the current version,
+	// so that it is retired once its last reader is done with it.
+	public void shutdown() {
+		loader.shutdownNow();
+		MapVersion old = current.getAndSet(null);
+		if (old != null)
+			old.release();
+	}
+
+	// released -- Called, on whichever thread released it last, when the
+	// given version has been replaced and is no longer used by any reader.
+	// The version's graph must not be used after this.
+	protected void released(MapVersion version) {
+	}
+
+	// retire -- Count the given version as retired, and report it.
+	void retire(MapVersion version) {
+		releasedCount.incrementAndGet();
+		released(version);
+	}
+
+}
+
+
+class MapVersion {
+    LiveMap owner;
+    CompactGraph graph;
+    int number;
+    AtomicInteger references = new AtomicInteger(1);   // One for being current ...
+
+	// Constructor with owner, graph, and version number specified ...
+	MapVersion(LiveMap owner, CompactGraph graph, int number) {
+		this.owner = owner;
+		this.graph = graph;
+		this.number = number;
+	}
+
+	// graph -- Return the graph of this version.
+	public CompactGraph graph() {
+		return (graph);
+	}
+
+	// number -- Return the number of this version, counting from one in the
+	// order of publication.
+	public int number() {
+		return (number);
+	}
+
+	// retain -- Add a reference to this version, unless it has already
+	// been retired. Return true if the reference was added.
+	boolean retain() {
+		while (true) {
+			int count = references.get();
+			if (count <= 0)
+				return (false);
+			if (references.compareAndSet(count, count + 1))
+				return (true);
+		}
+	}
+
+	// release -- Drop a reference to this version, retiring it if that was
+	// the last one.
+	public void release() {
+		int count = references.decrementAndGet();
+		if (count == 0) {
+			owner.retire(this);
+		} else if (count < 0) {
+			System.err.printf("Map version %d released too many times.\n", number);
+		}
+	}
+
+}
@@ -7,7 +7,9 @@
 // coordinates, and a collection of Road objects which encode the immediate
 // routes leading away from this location. Note that textual names are
 // assumed to be unique; two locations are considered the same if they have
-// the same name.
+// the same name. Once a location is recorded in a map, it is also given
+// a small integer index, unique within that map, which allows search code
+// to identify locations with a primitive comparison.
 //
 // David Noelle -- Sun Feb 11 17:37:21 PST 2007
 //
@@ -21,6 +23,7 @@ public class Location {
     public String name = "";
     public double longitude = 0.0;
     public double latitude = 0.0;
+    public int index = -1;
     public List<Road> roads;
 
 	// Default constructor ...
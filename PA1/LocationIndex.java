@@ -0,0 +1,277 @@
+//
+// LocationIndex
+//
+// This class implements a spatial index over the coordinates of Location
+// objects, answering three kinds of query without examining every
+// location: the location nearest to a given point, the "k" locations
+// nearest to a given point, and all of the locations within a given
+// bounding box. Longitude and latitude are treated as planar coordinates,
+// just as the heuristic functions treat them, so distances are straight
+// line distances in degrees.
+//
+// The index is a uniform grid of square cells, sized so that each cell
+// holds about two locations on average, with each cell keeping the
+// numbers of the entries that fall within it. Nearest-location queries
+// examine the cell containing the query point (or, for a point beyond the
+// extents of the locations, the nearest point within them), and then
+// rings of cells around it, stopping as soon as no location in a farther
+// ring could be closer than the ones already found. Range queries examine
+// only the cells overlapping the box.
+//
+// Locations can be added one at a time, as a map is read. The extents of
+// the locations added so far (the westmost and eastmost longitudes and
+// the southmost and northmost latitudes) are updated as each one is
+// added, so they never need to be found by scanning. When a location
+// falls outside of the grid, or the cells become crowded, the grid is
+// rebuilt with room to spare, so the cost of rebuilding is spread over
+// many additions. Locations must not be moved once they have been added.
+//
+
+
+import java.util.*;
+
+
+public class LocationIndex {
+    // Entries, in the order added ...
+    Location[] items = new Location[16];
+    double[] xs = new double[16];
+    double[] ys = new double[16];
+    int count = 0;
+
+    // Extents of the locations added so far ...
+    double west = Double.POSITIVE_INFINITY;
+    double east = Double.NEGATIVE_INFINITY;
+    double south = Double.POSITIVE_INFINITY;
+    double north = Double.NEGATIVE_INFINITY;
+
+    // Grid of cells, each holding the numbers of its entries ...
+    double gridWest;
+    double gridSouth;
+    double cellSize = 1.0;
+    int columns = 0;
+    int rows = 0;
+    int[][] cells = new int[0][];
+    int[] cellCount = new int[0];
+
+	// Default constructor ...
+	public LocationIndex() {
+	}
+
+	// Constructor with locations specified ...
+	public LocationIndex(Collection<Location> locations) {
+		for (Location loc : locations)
+			record(loc);
+		rebuild();
+	}
+
+	// add -- Add the given location to the index.
+	public void add(Location loc) {
+		record(loc);
+		int column = (int) Math.floor((loc.longitude - gridWest) / cellSize);
+		int row = (int) Math.floor((loc.latitude - gridSouth) / cellSize);
+		if ((column < 0) || (column >= columns) || (row < 0) || (row >= rows)
+		    || (count > 4 * columns * rows)) {
+			rebuild();
+		} else {
+			place(count - 1, row * columns + column);
+		}
+	}
+
+	// size -- Return the number of locations in the index.
+	public int size() {
+		return (count);
+	}
+
+	// westmost -- Return the smallest longitude of any location in the
+	// index, or positive infinity if there are none.
+	public double westmost() {
+		return (west);
+	}
+
+	// eastmost -- Return the largest longitude of any location in the
+	// index, or negative infinity if there are none.
+	public double eastmost() {
+		return (east);
+	}
+
+	// southmost -- Return the smallest latitude of any location in the
+	// index, or positive infinity if there are none.
+	public double southmost() {
+		return (south);
+	}
+
+	// northmost -- Return the largest latitude of any location in the
+	// index, or negative infinity if there are none.
+	public double northmost() {
+		return (north);
+	}
+
+	// nearest -- Return the location nearest to the given point, or null
+	// if the index is empty.
+	public Location nearest(double longitude, double latitude) {
+		List<Location> found = nearest(longitude, latitude, 1);
+		if (found.isEmpty())
+			return (null);
+		return (found.get(0));
+	}
+
+	// nearest -- Return the "k" locations nearest to the given point,
+	// nearest first, or all of the locations if there are fewer than "k".
+	public List<Location> nearest(double longitude, double latitude, int k) {
+		k = Math.min(k, count);
+		List<Location> found = new ArrayList<Location>(Math.max(0, k));
+		if (k <= 0)
+			return (found);
+		// The best entries found so far, nearest first ...
+		int[] best = new int[k];
+		double[] bestDistance = new double[k];
+		int bestCount = 0;
+		// Start from the point within the extents that is nearest to the
+		// query point, so no time is spent on rings of empty cells ...
+		double x = Math.max(west, Math.min(east, longitude));
+		double y = Math.max(south, Math.min(north, latitude));
+		int column = clamp((int) Math.floor((x - gridWest) / cellSize), columns);
+		int row = clamp((int) Math.floor((y - gridSouth) / cellSize), rows);
+		// Every location is at least this far, squared, from the query point
+		// beyond the distance between the two starting points ...
+		double outside = (x - longitude) * (x - longitude) + (y - latitude) * (y - latitude);
+		int rings = Math.max(columns, rows);
+		for (int ring = 0; ring <= rings; ring++) {
+			// No entry in this ring, or beyond, can be nearer than this ...
+			double inside = Math.max(0, ring - 1) * cellSize;
+			if ((bestCount == k) && (outside + inside * inside > bestDistance[k - 1] * bestDistance[k - 1]))
+				break;
+			for (int r = row - ring; r <= row + ring; r++) {
+				if ((r < 0) || (r >= rows))
+					continue;
+				boolean edge = (r == row - ring) || (r == row + ring);
+				int step = edge ? 1 : 2 * ring;
+				for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+					if ((c < 0) || (c >= columns))
+						continue;
+					int cell = r * columns + c;
+					for (int i = 0; i < cellCount[cell]; i++) {
+						int entry = cells[cell][i];
+						double d = distance(entry, longitude, latitude);
+						if ((bestCount == k) && (d >= bestDistance[k - 1]))
+							continue;
+						// Insert the entry into the sorted list of the best ...
+						int j = (bestCount < k) ? bestCount++ : k - 1;
+						while ((j > 0) && (bestDistance[j - 1] > d)) {
+							best[j] = best[j - 1];
+							bestDistance[j] = bestDistance[j - 1];
+							j--;
+						}
+						best[j] = entry;
+						bestDistance[j] = d;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < bestCount; i++)
+			found.add(items[best[i]]);
+		return (found);
+	}
+
+	// within -- Return every location whose longitude is between the
+	// given westmost and eastmost longitudes, and whose latitude is
+	// between the given southmost and northmost latitudes, inclusive.
+	public List<Location> within(double westmost, double southmost, double eastmost,
+				     double northmost) {
+		List<Location> found = new ArrayList<Location>();
+		if ((count == 0) || (westmost > eastmost) || (southmost > northmost))
+			return (found);
+		int firstColumn = clamp((int) Math.floor((westmost - gridWest) / cellSize), columns);
+		int lastColumn = clamp((int) Math.floor((eastmost - gridWest) / cellSize), columns);
+		int firstRow = clamp((int) Math.floor((southmost - gridSouth) / cellSize), rows);
+		int lastRow = clamp((int) Math.floor((northmost - gridSouth) / cellSize), rows);
+		for (int r = firstRow; r <= lastRow; r++) {
+			for (int c = firstColumn; c <= lastColumn; c++) {
+				int cell = r * columns + c;
+				for (int i = 0; i < cellCount[cell]; i++) {
+					int entry = cells[cell][i];
+					if ((xs[entry] >= westmost) && (xs[entry] <= eastmost)
+					    && (ys[entry] >= southmost) && (ys[entry] <= northmost))
+						found.add(items[entry]);
+				}
+			}
+		}
+		return (found);
+	}
+
+	// record -- Store the given location as a new entry and update the
+	// extents, without placing it in a cell.
+	void record(Location loc) {
+		if (count == items.length) {
+			int capacity = 2 * count;
+			items = Arrays.copyOf(items, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+		items[count] = loc;
+		xs[count] = loc.longitude;
+		ys[count] = loc.latitude;
+		count++;
+		west = Math.min(west, loc.longitude);
+		east = Math.max(east, loc.longitude);
+		south = Math.min(south, loc.latitude);
+		north = Math.max(north, loc.latitude);
+	}
+
+	// rebuild -- Size the grid for the current entries, with a margin of
+	// half the width and height of their extents on every side, and place
+	// every entry in its cell.
+	void rebuild() {
+		if (count == 0)
+			return;
+		double width = east - west;
+		double height = north - south;
+		// Aim for about two entries per cell over the extents themselves ...
+		cellSize = Math.sqrt((width * height) / Math.max(1.0, count / 2.0));
+		if (!(cellSize > 0.0))
+			cellSize = Math.max(Math.max(width, height) / Math.max(1.0, count / 2.0), 1.0e-6);
+		gridWest = west - width / 2.0 - cellSize;
+		gridSouth = south - height / 2.0 - cellSize;
+		columns = (int) Math.min(Math.ceil((2.0 * width) / cellSize) + 2, 4 * count + 2);
+		rows = (int) Math.min(Math.ceil((2.0 * height) / cellSize) + 2, 4 * count + 2);
+		if ((long) columns * rows > 8L * count + 16) {
+			// Very uneven extents, so use fewer, larger cells ...
+			double scale = Math.sqrt(((double) columns * rows) / (8.0 * count + 16));
+			cellSize *= scale;
+			columns = (int) Math.ceil((2.0 * width) / cellSize) + 2;
+			rows = (int) Math.ceil((2.0 * height) / cellSize) + 2;
+		}
+		cells = new int[columns * rows][];
+		cellCount = new int[columns * rows];
+		for (int entry = 0; entry < count; entry++) {
+			int column = clamp((int) Math.floor((xs[entry] - gridWest) / cellSize), columns);
+			int row = clamp((int) Math.floor((ys[entry] - gridSouth) / cellSize), rows);
+			place(entry, row * columns + column);
+		}
+	}
+
+	// place -- Add the given entry to the given cell.
+	void place(int entry, int cell) {
+		if (cells[cell] == null) {
+			cells[cell] = new int[2];
+		} else if (cellCount[cell] == cells[cell].length) {
+			cells[cell] = Arrays.copyOf(cells[cell], 2 * cellCount[cell]);
+		}
+		cells[cell][cellCount[cell]++] = entry;
+	}
+
+	// distance -- Return the straight line distance from the given entry
+	// to the given point.
+	double distance(int entry, double longitude, double latitude) {
+		double x = xs[entry] - longitude;
+		double y = ys[entry] - latitude;
+		return (Math.sqrt(x * x + y * y));
+	}
+
+	// clamp -- Return the given cell coordinate, limited to the range from
+	// zero to one less than the given number of cells.
+	static int clamp(int i, int limit) {
+		return (Math.max(0, Math.min(limit - 1, i)));
+	}
+
+}
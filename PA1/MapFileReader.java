@@ -0,0 +1,304 @@
+//
+// MapFileReader
+//
+// This class implements a fast, line-oriented tokenizer for the location
+// and road files that describe a map. The file is read through an NIO
+// FileChannel into a large byte buffer, and each line is split into
+// whitespace-separated tokens by scanning the bytes directly, without
+// regular expressions and without allocating a Scanner or a String for
+// every line. Numeric fields are converted to double precision values by
+// a hand-written parser that handles the common case of a plain decimal
+// number exactly, falling back to Double.parseDouble only for unusual
+// forms. The reader keeps track of the current line number, so that
+// callers can report exactly where a malformed line was found.
+//
+// The "nextLocation" and "nextRoad" methods read one location or road
+// segment description, in the formats used by Location.read and Road.read,
+// leaving its fields in this object. Alternatively, callers can call
+// "nextLine" to advance to each non-blank line of the file, and then call
+// "nextToken" and "nextDouble" to extract the fields of that line. Blank
+// lines are skipped. When a field is missing or malformed, an error message
+// that includes the file name and line number is recorded, and it can be
+// retrieved with "getError".
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+
+public class MapFileReader {
+    static final int BUFFER_SIZE = 1 << 16;
+    static final double[] POWERS_OF_TEN = {
+	1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8,
+	1.0e9, 1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15, 1.0e16,
+	1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+    };
+
+    String filename;
+    FileChannel channel;
+    byte[] buffer;
+    int position = 0;     // Start of unread bytes in the buffer ...
+    int limit = 0;        // End of valid bytes in the buffer ...
+    boolean endOfFile = false;
+    int lineNumber = 0;
+    int lineEnd = 0;      // End of the current line in the buffer ...
+    int cursor = 0;       // Tokenizing position within the current line ...
+    int tokenStart = 0;   // Bounds of the most recently read token ...
+    int tokenEnd = 0;
+    String error = null;
+
+    // Fields of the most recently read location or road segment ...
+    public String locationName;
+    public double longitude;
+    public double latitude;
+    public String roadName;
+    public String fromLocationName;
+    public String toLocationName;
+    public double cost;
+
+	// Constructor with file name specified ...
+	public MapFileReader(String filename) throws IOException {
+		this.filename = filename;
+		this.channel = new FileInputStream(filename).getChannel();
+		this.buffer = new byte[BUFFER_SIZE];
+	}
+
+	// close -- Close the underlying file.
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Nothing more can be done ...
+		}
+	}
+
+	// getLineNumber -- Return the number of the current line, counting
+	// from one.
+	public int getLineNumber() {
+		return (lineNumber);
+	}
+
+	// getError -- Return the message describing the most recent error, or
+	// null if no error has occurred.
+	public String getError() {
+		return (error);
+	}
+
+	// error -- Record an error message about the current line, prefixed
+	// with the file name and line number. Always return false, so that
+	// callers can write "return (in.error(...));".
+	public boolean error(String message) {
+		error = String.format("%s:%d: %s", filename, lineNumber, message);
+		return (false);
+	}
+
+	// nextLocation -- Read the next location description in the file: a
+	// name, optionally followed by a pair of coordinates. Return false at
+	// the end of the file or on error.
+	public boolean nextLocation() throws IOException {
+		if (!nextLine())
+			return (false);
+		locationName = nextToken();
+		longitude = 0.0;
+		latitude = 0.0;
+		if (hasToken()) {
+			longitude = nextDouble();
+			if (Double.isNaN(longitude))
+				return (false);
+			if (hasToken()) {
+				latitude = nextDouble();
+				if (Double.isNaN(latitude))
+					return (false);
+			}
+		}
+		return (true);
+	}
+
+	// nextRoad -- Read the next road segment description in the file: a
+	// name, a "from" location name, a "to" location name, and a cost.
+	// Return false at the end of the file or on error.
+	public boolean nextRoad() throws IOException {
+		if (!nextLine())
+			return (false);
+		roadName = nextToken();
+		fromLocationName = nextToken();
+		toLocationName = nextToken();
+		if (toLocationName == null)
+			return (error("Expected a road name, two location names, and a cost."));
+		if (!hasToken())
+			return (error("Expected a cost after the location names."));
+		cost = nextDouble();
+		return (!Double.isNaN(cost));
+	}
+
+	// nextLine -- Advance to the next line of the file that contains at
+	// least one token. Return false when there are no more such lines.
+	public boolean nextLine() throws IOException {
+		while (true) {
+			position = lineEnd;
+			if ((position < limit) && (buffer[position] == '\n'))
+				position++;
+			if (!findLineEnd())
+				return (false);
+			lineNumber++;
+			cursor = position;
+			if (skipBlanks())
+				return (true);
+		}
+	}
+
+	// hasToken -- Return true if and only if there is another token on the
+	// current line.
+	public boolean hasToken() {
+		return (skipBlanks());
+	}
+
+	// nextToken -- Return the next token on the current line, or null if
+	// there are no more tokens.
+	public String nextToken() {
+		if (!scanToken())
+			return (null);
+		return (new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8));
+	}
+
+	// nextDouble -- Parse the next token on the current line as a double
+	// precision floating point number. Return NaN if there are no more
+	// tokens or if the token is not a number; in the latter case, an error
+	// is also recorded.
+	public double nextDouble() {
+		if (!scanToken())
+			return (Double.NaN);
+		double value = parseDouble(tokenStart, tokenEnd);
+		if (Double.isNaN(value)) {
+			error("Expected a number but found \""
+			      + new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8)
+			      + "\".");
+		}
+		return (value);
+	}
+
+	// findLineEnd -- Make sure that the line starting at the current
+	// position is entirely in the buffer, reading more of the file as
+	// needed, and set "lineEnd" to the position of its terminating newline
+	// (or to the end of the data, for a final unterminated line). Return
+	// false if there is no more data at all.
+	boolean findLineEnd() throws IOException {
+		int scan = position;
+		while (true) {
+			while (scan < limit) {
+				if (buffer[scan] == '\n') {
+					lineEnd = scan;
+					return (true);
+				}
+				scan++;
+			}
+			if (endOfFile) {
+				lineEnd = limit;
+				return (position < limit);
+			}
+			scan -= position;
+			fill();
+			scan += position;
+		}
+	}
+
+	// fill -- Move the unread bytes to the front of the buffer, growing it
+	// if it is full of a single long line, and read more of the file.
+	void fill() throws IOException {
+		int remaining = limit - position;
+		if (remaining == buffer.length) {
+			byte[] bigger = new byte[2 * buffer.length];
+			System.arraycopy(buffer, position, bigger, 0, remaining);
+			buffer = bigger;
+		} else {
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		}
+		position = 0;
+		limit = remaining;
+		ByteBuffer view = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+		int count = channel.read(view);
+		if (count < 0) {
+			endOfFile = true;
+		} else {
+			limit += count;
+		}
+	}
+
+	// skipBlanks -- Move the cursor past any white space on the current
+	// line. Return true if and only if a token follows.
+	boolean skipBlanks() {
+		while ((cursor < lineEnd) && isBlank(buffer[cursor]))
+			cursor++;
+		return (cursor < lineEnd);
+	}
+
+	// scanToken -- Find the bounds of the next token on the current line,
+	// moving the cursor past it. Return false if there is no next token.
+	boolean scanToken() {
+		if (!skipBlanks())
+			return (false);
+		tokenStart = cursor;
+		while ((cursor < lineEnd) && !isBlank(buffer[cursor]))
+			cursor++;
+		tokenEnd = cursor;
+		return (true);
+	}
+
+	// isBlank -- Return true if and only if the given byte is white space.
+	static boolean isBlank(byte b) {
+		return ((b == ' ') || (b == '\t') || (b == '\r') || (b == '\f') || (b == 0x0B));
+	}
+
+	// parseDouble -- Convert the bytes in the given range to a double
+	// precision number, returning NaN if they do not form a number. Plain
+	// decimal numbers with at most 15 significant digits are converted
+	// exactly, since both the digits and the power of ten are exactly
+	// representable; anything else is passed to Double.parseDouble.
+	double parseDouble(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if ((i < end) && ((buffer[i] == '-') || (buffer[i] == '+'))) {
+			negative = (buffer[i] == '-');
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		for (; i < end; i++) {
+			byte b = buffer[i];
+			if ((b >= '0') && (b <= '9')) {
+				seenDigit = true;
+				if ((mantissa == 0) && (b == '0')) {
+					// Leading zeros are not significant ...
+					if (seenPoint)
+						fractionDigits++;
+					continue;
+				}
+				mantissa = (10 * mantissa) + (b - '0');
+				digits++;
+				if (seenPoint)
+					fractionDigits++;
+			} else if ((b == '.') && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+		if ((i == end) && seenDigit && (digits <= 15) && (fractionDigits < POWERS_OF_TEN.length)) {
+			double value = ((double) mantissa) / POWERS_OF_TEN[fractionDigits];
+			return (negative ? -value : value);
+		}
+		// Fall back to the library for exponents and other unusual forms ...
+		try {
+			return (Double.parseDouble(new String(buffer, start, end - start, StandardCharsets.US_ASCII)));
+		} catch (NumberFormatException e) {
+			return (Double.NaN);
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+//
+// MapGenerator
+//
+// This class builds synthetic StreetMap objects of any size, for use in
+// measuring the performance of the search algorithms. Two shapes of map
+// are provided. A "grid" map places its locations near the points of a
+// rectangular grid, one unit apart, joining each location to its four
+// neighbors. A "geometric" map scatters its locations uniformly at random
+// over a square, at a density of one location per unit of area, joining
+// every pair of locations that are no farther apart than a given radius.
+// In both shapes, each connection is made with a pair of road segments,
+// one in each direction, and the cost of a road segment is the straight
+// line distance between its locations multiplied by a random factor
+// between 1.0 and 1.5, so costs are never less than distances. Locations
+// are named "L0", "L1", and so on, and the road segment from location "Li"
+// to location "Lj" is named "ri-j". Maps are generated from a seed, so the
+// same seed always gives the same map.
+//
+// A generated map can be written out as a location file and a road file,
+// in the formats read by StreetMap. The "main" method does just this.
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class MapGenerator {
+
+	// grid -- Return a grid map with the given numbers of rows and
+	// columns, generated from the given seed.
+	public static StreetMap grid(int rows, int columns, long seed) {
+		Random random = new Random(seed);
+		StreetMap map = new StreetMap();
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				// Place each location within 0.3 units of its grid point ...
+				map.recordLocation(new Location("L" + (row * columns + column),
+								column + 0.6 * (random.nextDouble() - 0.5),
+								row + 0.6 * (random.nextDouble() - 0.5)));
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				int loc = row * columns + column;
+				if (column + 1 < columns)
+					connect(map, loc, loc + 1, random);
+				if (row + 1 < rows)
+					connect(map, loc, loc + columns, random);
+			}
+		}
+		return (map);
+	}
+
+	// geometric -- Return a random geometric map with the given number of
+	// locations, joining those no farther apart than the given radius,
+	// generated from the given seed.
+	public static StreetMap geometric(int count, double radius, long seed) {
+		Random random = new Random(seed);
+		StreetMap map = new StreetMap();
+		double side = Math.sqrt(count);
+		for (int loc = 0; loc < count; loc++) {
+			map.recordLocation(new Location("L" + loc, side * random.nextDouble(),
+							side * random.nextDouble()));
+		}
+		// Sort the locations into square cells, one radius wide, so that
+		// only locations in neighboring cells need to be compared ...
+		int cells = Math.max(1, (int) Math.ceil(side / radius));
+		int[] cellFirst = new int[cells * cells + 1];
+		int[] cellOf = new int[count];
+		for (int loc = 0; loc < count; loc++) {
+			Location l = map.locations.get(loc);
+			int cx = Math.min(cells - 1, (int) (l.longitude / radius));
+			int cy = Math.min(cells - 1, (int) (l.latitude / radius));
+			cellOf[loc] = cy * cells + cx;
+			cellFirst[cellOf[loc] + 1]++;
+		}
+		for (int c = 0; c < cells * cells; c++)
+			cellFirst[c + 1] += cellFirst[c];
+		int[] members = new int[count];
+		int[] next = Arrays.copyOf(cellFirst, cells * cells);
+		for (int loc = 0; loc < count; loc++)
+			members[next[cellOf[loc]]++] = loc;
+		for (int loc = 0; loc < count; loc++) {
+			Location l = map.locations.get(loc);
+			int cx = cellOf[loc] % cells;
+			int cy = cellOf[loc] / cells;
+			for (int y = Math.max(0, cy - 1); y <= Math.min(cells - 1, cy + 1); y++) {
+				for (int x = Math.max(0, cx - 1); x <= Math.min(cells - 1, cx + 1); x++) {
+					int c = y * cells + x;
+					for (int i = cellFirst[c]; i < cellFirst[c + 1]; i++) {
+						int other = members[i];
+						// Consider each pair once, from its lower index ...
+						if ((other > loc) && (distance(l, map.locations.get(other)) <= radius))
+							connect(map, loc, other, random);
+					}
+				}
+			}
+		}
+		return (map);
+	}
+
+	// write -- Write the given map to the location file and the road file
+	// with the given pathnames. Return false on error.
+	public static boolean write(StreetMap map, String locationFilename, String roadFilename) {
+		try {
+			PrintWriter locs = new PrintWriter(new BufferedWriter(new FileWriter(locationFilename)));
+			for (Location loc : map.locations)
+				locs.printf("%s %.6f %.6f\n", loc.name, loc.longitude, loc.latitude);
+			locs.close();
+			PrintWriter roads = new PrintWriter(new BufferedWriter(new FileWriter(roadFilename)));
+			for (Location loc : map.locations) {
+				for (Road r : loc.roads)
+					roads.printf("%s %s %s %.6f\n", r.name, r.fromLocationName, r.toLocationName, r.cost);
+			}
+			roads.close();
+			return (!locs.checkError() && !roads.checkError());
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to write map: %s\n", e.getMessage());
+			return (false);
+		}
+	}
+
+	// connect -- Join the locations with the given indices with a pair of
+	// road segments, one in each direction, with the same random cost.
+	static void connect(StreetMap map, int from, int to, Random random) {
+		Location a = map.locations.get(from);
+		Location b = map.locations.get(to);
+		double cost = distance(a, b) * (1.0 + 0.5 * random.nextDouble());
+		a.recordRoad(road(a, b, cost));
+		b.recordRoad(road(b, a, cost));
+		map.markModified();
+	}
+
+	// road -- Return a road segment between the given locations, with the
+	// given cost.
+	static Road road(Location from, Location to, double cost) {
+		Road r = new Road();
+		r.name = "r" + from.index + "-" + to.index;
+		r.fromLocation = from;
+		r.toLocation = to;
+		r.fromLocationName = from.name;
+		r.toLocationName = to.name;
+		r.cost = cost;
+		return (r);
+	}
+
+	// distance -- Return the straight line distance between the given
+	// locations.
+	static double distance(Location a, Location b) {
+		double x = a.longitude - b.longitude;
+		double y = a.latitude - b.latitude;
+		return (Math.sqrt(x * x + y * y));
+	}
+
+	// main -- Generate a map as described by the command line arguments,
+	// and write it out. The arguments are "grid ROWS COLUMNS" or
+	// "geometric COUNT RADIUS", followed by a seed, a location file
+	// pathname, and a road file pathname.
+	public static void main(String[] args) {
+		if (args.length != 6) {
+			System.err.println("Usage: MapGenerator grid ROWS COLUMNS SEED LOCATIONS ROADS");
+			System.err.println("       MapGenerator geometric COUNT RADIUS SEED LOCATIONS ROADS");
+			System.exit(1);
+		}
+		StreetMap map;
+		try {
+			long seed = Long.parseLong(args[3]);
+			if (args[0].equals("grid")) {
+				map = grid(Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed);
+			} else if (args[0].equals("geometric")) {
+				map = geometric(Integer.parseInt(args[1]), Double.parseDouble(args[2]), seed);
+			} else {
+				System.err.printf("Unknown map shape: %s\n", args[0]);
+				System.exit(1);
+				return;
+			}
+		} catch (NumberFormatException e) {
+			System.err.printf("Bad number: %s\n", e.getMessage());
+			System.exit(1);
+			return;
+		}
+		if (!write(map, args[4], args[5]))
+			System.exit(1);
+	}
+
+}
@@ -0,0 +1,373 @@
+//
+// MapSnapshot
+//
+// This class reads and writes binary "snapshot" files holding a
+// CompactGraph, so that a map only needs to be parsed from its text
+// location and road files once. A snapshot is loaded by memory-mapping
+// the file with FileChannel.map, and the buffers of the resulting
+// CompactGraph are simply views of the mapped file. Loading therefore
+// copies nothing, the costs and coordinates are only read from disk when
+// a search touches them, and several processes that load the same
+// snapshot share a single copy of it in the operating system's page
+// cache.
+//
+// A snapshot file begins with a fixed-size header, followed by a series
+// of sections, each of which starts at a multiple of eight bytes. All
+// numbers are stored in little-endian byte order. The header contains:
+//
+//    int     magic number ("SNAP")
+//    int     format version
+//    int     number of locations (n)
+//    int     number of road segments (m)
+//    int     number of distinct road names (k)
+//    int     number of slots in the location name hash table (h)
+//    int     total bytes of location names
+//    int     total bytes of road names
+//    double  smallest road cost to distance ratio
+//
+// and the sections are, in order:
+//
+//    int[n+1]   first road segment of each location
+//    int[m]     destination location of each road segment
+//    int[m]     road name of each road segment
+//    double[m]  cost of each road segment
+//    float[n]   first coordinate of each location
+//    float[n]   second coordinate of each location
+//    int[n+1]   offset of each location name
+//    byte[]     UTF-8 location names
+//    int[k+1]   offset of each road name
+//    byte[]     UTF-8 road names
+//    int[h]     location name hash table
+//
+// The format version must be incremented whenever this layout changes,
+// and files with an unknown version are rejected when loaded. So are
+// files whose header counts are impossible, or whose sections hold a
+// location, road name, or string offset outside the bounds given by the
+// header. Checking the sections reads each integer section once, when
+// the snapshot is loaded, but never copies it.
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+
+public class MapSnapshot {
+    static final int MAGIC = 0x50414E53;   // "SNAP", in little-endian order ...
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+	// write -- Write the given compact graph to a snapshot file with the
+	// given pathname. Return false on error, in which case no file is left
+	// behind.
+	public static boolean write(CompactGraph graph, String filename) {
+		File file = new File(filename);
+		boolean opened = false;
+		boolean written = false;
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			opened = true;
+			try {
+				FileChannel channel = out.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(graph.locationCount);
+				header.putInt(graph.roadCount);
+				header.putInt(graph.roadNames.size());
+				header.putInt(graph.nameHash.capacity());
+				header.putInt(graph.locationNames.bytes.capacity());
+				header.putInt(graph.roadNames.bytes.capacity());
+				header.putDouble(graph.costPerDistance);
+				header.clear();
+				writeFully(channel, header);
+				SectionWriter sections = new SectionWriter(channel, HEADER_SIZE);
+				sections.writeInts(graph.firstRoad);
+				sections.writeInts(graph.roadTargets);
+				sections.writeInts(graph.roadNameIds);
+				sections.writeDoubles(graph.roadCosts);
+				sections.writeFloats(graph.longitudes);
+				sections.writeFloats(graph.latitudes);
+				sections.writeInts(graph.locationNames.offsets);
+				sections.writeBytes(graph.locationNames.bytes);
+				sections.writeInts(graph.roadNames.offsets);
+				sections.writeBytes(graph.roadNames.bytes);
+				sections.writeInts(graph.nameHash);
+			} finally {
+				out.close();
+			}
+			written = true;
+			return (true);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to write map snapshot %s: %s\n", filename, e.getMessage());
+			return (false);
+		} finally {
+			// Leave no partial snapshot behind ...
+			if (opened && !written)
+				file.delete();
+		}
+	}
+
+	// write -- Write the given street map to a snapshot file with the given
+	// pathname. Return false on error.
+	public static boolean write(StreetMap map, String filename) {
+		return (write(new CompactGraph(map), filename));
+	}
+
+	// load -- Memory-map the snapshot file with the given pathname and
+	// return the compact graph that it holds. Return null if the file
+	// cannot be read or is not a snapshot of a supported version.
+	public static CompactGraph load(String filename) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			FileChannel channel = file.getChannel();
+			try {
+				if (channel.size() < HEADER_SIZE) {
+					System.err.printf("%s is not a map snapshot.\n", filename);
+					return (null);
+				}
+				ByteBuffer header = map(channel, 0, HEADER_SIZE);
+				if (header.getInt() != MAGIC) {
+					System.err.printf("%s is not a map snapshot.\n", filename);
+					return (null);
+				}
+				int version = header.getInt();
+				if (version != VERSION) {
+					System.err.printf("%s has snapshot version %d, but version %d is required.\n",
+							  filename, version, VERSION);
+					return (null);
+				}
+				int n = header.getInt();
+				int m = header.getInt();
+				int k = header.getInt();
+				int h = header.getInt();
+				int locationNameBytes = header.getInt();
+				int roadNameBytes = header.getInt();
+				double costPerDistance = header.getDouble();
+				if ((n < 0) || (m < 0) || (k < 0) || (locationNameBytes < 0) || (roadNameBytes < 0)
+				    || (h <= n) || ((h & (h - 1)) != 0)) {
+					System.err.printf("%s is a corrupt map snapshot: bad header counts.\n", filename);
+					return (null);
+				}
+
+				SectionReader sections = new SectionReader(channel, HEADER_SIZE);
+				IntBuffer firstRoad = sections.ints(n + 1);
+				IntBuffer roadTargets = sections.ints(m);
+				IntBuffer roadNameIds = sections.ints(m);
+				DoubleBuffer roadCosts = sections.doubles(m);
+				FloatBuffer longitudes = sections.floats(n);
+				FloatBuffer latitudes = sections.floats(n);
+				IntBuffer locationNameOffsets = sections.ints(n + 1);
+				ByteBuffer locationNames = sections.bytes(locationNameBytes);
+				IntBuffer roadNameOffsets = sections.ints(k + 1);
+				ByteBuffer roadNames = sections.bytes(roadNameBytes);
+				IntBuffer nameHash = sections.ints(h);
+				String problem = checkSections(n, m, k, firstRoad, roadTargets, roadNameIds,
+								locationNameOffsets, locationNameBytes,
+								roadNameOffsets, roadNameBytes, nameHash);
+				if (problem != null) {
+					System.err.printf("%s is a corrupt map snapshot: %s.\n", filename, problem);
+					return (null);
+				}
+				return (new CompactGraph(firstRoad, roadTargets, roadCosts, roadNameIds,
+							 longitudes, latitudes,
+							 new StringTable(locationNames, locationNameOffsets),
+							 new StringTable(roadNames, roadNameOffsets),
+							 nameHash, costPerDistance));
+			} finally {
+				// Mapped buffers remain valid after the file is closed ...
+				file.close();
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to read map snapshot %s: %s\n", filename, e.getMessage());
+			return (null);
+		}
+	}
+
+	// checkSections -- Return a description of the first index or offset
+	// in the given sections that lies outside the bounds given by the
+	// header, or null if they are all within bounds, so that a corrupt
+	// file cannot make a search read outside the mapped sections.
+	static String checkSections(int n, int m, int k, IntBuffer firstRoad, IntBuffer roadTargets,
+				    IntBuffer roadNameIds, IntBuffer locationNameOffsets, int locationNameBytes,
+				    IntBuffer roadNameOffsets, int roadNameBytes, IntBuffer nameHash) {
+		if (!ascending(firstRoad, m))
+			return ("bad first road segments");
+		for (int r = 0; r < m; r++) {
+			int target = roadTargets.get(r);
+			if ((target < 0) || (target >= n))
+				return ("bad road segment destination");
+			int nameId = roadNameIds.get(r);
+			if ((nameId < 0) || (nameId >= k))
+				return ("bad road segment name");
+		}
+		if (!ascending(locationNameOffsets, locationNameBytes))
+			return ("bad location name offsets");
+		if (!ascending(roadNameOffsets, roadNameBytes))
+			return ("bad road name offsets");
+		for (int slot = 0; slot < nameHash.capacity(); slot++) {
+			int entry = nameHash.get(slot);
+			if ((entry < 0) || (entry > n))
+				return ("bad location name hash table");
+		}
+		return (null);
+	}
+
+	// ascending -- Return true if and only if the given offsets start at
+	// zero, never decrease, and end at the given value.
+	static boolean ascending(IntBuffer offsets, int end) {
+		int last = offsets.capacity() - 1;
+		if ((offsets.get(0) != 0) || (offsets.get(last) != end))
+			return (false);
+		for (int i = 0; i < last; i++) {
+			if (offsets.get(i) > offsets.get(i + 1))
+				return (false);
+		}
+		return (true);
+	}
+
+	// map -- Map the given region of the file read-only, in little-endian
+	// byte order.
+	static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+		return (channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN));
+	}
+
+	// writeFully -- Write all of the remaining bytes of the given buffer.
+	static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining())
+			channel.write(buf);
+	}
+
+	// align -- Round the given file offset up to a multiple of eight.
+	static long align(long offset) {
+		return ((offset + 7) & ~7L);
+	}
+
+}
+
+
+class SectionWriter {
+    static final int CHUNK_SIZE = 1 << 16;
+
+    FileChannel channel;
+    long offset;
+    ByteBuffer chunk;
+
+	// Constructor with channel and starting offset specified ...
+	SectionWriter(FileChannel channel, long offset) {
+		this.channel = channel;
+		this.offset = offset;
+		this.chunk = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// writeInts -- Write the given integers as the next section.
+	void writeInts(IntBuffer src) throws IOException {
+		startSection();
+		for (int i = 0; i < src.capacity(); i++) {
+			room(4);
+			chunk.putInt(src.get(i));
+		}
+		flush();
+	}
+
+	// writeFloats -- Write the given floats as the next section.
+	void writeFloats(FloatBuffer src) throws IOException {
+		startSection();
+		for (int i = 0; i < src.capacity(); i++) {
+			room(4);
+			chunk.putFloat(src.get(i));
+		}
+		flush();
+	}
+
+	// writeDoubles -- Write the given doubles as the next section.
+	void writeDoubles(DoubleBuffer src) throws IOException {
+		startSection();
+		for (int i = 0; i < src.capacity(); i++) {
+			room(8);
+			chunk.putDouble(src.get(i));
+		}
+		flush();
+	}
+
+	// writeBytes -- Write the given bytes as the next section.
+	void writeBytes(ByteBuffer src) throws IOException {
+		startSection();
+		for (int i = 0; i < src.capacity(); i++) {
+			room(1);
+			chunk.put(src.get(i));
+		}
+		flush();
+	}
+
+	// startSection -- Pad the file with zeros up to the next multiple of
+	// eight bytes.
+	void startSection() throws IOException {
+		long start = MapSnapshot.align(offset);
+		while (offset < start) {
+			chunk.put((byte) 0);
+			offset++;
+		}
+	}
+
+	// room -- Make sure the chunk has room for the given number of bytes,
+	// writing it out if it does not.
+	void room(int bytes) throws IOException {
+		if (chunk.remaining() < bytes)
+			flush();
+		offset += bytes;
+	}
+
+	// flush -- Write out the contents of the chunk.
+	void flush() throws IOException {
+		chunk.flip();
+		MapSnapshot.writeFully(channel, chunk);
+		chunk.clear();
+	}
+
+}
+
+
+class SectionReader {
+    FileChannel channel;
+    long offset;
+
+	// Constructor with channel and starting offset specified ...
+	SectionReader(FileChannel channel, long offset) {
+		this.channel = channel;
+		this.offset = offset;
+	}
+
+	// next -- Map the next section, which has the given size in bytes.
+	ByteBuffer next(long size) throws IOException {
+		long start = MapSnapshot.align(offset);
+		offset = start + size;
+		if (offset > channel.size())
+			throw new IOException("The snapshot is truncated.");
+		return (MapSnapshot.map(channel, start, size));
+	}
+
+	// ints -- Map the next section as the given number of integers.
+	IntBuffer ints(int count) throws IOException {
+		return (next(4L * count).asIntBuffer());
+	}
+
+	// floats -- Map the next section as the given number of floats.
+	FloatBuffer floats(int count) throws IOException {
+		return (next(4L * count).asFloatBuffer());
+	}
+
+	// doubles -- Map the next section as the given number of doubles.
+	DoubleBuffer doubles(int count) throws IOException {
+		return (next(8L * count).asDoubleBuffer());
+	}
+
+	// bytes -- Map the next section as the given number of bytes.
+	ByteBuffer bytes(int count) throws IOException {
+		return (next(count));
+	}
+
+}
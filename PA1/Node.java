@@ -11,9 +11,26 @@
 // this one. This class provides two noteworthy methods. First, the
 // "expand" method fills in the "children" list of this node, using
 // information embedded in this node's Location object. Second, the
-// "reportSolution" recursive method uses the "parent" references of
-// nodes in the search tree in order to output the path from the
-// initial node of the search tree to this node.
+// "reportSolution" method uses the "parent" references of nodes in the
+// search tree in order to output the path from the initial node of the
+// search tree to this node.
+//
+// Filling in the "children" list allocates every child at once and keeps
+// them all reachable from the parent for as long as the search tree is
+// kept, even when most of them are immediately discarded by repeated state
+// checking. Searches can instead generate children lazily, one at a time,
+// either by iterating over "successors", which creates each child only
+// when it is requested, or by calling "child" for just those road segments
+// whose destinations are worth considering. Children generated in these
+// ways are not recorded in the "children" list, so the memory used by a
+// search grows with the size of its frontier rather than with the number
+// of nodes ever generated.
+//
+// Each node also records the road segment that was taken to reach it
+// from its parent, so reporting a solution never needs to search the
+// parent's roads for one leading to this node's location. The path is
+// collected and reported iteratively, so even very long paths cannot
+// overflow the call stack.
 //
 // David Noelle -- Sun Sep 23 18:25:04 PDT 2018
 //
@@ -26,6 +43,7 @@ import java.util.*;
 public class Node {
     public Location loc;
     public Node parent;
+    public Road road;        // Road segment taken from the parent ...
     public List<Node> children;
     public int depth = 0;
     public double partialPathCost = 0.0;
@@ -33,7 +51,8 @@ public class Node {
 
 	// Default constructor ...
 	public Node() {
-		this.children = new ArrayList<Node>();
+		// No list is allocated until the node is expanded ...
+		this.children = Collections.emptyList();
 	}
 
 	// Constructor with Location object specified ...
@@ -54,14 +73,9 @@ public class Node {
 	// is correctly calculated. This version of this method, which takes no
 	// arguments, always sets the heuristic values of nodes to zero.
 	public void expand() {
-		children.removeAll(children);
-		for (Road r : loc.roads) {
-			Node child = new Node(r.toLocation, this);
-			child.depth = this.depth + 1;
-			child.partialPathCost = this.partialPathCost + r.cost;
-			child.heuristicValue = 0.0;
-			children.add(child);
-		}
+		children = new ArrayList<Node>(loc.roads.size());
+		for (Road r : loc.roads)
+			children.add(child(r));
 	}
 
 	// expand -- Fill in the collection of children of this node, stored in
@@ -71,14 +85,60 @@ public class Node {
 	// heuristic function object as an argument, uses the given heuristic
 	// function to fill in the heuristic values of the children nodes.
 	public void expand(Heuristic h) {
-		children.removeAll(children);
-		for (Road r : loc.roads) {
-			Node child = new Node(r.toLocation, this);
-			child.depth = this.depth + 1;
-			child.partialPathCost = this.partialPathCost + r.cost;
-			child.heuristicValue = h.heuristicValue(child);
-			children.add(child);
-		}
+		children = new ArrayList<Node>(loc.roads.size());
+		for (Road r : loc.roads)
+			children.add(child(r, h));
+	}
+
+	// child -- Return a new child of this node, reached by following the
+	// given road segment out of this node's location, with its heuristic
+	// value set to zero. The child is not added to the "children" list.
+	public Node child(Road r) {
+		Node child = new Node(r.toLocation, this);
+		child.road = r;
+		child.depth = this.depth + 1;
+		child.partialPathCost = this.partialPathCost + r.cost;
+		child.heuristicValue = 0.0;
+		return (child);
+	}
+
+	// child -- Return a new child of this node, reached by following the
+	// given road segment out of this node's location, using the given
+	// heuristic function to fill in its heuristic value. The child is not
+	// added to the "children" list.
+	public Node child(Road r, Heuristic h) {
+		Node child = child(r);
+		child.heuristicValue = h.heuristicValue(child);
+		return (child);
+	}
+
+	// successors -- Return the children of this node, with their heuristic
+	// values set to zero, generating each one only when it is requested.
+	// The children are not added to the "children" list.
+	public Iterable<Node> successors() {
+		return (successors(null));
+	}
+
+	// successors -- Return the children of this node, using the given
+	// heuristic function to fill in their heuristic values, generating
+	// each one only when it is requested. The children are not added to
+	// the "children" list.
+	public Iterable<Node> successors(final Heuristic h) {
+		return (new Iterable<Node>() {
+				public Iterator<Node> iterator() {
+					final Iterator<Road> roads = loc.roads.iterator();
+					return (new Iterator<Node>() {
+							public boolean hasNext() {
+								return (roads.hasNext());
+							}
+
+							public Node next() {
+								Road r = roads.next();
+								return ((h == null) ? child(r) : child(r, h));
+							}
+						});
+				}
+			});
 	}
 
 	// isDestination -- Return true if and only if the name of the
@@ -89,22 +149,23 @@ public class Node {
 
 	// reportSolution -- Output a textual description of the path from the
 	// root of the search tree (i.e., the initial node) to this node, sending
-	// the description to the given stream. Note that this method is
-	// recursive; a recursive call outputs the path up to the parent of this
-	// node before the final road segment in the path is described.
+	// the description to the given stream. The path is first collected by
+	// following "parent" references, and then reported from the start.
 	public void reportSolution(OutputStream str) {
 		PrintWriter out = new PrintWriter(str, true);
-		if (parent == null) {
-			// This is the starting point ...
-			out.printf("START AT ");
-			loc.write(str, false);
-			out.printf(".\n");
-		} else {
-			// First provide the solution up until this point ...
-			parent.reportSolution(str);
-			// Now report the road segment to this point ...
+		List<Node> path = new ArrayList<Node>(depth + 1);
+		for (Node n = this; n != null; n = n.parent)
+			path.add(n);
+		// This is the starting point ...
+		out.printf("START AT ");
+		path.get(path.size() - 1).loc.write(str, false);
+		out.printf(".\n");
+		// Now report each road segment along the path ...
+		for (int i = path.size() - 2; i >= 0; i--) {
+			Node n = path.get(i);
+			Road r = (n.road != null) ? n.road : n.parent.loc.findRoad(n.loc);
 			out.printf("TAKE ");
-			(parent.loc.findRoad(loc)).write(str, true);
+			r.write(str, true);
 			out.printf(".\n");
 		}
 	}
@@ -0,0 +1,502 @@
+//
+// ParallelAStarSearch
+//
+// This class implements A* search for a shortest path on a CompactGraph,
+// spreading the node expansions of a single query over several threads.
+// It follows the "hash distributed" approach: every location is owned by
+// exactly one worker thread, chosen by hashing its index, and only the
+// owner of a location ever records a partial path cost for it, places it
+// on a frontier, or expands it. When a worker expands a location, each
+// child is handled directly if the worker owns it, and otherwise it is
+// sent, as a small message holding the location, its partial path cost,
+// and the road segment used to reach it, to the mailbox of its owner.
+// Each worker keeps its own IndexedHeap frontier, ordered by partial path
+// cost plus heuristic value, and a location is placed on it again whenever
+// a cheaper path to it arrives, so the heuristic need only be admissible.
+//
+// The best path found so far to the destination is recorded by the owner
+// of the destination. Since workers run independently, finding a path
+// does not end the search; it ends only when no worker has a frontier
+// node whose value is below the cost of the best path and no message is
+// still waiting to be handled, at which point no cheaper path can exist.
+// This is detected with a single counter, holding the number of workers
+// that are busy plus the number of messages that have been sent but not
+// yet handled. A worker that runs out of useful work decrements it and
+// waits for mail, and the worker that brings it to zero ends the search.
+//
+// The heuristic is shared by all of the worker threads, so it must not
+// keep any per-query state. GoodHeuristic and LandmarkHeuristic are both
+// suitable, as their CompactGraph versions depend only on the locations
+// given. The "main" method reads a map and a query file, in the format
+// read by RouteQueryService, and reports the speedup of this search over
+// the single-threaded AStarSearch on every query.
+//
+// A SearchMetrics object given with "setMetrics" receives the totals over
+// all of the worker threads, each of which records its own measurements
+// during the search. The frontier peak is the sum of the workers' peaks,
+// and no expansion trace is recorded, since the workers' expansions are
+// not ordered with respect to one another.
+//
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+public class ParallelAStarSearch {
+    CompactGraph graph;
+    Heuristic heuristic = new GoodHeuristic();
+    int limit = Integer.MAX_VALUE;
+    int threadCount;
+    ExecutorService pool;
+    ParallelAStarWorker[] workers;
+    // Per-location state, written only by the owner of each location ...
+    double[] cost;
+    int[] parent;
+    int[] parentRoad;
+    // Per-search state, shared by all workers ...
+    int source;
+    int destination;
+    volatile double bestCost;
+    volatile boolean finished;
+    volatile boolean aborted;
+    AtomicInteger outstanding = new AtomicInteger();
+    AtomicInteger expansions = new AtomicInteger();
+    public int nodeExpansionCount;
+    SearchMetrics metrics = null;
+
+	// Constructor with graph and number of threads specified ...
+	public ParallelAStarSearch(CompactGraph graph, int threadCount) {
+		this.graph = graph;
+		this.threadCount = Math.max(1, threadCount);
+		int n = graph.locationCount();
+		cost = new double[n];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		parent = new int[n];
+		parentRoad = new int[n];
+		workers = new ParallelAStarWorker[this.threadCount];
+		for (int i = 0; i < this.threadCount; i++)
+			workers[i] = new ParallelAStarWorker(this, i);
+		this.pool = Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread worker = new Thread(task, "parallel-astar");
+					worker.setDaemon(true);
+					return (worker);
+				}
+			});
+	}
+
+	// Constructor with street map and number of threads specified ...
+	public ParallelAStarSearch(StreetMap map, int threadCount) {
+		this(new CompactGraph(map), threadCount);
+	}
+
+	// setHeuristic -- Set the heuristic used to order the frontiers. It is
+	// shared by all worker threads, so it must not keep per-query state.
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	// setMetrics -- Record the totals of each search in the given
+	// SearchMetrics object, or, if it is null, record none.
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// setLimit -- Set the maximum number of node expansions per search,
+	// counted over all of the worker threads.
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	// search -- Search for a shortest path from the location with the
+	// given initial name to the location with the given destination name.
+	// Return the final node of the solution path, or null if no solution
+	// was found.
+	public Node search(String initialLoc, String destinationLoc) {
+		SearchPath path = searchPath(initialLoc, destinationLoc);
+		if (path == null)
+			return (null);
+		return (path.toNode());
+	}
+
+	// searchPath -- Search as "search" does, but return the solution as a
+	// SearchPath, without building any Node objects, or null if no
+	// solution was found.
+	public SearchPath searchPath(String initialLoc, String destinationLoc) {
+		nodeExpansionCount = 0;
+		int src = graph.findLocation(initialLoc);
+		int dst = graph.findLocation(destinationLoc);
+		if ((src < 0) || (dst < 0))
+			return (null);
+		if (Double.isInfinite(search(src, dst)))
+			return (null);
+		return (solutionPath());
+	}
+
+	// search -- Search for a shortest path between the locations with the
+	// given indices, using all of the worker threads. Return the cost of
+	// the path found, or positive infinity if there is none or the
+	// expansion limit was reached. The path itself can be recovered with
+	// "solutionPath" until the next search begins.
+	public synchronized double search(int src, int dst) {
+		reset();
+		source = src;
+		destination = dst;
+		bestCost = Double.POSITIVE_INFINITY;
+		finished = false;
+		aborted = false;
+		expansions.set(0);
+		if (metrics != null)
+			metrics.begin();
+		for (ParallelAStarWorker worker : workers)
+			worker.metrics = (metrics != null) ? worker.ownMetrics : null;
+		if (src == dst) {
+			bestCost = 0.0;
+			if (metrics != null)
+				metrics.end();
+			return (bestCost);
+		}
+		// Every worker starts out busy, and the source is handled by its owner ...
+		outstanding.set(threadCount);
+		workers[owner(src)].relax(src, 0.0, -1, -1);
+		List<Future<?>> running = new ArrayList<Future<?>>(threadCount);
+		for (ParallelAStarWorker worker : workers)
+			running.add(pool.submit(worker));
+		for (Future<?> done : running) {
+			try {
+				done.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				aborted = true;
+			} catch (ExecutionException e) {
+				// Something went wrong ...
+				System.err.printf("Parallel A* worker failed: %s\n", e.getCause());
+				aborted = true;
+			}
+		}
+		nodeExpansionCount = expansions.get();
+		if (metrics != null) {
+			metrics.end();
+			for (ParallelAStarWorker worker : workers)
+				metrics.add(worker.ownMetrics);
+		}
+		if (aborted)
+			return (Double.POSITIVE_INFINITY);
+		return (bestCost);
+	}
+
+	// solutionPath -- Return the best path found by the last search, by
+	// following parent references back from the destination.
+	public SearchPath solutionPath() {
+		int count = 1;
+		for (int loc = destination; loc != source; loc = parent[loc])
+			count++;
+		int[] locs = new int[count];
+		int[] roads = new int[count - 1];
+		int i = count - 1;
+		for (int loc = destination; loc != source; loc = parent[loc]) {
+			locs[i] = loc;
+			roads[--i] = parentRoad[loc];
+		}
+		locs[0] = source;
+		return (new SearchPath(graph, locs, roads, count));
+	}
+
+	// shutdown -- Stop the worker threads. No searches may be run after
+	// this is called.
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// owner -- Return the number of the worker that owns the location with
+	// the given index. A multiplicative hash spreads neighboring locations
+	// over different workers.
+	int owner(int loc) {
+		return ((int) (((loc * 0x9E3779B97F4A7C15L) >>> 33) % threadCount));
+	}
+
+	// finish -- End the search, waking any workers that are waiting for
+	// mail.
+	void finish() {
+		finished = true;
+		for (ParallelAStarWorker worker : workers)
+			worker.mailbox.wake();
+	}
+
+	// reset -- Clear the per-location state left by the previous search.
+	void reset() {
+		for (ParallelAStarWorker worker : workers)
+			worker.reset();
+	}
+
+	// main -- Read a map and a query file, named on the command line along
+	// with an optional number of threads, answer every query with both
+	// AStarSearch and this search, and report the time taken by each and
+	// the resulting speedup. The queries are answered once beforehand, to
+	// give the virtual machine a chance to compile the search code.
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: java ParallelAStarSearch <locations> <roads> <queries> [threads]");
+			return;
+		}
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		if (args.length > 3)
+			threadCount = Integer.parseInt(args[3]);
+		CompactGraph graph = CompactGraph.read(args[0], args[1]);
+		if (graph == null) {
+			System.err.println("Error:  Unable to read map.");
+			return;
+		}
+		List<RouteQuery> queries = RouteQueryService.readQueries(args[2]);
+		if (queries == null)
+			return;
+		ParallelAStarSearch parallel = new ParallelAStarSearch(graph, threadCount);
+		long serialTotal = 0;
+		long parallelTotal = 0;
+		int mismatches = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (RouteQuery query : queries) {
+				AStarSearch serial = new AStarSearch(graph, query.initialLoc, query.destinationLoc,
+								     Integer.MAX_VALUE);
+				long start = System.nanoTime();
+				Node solution = serial.search(true);
+				long serialTime = System.nanoTime() - start;
+				start = System.nanoTime();
+				SearchPath path = parallel.searchPath(query.initialLoc, query.destinationLoc);
+				long parallelTime = System.nanoTime() - start;
+				if (pass == 0)
+					continue;
+				double serialCost = (solution == null) ? Double.POSITIVE_INFINITY : solution.partialPathCost;
+				double parallelCost = (path == null) ? Double.POSITIVE_INFINITY : path.pathCost();
+				if (Math.abs(serialCost - parallelCost) > 1.0e-6 * Math.max(1.0, serialCost))
+					mismatches++;
+				serialTotal += serialTime;
+				parallelTotal += parallelTime;
+				System.out.printf("%s %s: A* cost %f, %d expansions, %.3f ms; parallel cost %f, %d expansions, %.3f ms; speedup %.2f\n",
+						  query.initialLoc, query.destinationLoc,
+						  serialCost, serial.nodeExpansionCount, serialTime / 1.0e6,
+						  parallelCost, parallel.nodeExpansionCount, parallelTime / 1.0e6,
+						  (double) serialTime / parallelTime);
+			}
+		}
+		parallel.shutdown();
+		System.out.printf("Answered %d queries: A* %.3f ms, parallel A* on %d threads %.3f ms, speedup %.2f, %d cost mismatches.\n",
+				  queries.size(), serialTotal / 1.0e6, threadCount, parallelTotal / 1.0e6,
+				  (double) serialTotal / parallelTotal, mismatches);
+	}
+
+}
+
+
+class ParallelAStarWorker implements Runnable {
+    ParallelAStarSearch search;
+    int id;
+    IndexedHeap frontier;
+    ParallelAStarMailbox mailbox = new ParallelAStarMailbox();
+    ParallelAStarMailbox received = new ParallelAStarMailbox();
+    int[] touched = new int[64];
+    int touchedCount = 0;
+    SearchMetrics ownMetrics = new SearchMetrics();
+    SearchMetrics metrics = null;     // Set to ownMetrics when measuring ...
+
+	// Constructor with search and worker number specified ...
+	public ParallelAStarWorker(ParallelAStarSearch search, int id) {
+		this.search = search;
+		this.id = id;
+		this.frontier = new IndexedHeap(search.graph.locationCount());
+	}
+
+	// run -- Perform this worker's share of the search, recording its
+	// measurements if they are wanted.
+	public void run() {
+		if (metrics == null) {
+			work();
+			return;
+		}
+		metrics.begin();
+		work();
+		metrics.end();
+	}
+
+	// work -- Expand this worker's frontier nodes, and handle the messages
+	// sent to it, until the search is finished.
+	void work() {
+		while (!search.finished) {
+			// Handle everything that has arrived in the mailbox ...
+			int count = mailbox.takeAll(received);
+			for (int i = 0; i < count; i++)
+				relax(received.locs[i], received.costs[i], received.froms[i], received.roads[i]);
+			if (count > 0)
+				search.outstanding.addAndGet(-count);
+
+			if (!frontier.isEmpty() && (frontier.peekKey() < search.bestCost)) {
+				if (search.expansions.incrementAndGet() > search.limit) {
+					search.aborted = true;
+					search.finish();
+					return;
+				}
+				if (metrics != null)
+					metrics.expanded(frontier.peek(), frontier.peekKey());
+				expand(frontier.removeTop());
+			} else {
+				// Nothing useful to do, so wait for mail or the end of the search ...
+				if (search.outstanding.decrementAndGet() == 0) {
+					search.finish();
+					return;
+				}
+				if (!mailbox.await(search)) {
+					if (search.aborted)
+						search.finish();
+					return;
+				}
+				search.outstanding.incrementAndGet();
+			}
+		}
+	}
+
+	// expand -- Generate the children of the given location, handling
+	// those owned by this worker and sending the others to their owners.
+	void expand(int loc) {
+		CompactGraph graph = search.graph;
+		double g = search.cost[loc];
+		if (metrics != null)
+			metrics.generated(graph.endRoad(loc) - graph.firstRoad(loc));
+		for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+			int next = graph.roadTarget(r);
+			double nextCost = g + graph.roadCost(r);
+			if (nextCost >= search.bestCost)
+				continue;
+			int owner = search.owner(next);
+			if (owner == id) {
+				relax(next, nextCost, loc, r);
+			} else {
+				search.outstanding.incrementAndGet();
+				search.workers[owner].mailbox.put(next, nextCost, loc, r);
+			}
+		}
+	}
+
+	// relax -- Consider reaching the given location, owned by this worker,
+	// with the given partial path cost along the given road segment from
+	// the given location. If this is the cheapest path to it found so far,
+	// record it, and place the location on the frontier, unless it is the
+	// destination, in which case a new best path has been found.
+	void relax(int loc, double g, int from, int road) {
+		if (g >= search.cost[loc])
+			return;
+		boolean reached = !Double.isInfinite(search.cost[loc]);
+		if (!reached) {
+			if (touchedCount == touched.length)
+				touched = Arrays.copyOf(touched, 2 * touchedCount);
+			touched[touchedCount++] = loc;
+		}
+		search.cost[loc] = g;
+		search.parent[loc] = from;
+		search.parentRoad[loc] = road;
+		if (loc == search.destination) {
+			search.bestCost = g;
+			return;
+		}
+		double f = g + search.heuristic.heuristicValue(search.graph, loc, search.destination);
+		if (metrics != null)
+			metrics.heuristicEvaluated();
+		if (f < search.bestCost) {
+			frontier.decreaseKey(loc, f);
+			if (metrics != null) {
+				if (reached)
+					metrics.reopened();
+				metrics.frontierSize(frontier.size());
+			}
+		}
+	}
+
+	// reset -- Clear the state of the locations touched by the previous
+	// search.
+	void reset() {
+		for (int i = 0; i < touchedCount; i++)
+			search.cost[touched[i]] = Double.POSITIVE_INFINITY;
+		touchedCount = 0;
+		frontier.clear();
+		mailbox.clear();
+	}
+
+}
+
+
+class ParallelAStarMailbox {
+    int[] locs = new int[64];
+    double[] costs = new double[64];
+    int[] froms = new int[64];
+    int[] roads = new int[64];
+    int count = 0;
+    boolean waiting = false;
+
+	// put -- Add a message to this mailbox, waking its owner if it is
+	// waiting.
+	public synchronized void put(int loc, double g, int from, int road) {
+		if (count == locs.length) {
+			int capacity = 2 * count;
+			locs = Arrays.copyOf(locs, capacity);
+			costs = Arrays.copyOf(costs, capacity);
+			froms = Arrays.copyOf(froms, capacity);
+			roads = Arrays.copyOf(roads, capacity);
+		}
+		locs[count] = loc;
+		costs[count] = g;
+		froms[count] = from;
+		roads[count] = road;
+		count++;
+		if (waiting)
+			notify();
+	}
+
+	// takeAll -- Move every message in this mailbox into the given one,
+	// which must be empty, by exchanging their arrays. Return the number
+	// of messages moved.
+	public synchronized int takeAll(ParallelAStarMailbox into) {
+		int[] swapLocs = locs;
+		double[] swapCosts = costs;
+		int[] swapFroms = froms;
+		int[] swapRoads = roads;
+		locs = into.locs;
+		costs = into.costs;
+		froms = into.froms;
+		roads = into.roads;
+		into.locs = swapLocs;
+		into.costs = swapCosts;
+		into.froms = swapFroms;
+		into.roads = swapRoads;
+		into.count = count;
+		count = 0;
+		return (into.count);
+	}
+
+	// await -- Wait until a message arrives or the given search finishes.
+	// Return true if there is mail to handle.
+	public synchronized boolean await(ParallelAStarSearch search) {
+		waiting = true;
+		try {
+			while ((count == 0) && !search.finished)
+				wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			search.aborted = true;
+		} finally {
+			waiting = false;
+		}
+		return ((count > 0) && !search.finished);
+	}
+
+	// wake -- Wake the owner of this mailbox if it is waiting.
+	public synchronized void wake() {
+		notifyAll();
+	}
+
+	// clear -- Discard any messages left in this mailbox.
+	public synchronized void clear() {
+		count = 0;
+	}
+
+}
@@ -0,0 +1,300 @@
+//
+// ParetoSearch
+//
+// This class implements multi-criteria, time-dependent shortest-path
+// search over a CompactGraph whose road segments are described by a
+// RoadProfiles object. The first criterion is travel time, starting from
+// a given departure time, with the cost of each road segment taken from
+// its profile at the time it is entered. The remaining criteria are the
+// further criteria of the RoadProfiles object (such as distance or tolls),
+// which are simply added up along the path. Rather than one best path, the
+// search finds every Pareto-optimal path: every path for which no other
+// path is at least as good in every criterion. With no further criteria,
+// this is simply time-dependent uniform-cost search, finding the earliest
+// arrival.
+//
+// The search is a label-setting search (Martins' algorithm). A "label"
+// records a location, the label it was reached from, the road segment
+// taken, and the cost so far in each criterion. Labels are taken from the
+// frontier in lexicographic order of their costs, so a label that leaves
+// the frontier can never be dominated by one that leaves it later, and it
+// becomes permanent, unless it is dominated by (or equal to) a permanent
+// label at the same location or at the destination, in which case it is
+// dropped. Each location may thus have many permanent labels, which are
+// kept in a list threaded through the label arrays, latest first. (With
+// just two criteria, each permanent label is better in the second than
+// every earlier one, so only the latest one no later in travel time need
+// be compared with a new label.) New labels are also
+// dropped as soon as they are generated if a permanent label already
+// dominates them. All labels, and the lists of permanent labels, are
+// kept in primitive arrays that are reused from one search to the next,
+// and the frontier is an IndexedHeap of label indices, so the expansion
+// loop does not allocate objects once the arrays have grown large enough.
+//
+// The "limit" is on the number of labels made permanent, counted in
+// "nodeExpansionCount". If the limit is reached, the solutions found so
+// far are still Pareto-optimal, but some may be missing. The solutions
+// are ordered by travel time, and each can be returned as a SearchPath or
+// as a chain of Node objects. Node objects carry only the usual costs of
+// the road segments, so the costs of a solution in each criterion should
+// be taken from "solutionCost". A SearchMetrics object given with
+// "setMetrics" is told of every permanent label (as an expansion, keyed by
+// its travel time), generated label, frontier size, and label that was
+// dropped after reaching the frontier (as a reopening).
+//
+
+
+import java.util.*;
+
+
+public class ParetoSearch {
+    CompactGraph graph;
+    RoadProfiles profiles;
+    int dimensions;            // Travel time, plus the further criteria ...
+    public int nodeExpansionCount;
+    SearchMetrics metrics = null;
+
+    // Labels ...
+    int labelCount = 0;
+    int[] labelLocation = new int[64];
+    int[] labelParent = new int[64];
+    int[] labelRoad = new int[64];
+    int[] labelNext = new int[64];     // Next permanent label at the same location ...
+    double[] labelCost;                // Cost of label "l" in criterion "d" at l * dimensions + d ...
+
+    // Permanent labels at each location, stamped with the search number ...
+    int[] permanentFirst = new int[0];
+    int[] permanentStamp = new int[0];
+    int epoch = 0;
+
+    // Solutions of the last search, in order of travel time ...
+    int[] solutions = new int[8];
+    int solutionCount = 0;
+
+    ParetoQueue frontier;
+
+	// Constructor with road profiles specified ...
+	public ParetoSearch(RoadProfiles profiles) {
+		this.profiles = profiles;
+		this.graph = profiles.getGraph();
+		this.dimensions = 1 + profiles.criteriaCount();
+		this.labelCost = new double[64 * dimensions];
+		this.frontier = new ParetoQueue(this);
+	}
+
+	// setMetrics -- Record measurements of each search in the given
+	// SearchMetrics object, or, if it is null, record none.
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// search -- Find the Pareto-optimal paths from the location with the
+	// given initial name to the location with the given destination name,
+	// leaving at the given time, making at most "limit" labels permanent.
+	// Return the number of solutions found, or -1 if either location does
+	// not exist.
+	public int search(String initialLoc, String destinationLoc, double departureTime, int limit) {
+		nodeExpansionCount = 0;
+		solutionCount = 0;
+		int source = graph.findLocation(initialLoc);
+		int destination = graph.findLocation(destinationLoc);
+		if ((source < 0) || (destination < 0))
+			return (-1);
+		return (search(source, destination, departureTime, limit));
+	}
+
+	// search -- Find the Pareto-optimal paths between the locations with
+	// the given indices, as above, returning the number found.
+	int search(int source, int destination, double departureTime, int limit) {
+		if (metrics == null)
+			return (labelSetting(source, destination, departureTime, limit));
+		metrics.begin();
+		int found = labelSetting(source, destination, departureTime, limit);
+		metrics.end();
+		return (found);
+	}
+
+	// labelSetting -- Perform the search for "search".
+	int labelSetting(int source, int destination, double departureTime, int limit) {
+		nodeExpansionCount = 0;
+		solutionCount = 0;
+		labelCount = 0;
+		frontier.clear();
+		beginEpoch();
+
+		int root = addLabel(source, -1, -1);
+		for (int d = 0; d < dimensions; d++)
+			labelCost[root * dimensions + d] = 0.0;
+		frontier.insert(root, 0.0);
+
+		while (!frontier.isEmpty() && nodeExpansionCount < limit) {
+			int label = frontier.removeTop();
+			int loc = labelLocation[label];
+			// Drop labels beaten since they were generated ...
+			if (dominated(label, loc) || ((loc != destination) && dominated(label, destination))) {
+				if (metrics != null)
+					metrics.reopened();
+				continue;
+			}
+			makePermanent(label, loc);
+			nodeExpansionCount++;
+			if (metrics != null)
+				metrics.expanded(loc, labelCost[label * dimensions]);
+			if (loc == destination) {
+				addSolution(label);
+				continue;
+			}
+
+			// expand label
+			double time = departureTime + labelCost[label * dimensions];
+			if (metrics != null)
+				metrics.generated(graph.endRoad(loc) - graph.firstRoad(loc));
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++) {
+				int child = graph.roadTarget(r);
+				int entry = addLabel(child, label, r);
+				int base = entry * dimensions;
+				int parentBase = label * dimensions;
+				labelCost[base] = labelCost[parentBase] + profiles.travelCost(r, time);
+				for (int c = 1; c < dimensions; c++)
+					labelCost[base + c] = labelCost[parentBase + c] + profiles.criterion(r, c - 1);
+				if (dominated(entry, child) || dominated(entry, destination)) {
+					// Not needed, so reuse its slot ...
+					labelCount--;
+					continue;
+				}
+				frontier.insert(entry, labelCost[base]);
+				if (metrics != null)
+					metrics.frontierSize(frontier.size());
+			}
+		}
+		return (solutionCount);
+	}
+
+	// solutionCount -- Return the number of solutions found by the last
+	// search.
+	public int solutionCount() {
+		return (solutionCount);
+	}
+
+	// solutionCost -- Return the cost of the given solution in the given
+	// criterion, where criterion 0 is travel time, and criterion "c + 1"
+	// is further criterion "c" of the road profiles.
+	public double solutionCost(int solution, int criterion) {
+		return (labelCost[solutions[solution] * dimensions + criterion]);
+	}
+
+	// solutionPath -- Return the path of the given solution.
+	public SearchPath solutionPath(int solution) {
+		return (SearchPath.fromParents(graph, solutions[solution], labelParent, labelLocation, labelRoad));
+	}
+
+	// solutionNode -- Return the destination node of the path of the given
+	// solution, as a chain of Node objects.
+	public Node solutionNode(int solution) {
+		return (solutionPath(solution).toNode());
+	}
+
+	// dominated -- Return true if and only if a permanent label at the
+	// given location is at least as good as the given label in every
+	// criterion.
+	boolean dominated(int label, int loc) {
+		if (permanentStamp[loc] != epoch)
+			return (false);
+		int base = label * dimensions;
+		for (int other = permanentFirst[loc]; other >= 0; other = labelNext[other]) {
+			int otherBase = other * dimensions;
+			if ((dimensions <= 2) && (labelCost[otherBase] <= labelCost[base])) {
+				// The list runs from latest to earliest, and with two
+				// criteria each permanent label is better in the second
+				// than all earlier ones, so this is the only one to check ...
+				return ((dimensions == 1) || (labelCost[otherBase + 1] <= labelCost[base + 1]));
+			}
+			int d = 0;
+			while ((d < dimensions) && (labelCost[otherBase + d] <= labelCost[base + d]))
+				d++;
+			if (d == dimensions)
+				return (true);
+		}
+		return (false);
+	}
+
+	// makePermanent -- Add the given label to the list of permanent labels
+	// at the given location.
+	void makePermanent(int label, int loc) {
+		if (permanentStamp[loc] != epoch) {
+			permanentStamp[loc] = epoch;
+			permanentFirst[loc] = -1;
+		}
+		labelNext[label] = permanentFirst[loc];
+		permanentFirst[loc] = label;
+	}
+
+	// beginEpoch -- Forget the permanent labels of the previous search,
+	// without clearing the per-location arrays.
+	void beginEpoch() {
+		int n = graph.locationCount();
+		if (permanentStamp.length < n) {
+			permanentFirst = new int[n];
+			permanentStamp = new int[n];
+			epoch = 0;
+		}
+		epoch++;
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(permanentStamp, 0);
+			epoch = 1;
+		}
+	}
+
+	// addSolution -- Record the given permanent label at the destination
+	// as a solution.
+	void addSolution(int label) {
+		if (solutionCount == solutions.length)
+			solutions = Arrays.copyOf(solutions, 2 * solutionCount);
+		solutions[solutionCount++] = label;
+	}
+
+	// addLabel -- Record a new label, with its costs to be filled in by the
+	// caller, returning its index.
+	int addLabel(int loc, int parent, int road) {
+		if (labelCount == labelLocation.length) {
+			int capacity = 2 * labelCount;
+			labelLocation = Arrays.copyOf(labelLocation, capacity);
+			labelParent = Arrays.copyOf(labelParent, capacity);
+			labelRoad = Arrays.copyOf(labelRoad, capacity);
+			labelNext = Arrays.copyOf(labelNext, capacity);
+			labelCost = Arrays.copyOf(labelCost, capacity * dimensions);
+		}
+		labelLocation[labelCount] = loc;
+		labelParent[labelCount] = parent;
+		labelRoad[labelCount] = road;
+		labelNext[labelCount] = -1;
+		return (labelCount++);
+	}
+
+}
+
+
+class ParetoQueue extends IndexedHeap {
+    ParetoSearch search;
+
+	// Constructor with the search whose labels are queued specified ...
+	ParetoQueue(ParetoSearch search) {
+		this.search = search;
+	}
+
+	// less -- Return true if and only if the first label should be removed
+	// before the second, comparing their costs in each criterion in turn,
+	// then their indices.
+	boolean less(int id1, int id2) {
+		double[] cost = search.labelCost;
+		int dimensions = search.dimensions;
+		int base1 = id1 * dimensions;
+		int base2 = id2 * dimensions;
+		for (int d = 0; d < dimensions; d++) {
+			if (cost[base1 + d] != cost[base2 + d])
+				return (cost[base1 + d] < cost[base2 + d]);
+		}
+		return (id1 < id2);
+	}
+
+}
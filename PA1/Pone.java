@@ -122,6 +122,104 @@ public class Pone {
 			}
 			System.out.printf("Number of Node Expansions = %d.\n", as.nodeExpansionCount);
 
+			// Testing A* search with the landmark heuristic ...
+			System.out.println("TESTING A* SEARCH WITH LANDMARK HEURISTIC");
+			as.setHeuristic(new LandmarkHeuristic(graph, 4));
+			solution = as.search(true);
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", as.nodeExpansionCount);
+
+			// Testing IDA* search ...
+			System.out.println("TESTING IDA* SEARCH WITH REPEATED STATE CHECKING");
+			IDAStarSearch idas = new IDAStarSearch(graph, initialLoc, destinationLoc, limit);
+			solution = idas.search(true);
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", idas.nodeExpansionCount);
+
+			// Testing simplified memory-bounded A* search ...
+			System.out.println("TESTING SMA* SEARCH WITH REPEATED STATE CHECKING");
+			SMAStarSearch smas = new SMAStarSearch(graph, initialLoc, destinationLoc, limit);
+			smas.setNodeBudget(100);
+			solution = smas.search(true);
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", smas.nodeExpansionCount);
+
+			// Testing bidirectional uniform-cost search ...
+			System.out.println("TESTING BIDIRECTIONAL UNIFORM-COST SEARCH");
+			CompactGraph compactGraph = new CompactGraph(graph);
+			BidirectionalSearch bus = new BidirectionalSearch(compactGraph, initialLoc, destinationLoc, limit);
+			solution = bus.search();
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", bus.nodeExpansionCount);
+
+			// Testing bidirectional A* search ...
+			System.out.println("TESTING BIDIRECTIONAL A* SEARCH");
+			BidirectionalSearch bas = new BidirectionalSearch(compactGraph, initialLoc, destinationLoc, limit,
+									  new GoodHeuristic());
+			solution = bas.search();
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", bas.nodeExpansionCount);
+
+			// Testing parallel A* search ...
+			System.out.println("TESTING PARALLEL A* SEARCH");
+			ParallelAStarSearch pas = new ParallelAStarSearch(compactGraph,
+									  Runtime.getRuntime().availableProcessors());
+			pas.setLimit(limit);
+			solution = pas.search(initialLoc, destinationLoc);
+			pas.shutdown();
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", pas.nodeExpansionCount);
+
+			// Testing contraction hierarchy search ...
+			System.out.println("TESTING CONTRACTION HIERARCHY SEARCH");
+			ContractionHierarchy hierarchy = ContractionHierarchy.build(compactGraph);
+			ContractionSearch chs = new ContractionSearch(hierarchy, initialLoc, destinationLoc, limit);
+			solution = chs.search();
+			System.out.println("Solution:");
+			if (solution == null) {
+				System.out.println("None found.");
+			} else {
+				solution.reportSolution(System.out);
+				System.out.printf("Path Cost = %f.\n", solution.partialPathCost);
+			}
+			System.out.printf("Number of Node Expansions = %d.\n", chs.nodeExpansionCount);
+
 			// Done ...
 			System.out.println("ALGORITHM COMPARISON COMPLETE");
 		} catch (IOException e) {
@@ -0,0 +1,19 @@
+//
+// RoadCostListener
+//
+// This interface is implemented by objects that must be told whenever the
+// cost of a road segment on a StreetMap is changed with "setRoadCost", such
+// as incremental searches and caches of routes. Listeners are registered
+// with the map's "addRoadCostListener" method.
+//
+
+
+public interface RoadCostListener {
+
+	// roadCostChanged -- Called after the cost of the given road segment
+	// has been changed from the given old cost to its current cost. This
+	// is called by the thread that made the change, while it holds the
+	// map's lock, so it must be quick and must not change the map.
+	void roadCostChanged(Road road, double oldCost);
+
+}
@@ -0,0 +1,260 @@
+//
+// RoadProfiles
+//
+// This class adds time-dependent costs, and any number of further cost
+// criteria (such as distance or tolls), to the road segments of a
+// CompactGraph, without copying the graph. Road segments are identified
+// by their indices in the graph, and everything is kept in primitive
+// arrays, so finding the cost of a road segment never allocates an object.
+//
+// A time-dependent cost is given by a "profile": a piecewise-linear
+// function of the time of day, repeating with a fixed period (such as
+// 1440, if times are given in minutes), described by a list of
+// breakpoints, each a time within the period and a factor by which the
+// road segment's usual cost is multiplied at that time. Between
+// breakpoints the factor is interpolated linearly, and after the last
+// breakpoint it is interpolated toward the first one, a period later.
+// Profiles are stored once, in one table, and any number of road segments
+// may share the same profile (for example, one for every arterial road).
+// A road segment with no profile always costs its usual cost. Costs are
+// treated as travel times, in the same units as the period, so that
+// leaving at time "t" along a road segment arrives at time
+// "t + travelCost(road, t)". A profile is only attached to a road segment
+// if leaving later can never mean arriving earlier (the "first in, first
+// out" property), which is what allows label-setting searches, such as
+// ParetoSearch, to find optimal paths without ever waiting.
+//
+// The further criteria are kept in one array, with a fixed number of
+// values for each road segment, and are all zero until set. They must not
+// be negative.
+//
+
+
+import java.util.*;
+
+
+public class RoadProfiles {
+    CompactGraph graph;
+    double period;
+
+    // Profile table: the breakpoints of profile "p" are those with indices
+    // from "profileFirst[p]" up to (but not including) "profileFirst[p+1]" ...
+    int profileCount = 0;
+    int[] profileFirst = new int[] { 0 };
+    double[] pointTime = new double[16];
+    double[] pointFactor = new double[16];
+    double[] profileMinSlope = new double[4];    // Steepest fall in factor per unit time ...
+    double[] profileMaxFactor = new double[4];
+    int pointCount = 0;
+
+    // Per-road state ...
+    int[] roadProfile;         // Profile of each road segment, or -1 if none ...
+    int criteriaCount;
+    String[] criteriaNames;
+    double[] criteria;         // Value of criterion "c" for road "r" at r * criteriaCount + c ...
+
+	// Constructor with graph, period, and names of the further criteria
+	// specified ...
+	public RoadProfiles(CompactGraph graph, double period, String... criteriaNames) {
+		this.graph = graph;
+		this.period = period;
+		this.criteriaNames = criteriaNames.clone();
+		this.criteriaCount = criteriaNames.length;
+		this.roadProfile = new int[graph.roadCount()];
+		Arrays.fill(roadProfile, -1);
+		this.criteria = new double[graph.roadCount() * criteriaCount];
+	}
+
+	// getGraph -- Return the graph whose road segments are described.
+	public CompactGraph getGraph() {
+		return (graph);
+	}
+
+	// period -- Return the length of the repeating period of the profiles.
+	public double period() {
+		return (period);
+	}
+
+	// criteriaCount -- Return the number of further criteria.
+	public int criteriaCount() {
+		return (criteriaCount);
+	}
+
+	// criterionName -- Return the name of the given further criterion.
+	public String criterionName(int c) {
+		return (criteriaNames[c]);
+	}
+
+	// addProfile -- Add a profile with the given breakpoint times, which
+	// must be increasing and within the period, and the given factors,
+	// which must be positive. Return the index of the new profile, or -1
+	// if the breakpoints are not allowed.
+	public int addProfile(double[] times, double[] factors) {
+		int n = times.length;
+		if ((n == 0) || (factors.length != n)) {
+			System.err.println("A profile needs one factor for each of at least one breakpoint.");
+			return (-1);
+		}
+		for (int i = 0; i < n; i++) {
+			if (!(times[i] >= 0.0) || !(times[i] < period) || ((i > 0) && !(times[i] > times[i - 1]))) {
+				System.err.printf("Bad profile breakpoint time: %f\n", times[i]);
+				return (-1);
+			}
+			if (!(factors[i] > 0.0) || Double.isInfinite(factors[i])) {
+				System.err.printf("Bad profile factor: %f\n", factors[i]);
+				return (-1);
+			}
+		}
+		if (profileCount + 2 > profileFirst.length)
+			profileFirst = Arrays.copyOf(profileFirst, 2 * (profileCount + 2));
+		if (profileCount == profileMinSlope.length) {
+			profileMinSlope = Arrays.copyOf(profileMinSlope, 2 * profileCount);
+			profileMaxFactor = Arrays.copyOf(profileMaxFactor, 2 * profileCount);
+		}
+		if (pointCount + n > pointTime.length) {
+			int capacity = Math.max(2 * pointTime.length, pointCount + n);
+			pointTime = Arrays.copyOf(pointTime, capacity);
+			pointFactor = Arrays.copyOf(pointFactor, capacity);
+		}
+		double minSlope = 0.0;
+		double maxFactor = 0.0;
+		for (int i = 0; i < n; i++) {
+			pointTime[pointCount + i] = times[i];
+			pointFactor[pointCount + i] = factors[i];
+			// The last breakpoint leads back to the first, a period later ...
+			int next = (i + 1) % n;
+			double span = (next > i) ? (times[next] - times[i]) : (times[next] + period - times[i]);
+			minSlope = Math.min(minSlope, (factors[next] - factors[i]) / span);
+			maxFactor = Math.max(maxFactor, factors[i]);
+		}
+		pointCount += n;
+		profileMinSlope[profileCount] = minSlope;
+		profileMaxFactor[profileCount] = maxFactor;
+		profileFirst[profileCount + 1] = pointCount;
+		return (profileCount++);
+	}
+
+	// setProfile -- Give the given road segment the given profile, or no
+	// profile if it is -1. Return false, changing nothing, if the profile
+	// would let a later departure along this road segment arrive earlier.
+	public boolean setProfile(int road, int profile) {
+		if (profile >= 0) {
+			if (profile >= profileCount) {
+				System.err.printf("No such profile: %d\n", profile);
+				return (false);
+			}
+			if (graph.roadCost(road) * profileMinSlope[profile] < -1.0) {
+				System.err.printf("Profile %d falls too steeply for road segment %s.\n",
+						  profile, graph.roadName(road));
+				return (false);
+			}
+		}
+		roadProfile[road] = profile;
+		return (true);
+	}
+
+	// getProfile -- Return the profile of the given road segment, or -1 if
+	// it has none.
+	public int getProfile(int road) {
+		return (roadProfile[road]);
+	}
+
+	// setCriterion -- Set the value of the given further criterion for the
+	// given road segment. Return false, changing nothing, if the value is
+	// negative or not a number.
+	public boolean setCriterion(int road, int c, double value) {
+		if (!(value >= 0.0)) {
+			System.err.printf("Bad %s for road segment %s: %f\n", criteriaNames[c],
+					  graph.roadName(road), value);
+			return (false);
+		}
+		criteria[road * criteriaCount + c] = value;
+		return (true);
+	}
+
+	// criterion -- Return the value of the given further criterion for the
+	// given road segment.
+	public double criterion(int road, int c) {
+		return (criteria[road * criteriaCount + c]);
+	}
+
+	// setDistances -- Set the given further criterion, for every road
+	// segment, to the straight line distance between its locations.
+	public void setDistances(int c) {
+		for (int loc = 0; loc < graph.locationCount(); loc++) {
+			for (int r = graph.firstRoad(loc); r < graph.endRoad(loc); r++)
+				criteria[r * criteriaCount + c] = graph.distance(loc, graph.roadTarget(r));
+		}
+	}
+
+	// findRoad -- Return the index of the first road segment leading from
+	// the location with the first given name to the location with the
+	// second given name, or -1 if there is none.
+	public int findRoad(String fromName, String toName) {
+		int from = graph.findLocation(fromName);
+		int to = graph.findLocation(toName);
+		if ((from < 0) || (to < 0))
+			return (-1);
+		for (int r = graph.firstRoad(from); r < graph.endRoad(from); r++) {
+			if (graph.roadTarget(r) == to)
+				return (r);
+		}
+		return (-1);
+	}
+
+	// travelCost -- Return the cost of the given road segment for a
+	// departure at the given time.
+	public double travelCost(int road, double time) {
+		int profile = roadProfile[road];
+		if (profile < 0)
+			return (graph.roadCost(road));
+		return (graph.roadCost(road) * factor(profile, time));
+	}
+
+	// maxTravelCost -- Return the largest cost of the given road segment at
+	// any time of day.
+	public double maxTravelCost(int road) {
+		int profile = roadProfile[road];
+		if (profile < 0)
+			return (graph.roadCost(road));
+		return (graph.roadCost(road) * profileMaxFactor[profile]);
+	}
+
+	// factor -- Return the factor of the given profile at the given time,
+	// interpolating between the breakpoints on either side of it.
+	double factor(int profile, double time) {
+		int first = profileFirst[profile];
+		int end = profileFirst[profile + 1];
+		double t = time % period;
+		if (t < 0.0)
+			t += period;
+		// Find the last breakpoint at or before the time ...
+		int low = first;
+		int high = end - 1;
+		if (t < pointTime[first]) {
+			low = end - 1;
+		} else {
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (pointTime[middle] <= t)
+					low = middle;
+				else
+					high = middle - 1;
+			}
+		}
+		int next = (low + 1 < end) ? (low + 1) : first;
+		double startTime = pointTime[low];
+		double endTime = pointTime[next];
+		if (next <= low) {
+			// Wrapping around the end of the period ...
+			endTime += period;
+			if (t < startTime)
+				t += period;
+		}
+		if (endTime <= startTime)
+			return (pointFactor[low]);
+		double fraction = (t - startTime) / (endTime - startTime);
+		return (pointFactor[low] + fraction * (pointFactor[next] - pointFactor[low]));
+	}
+
+}
@@ -0,0 +1,11 @@
+//
+// RouteAlgorithm
+//
+// This enumeration names the search algorithms that can answer a query
+// given to RouteQueryService or RouteCache: uniform-cost search, greedy
+// search, A* search, bidirectional uniform-cost search, bidirectional A*
+// search, and contraction hierarchy search.
+//
+
+
+public enum RouteAlgorithm { ucs, greedy, astar, biucs, biastar, ch }
@@ -0,0 +1,417 @@
+//
+// RouteCache
+//
+// This class answers shortest-path queries on a StreetMap, remembering
+// the answers so that a query that has been answered before is not
+// searched for again. Each answer is keyed by the initial location name,
+// the destination location name, the search algorithm (one of those of
+// RouteQueryService), and whether repeated state checking was requested,
+// and it is stored as a SearchPath, which holds only the location and road
+// segment indices of the path, or as the fact that no path was found.
+//
+// The cache holds at most a fixed number of answers. When it is full, the
+// answer that was least recently used is discarded to make room for a new
+// one. The numbers of queries answered from the cache ("hits") and by
+// searching ("misses") are counted. Any number of threads may use the
+// cache at once: the table of answers is only touched while holding a
+// lock, while searches run outside of it, on search objects belonging to
+// the calling thread. Two threads that miss on the same query at the same
+// time may both search for it.
+//
+// Searches are run over a CompactGraph built from the map. The map's
+// version number is checked on every query, and, if the map has been
+// changed (for example, by being read again), every answer is discarded
+// and the CompactGraph is rebuilt. Changes to road segment costs, made
+// with the map's "setRoadCost", do not change its version: the cache is a
+// RoadCostListener, and, at the next query, it makes a new CompactGraph
+// sharing everything but the costs with the old one, with the new costs
+// filled in. If no cost was lowered, only answers whose paths use a
+// changed road segment, or that might depend on costs off their paths
+// (those found by greedy search, without repeated state checking, or with
+// an expansion limit), are discarded, since every other path found is
+// still a shortest path. If any cost was lowered, every answer is
+// discarded. The graph is rebuilt or refreshed outside of the lock, so
+// other threads can keep answering queries from the cache meanwhile. A
+// heuristic supplied with "setHeuristic" must remain admissible when costs
+// change. A contraction hierarchy supplied for "ch" queries is discarded
+// after any change, since it no longer matches the map.
+// While there is no hierarchy, "ch" queries are answered by bidirectional
+// uniform-cost search, which finds paths of the same cost, but those
+// answers are not kept, so that they are not mistaken for answers from a
+// hierarchy supplied later. Changing the heuristic or the expansion limit
+// also empties the cache.
+//
+
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+
+public class RouteCache implements RoadCostListener {
+    StreetMap map;
+    volatile int mapVersion;
+    CompactGraph graph;
+    ContractionHierarchy hierarchy = null;
+    Heuristic heuristic = new GoodHeuristic();
+    int limit = Integer.MAX_VALUE;
+    int generation = 0;          // Changes whenever searches must be rebuilt ...
+    LinkedHashMap<RouteCacheKey, RouteCacheEntry> routes;
+    AtomicLong hits = new AtomicLong();
+    AtomicLong misses = new AtomicLong();
+    ThreadLocal<RouteCacheWorker> workers = new ThreadLocal<RouteCacheWorker>();
+
+    // Road segments whose costs have changed, guarded by "changedRoads" ...
+    List<Road> changedRoads = new ArrayList<Road>();
+    volatile boolean costsChanged = false;
+    Object refreshLock = new Object();     // Held while the graph is rebuilt ...
+
+	// Constructor with map and capacity specified ...
+	public RouteCache(StreetMap map, final int capacity) {
+		this.map = map;
+		this.mapVersion = map.getVersion();
+		this.graph = new CompactGraph(map);
+		this.routes = new LinkedHashMap<RouteCacheKey, RouteCacheEntry>(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry<RouteCacheKey, RouteCacheEntry> eldest) {
+					return (size() > capacity);
+				}
+			};
+		map.addRoadCostListener(this);
+	}
+
+	// close -- Stop being told of changes to the map's road segment costs.
+	// Answers given after this may not reflect later cost changes.
+	public void close() {
+		map.removeRoadCostListener(this);
+	}
+
+	// roadCostChanged -- Remember that the cost of the given road segment
+	// has changed, so the graph is refreshed before the next query.
+	public void roadCostChanged(Road road, double oldCost) {
+		synchronized (changedRoads) {
+			changedRoads.add(road);
+			costsChanged = true;
+		}
+	}
+
+	// setHierarchy -- Set the contraction hierarchy used by "ch" queries.
+	// It must have been built for the graph returned by "getGraph".
+	public synchronized void setHierarchy(ContractionHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+		invalidate();
+	}
+
+	// setHeuristic -- Set the heuristic used by the informed searches. It
+	// is shared by all of the threads, so it must not keep per-query state.
+	public synchronized void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+		invalidate();
+	}
+
+	// setLimit -- Set the maximum number of node expansions per search.
+	public synchronized void setLimit(int limit) {
+		this.limit = limit;
+		invalidate();
+	}
+
+	// getGraph -- Return the CompactGraph that searches are run over,
+	// rebuilding it first if the map has changed.
+	public CompactGraph getGraph() {
+		checkMap();
+		synchronized (this) {
+			return (graph);
+		}
+	}
+
+	// search -- Return the path found by the given algorithm from the
+	// location with the given initial name to the location with the given
+	// destination name, or null if no path is found, taking it from the
+	// cache if this query has been answered before.
+	public SearchPath search(String initialLoc, String destinationLoc, RouteAlgorithm algorithm,
+				 boolean repeatedStateChecking) {
+		RouteCacheKey key = new RouteCacheKey(initialLoc, destinationLoc, algorithm, repeatedStateChecking);
+		RouteCacheWorker worker;
+		checkMap();
+		synchronized (this) {
+			RouteCacheEntry entry = routes.get(key);
+			if (entry != null) {
+				hits.incrementAndGet();
+				return (entry.path);
+			}
+			misses.incrementAndGet();
+			worker = workers.get();
+			if ((worker == null) || (worker.generation != generation)) {
+				worker = new RouteCacheWorker(this);
+				workers.set(worker);
+			}
+		}
+		SearchPath path = worker.search(key);
+		synchronized (this) {
+			// Only keep the answer if nothing changed during the search,
+			// and the requested algorithm was the one used ...
+			if ((worker.generation == generation) && !worker.substituted)
+				routes.put(key, new RouteCacheEntry(path));
+		}
+		return (path);
+	}
+
+	// searchNode -- Answer a query as "search" does, but return the final
+	// node of the path found, as the search classes do, or null.
+	public Node searchNode(String initialLoc, String destinationLoc, RouteAlgorithm algorithm,
+			       boolean repeatedStateChecking) {
+		SearchPath path = search(initialLoc, destinationLoc, algorithm, repeatedStateChecking);
+		if (path == null)
+			return (null);
+		return (path.toNode());
+	}
+
+	// invalidate -- Discard every answer in the cache.
+	public synchronized void invalidate() {
+		routes.clear();
+		generation++;
+	}
+
+	// size -- Return the number of answers in the cache.
+	public synchronized int size() {
+		return (routes.size());
+	}
+
+	// hitCount -- Return the number of queries answered from the cache.
+	public long hitCount() {
+		return (hits.get());
+	}
+
+	// missCount -- Return the number of queries answered by searching.
+	public long missCount() {
+		return (misses.get());
+	}
+
+	// checkMap -- If the map has changed since the graph was built, discard
+	// every answer and rebuild the graph, or, if only road segment costs
+	// have changed, refresh the costs and discard the answers they affect.
+	// The caller must not hold the lock, which is only taken to install the
+	// new graph.
+	void checkMap() {
+		if ((map.getVersion() == mapVersion) && !costsChanged)
+			return;
+		synchronized (refreshLock) {
+			int version = map.getVersion();
+			List<Road> changes;
+			synchronized (changedRoads) {
+				changes = new ArrayList<Road>(changedRoads);
+				changedRoads.clear();
+				costsChanged = false;
+			}
+			CompactGraph old;
+			synchronized (this) {
+				old = graph;
+			}
+			if (version != mapVersion) {
+				// Rebuilt from the map, so it has every cost change too ...
+				CompactGraph rebuilt = new CompactGraph(map);
+				synchronized (this) {
+					graph = rebuilt;
+					hierarchy = null;
+					mapVersion = version;
+					invalidate();
+				}
+			} else if (!changes.isEmpty()) {
+				refreshCosts(old, changes);
+			}
+		}
+	}
+
+	// refreshCosts -- Install a copy of the given graph with the costs of
+	// the given road segments brought up to date, discarding the answers
+	// that may no longer be right. The caller must hold "refreshLock".
+	void refreshCosts(CompactGraph old, List<Road> changes) {
+		double[] costs = old.copyCosts();
+		double ratio = old.costPerDistance();
+		boolean lowered = false;
+		Set<Integer> changed = new HashSet<Integer>();
+		for (Road r : changes) {
+			int index = roadIndex(old, r);
+			if (index < 0) {
+				// Not where the graph has it, so rebuild after all ...
+				CompactGraph rebuilt = new CompactGraph(map);
+				synchronized (this) {
+					graph = rebuilt;
+					hierarchy = null;
+					invalidate();
+				}
+				return;
+			}
+			double cost = r.cost;
+			if (cost < costs[index])
+				lowered = true;
+			costs[index] = cost;
+			changed.add(index);
+			// Keep the heuristic's ratio from overestimating ...
+			double d = old.distance(r.fromLocation.index, r.toLocation.index);
+			if (d > 0.0)
+				ratio = Math.min(ratio, Math.max(0.0, (cost / d) * (1.0 - 1.0e-6)));
+		}
+		CompactGraph refreshed = old.withCosts(costs, ratio);
+		synchronized (this) {
+			graph = refreshed;
+			hierarchy = null;
+			// Searches already running use the old costs, so their answers
+			// must not be kept ...
+			generation++;
+			if (lowered) {
+				routes.clear();
+			} else {
+				Iterator<Map.Entry<RouteCacheKey, RouteCacheEntry>> entries = routes.entrySet().iterator();
+				while (entries.hasNext()) {
+					Map.Entry<RouteCacheKey, RouteCacheEntry> entry = entries.next();
+					if (!stillShortest(entry.getKey(), entry.getValue().path, changed))
+						entries.remove();
+				}
+			}
+		}
+	}
+
+	// stillShortest -- Return true if and only if the given answer to the
+	// query with the given key is known to be unchanged by raising the
+	// costs of the road segments with the given indices.
+	boolean stillShortest(RouteCacheKey key, SearchPath path, Set<Integer> changed) {
+		if ((path == null) || (key.algorithm == RouteAlgorithm.greedy) || !key.repeatedStateChecking
+		    || (limit != Integer.MAX_VALUE))
+			return (false);
+		for (int i = 0; i + 1 < path.size(); i++) {
+			if (changed.contains(path.road(i)))
+				return (false);
+		}
+		return (true);
+	}
+
+	// roadIndex -- Return the index, in the given graph built from the
+	// map, of the given road segment, or -1 if it cannot be found. Road
+	// segments are numbered in the order of their locations, and then in
+	// the order of each location's collection of roads.
+	int roadIndex(CompactGraph g, Road road) {
+		int from = road.fromLocation.index;
+		if ((from < 0) || (from >= g.locationCount()))
+			return (-1);
+		List<Road> roads = road.fromLocation.roads;
+		if (roads.size() != g.endRoad(from) - g.firstRoad(from))
+			return (-1);
+		for (int i = 0; i < roads.size(); i++) {
+			if (roads.get(i) == road)
+				return (g.firstRoad(from) + i);
+		}
+		return (-1);
+	}
+
+}
+
+
+class RouteCacheKey {
+    String initialLoc;
+    String destinationLoc;
+    RouteAlgorithm algorithm;
+    boolean repeatedStateChecking;
+
+	// Constructor with all fields specified ...
+	RouteCacheKey(String initialLoc, String destinationLoc, RouteAlgorithm algorithm,
+		      boolean repeatedStateChecking) {
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.algorithm = algorithm;
+		this.repeatedStateChecking = repeatedStateChecking;
+	}
+
+	// equals -- Return true if and only if the given object is a key for
+	// the same query.
+	public boolean equals(Object other) {
+		if (!(other instanceof RouteCacheKey))
+			return (false);
+		RouteCacheKey key = (RouteCacheKey) other;
+		return (initialLoc.equals(key.initialLoc) && destinationLoc.equals(key.destinationLoc)
+			&& (algorithm == key.algorithm) && (repeatedStateChecking == key.repeatedStateChecking));
+	}
+
+	// hashCode -- Return a hash code consistent with "equals".
+	public int hashCode() {
+		int h = initialLoc.hashCode();
+		h = 31 * h + destinationLoc.hashCode();
+		h = 31 * h + algorithm.ordinal();
+		return (2 * h + (repeatedStateChecking ? 1 : 0));
+	}
+
+}
+
+
+class RouteCacheEntry {
+    SearchPath path;        // Path found, or null if there is none ...
+
+	// Constructor with path specified ...
+	RouteCacheEntry(SearchPath path) {
+		this.path = path;
+	}
+
+}
+
+
+class RouteCacheWorker {
+    int generation;
+    boolean substituted;    // Last query was answered by another algorithm ...
+    CompactGraph graph;
+    ContractionHierarchy hierarchy;
+    int limit;
+    CompactSearch uniformCost;
+    CompactSearch greedy;
+    CompactSearch aStar;
+    BidirectionalSearch bidirectionalUniformCost;
+    BidirectionalSearch bidirectionalAStar;
+    ContractionSearch contraction;
+
+	// Constructor with cache specified. The caller must hold the cache's
+	// lock ...
+	RouteCacheWorker(RouteCache cache) {
+		generation = cache.generation;
+		graph = cache.graph;
+		hierarchy = cache.hierarchy;
+		limit = cache.limit;
+		graph.prepareReverseRoads();
+		uniformCost = new CompactSearch(graph, SortBy.g, new Heuristic());
+		greedy = new CompactSearch(graph, SortBy.h, cache.heuristic);
+		aStar = new CompactSearch(graph, SortBy.f, cache.heuristic);
+		bidirectionalUniformCost = new BidirectionalSearch(graph, null, null, limit);
+		bidirectionalAStar = new BidirectionalSearch(graph, null, null, limit, cache.heuristic);
+		if (hierarchy != null)
+			contraction = new ContractionSearch(hierarchy, null, null, limit);
+	}
+
+	// search -- Answer the query with the given key.
+	SearchPath search(RouteCacheKey key) {
+		substituted = false;
+		switch (key.algorithm) {
+		case ucs:
+			return (uniformCost.searchPath(key.initialLoc, key.destinationLoc, limit,
+						       key.repeatedStateChecking));
+		case greedy:
+			return (greedy.searchPath(key.initialLoc, key.destinationLoc, limit,
+						  key.repeatedStateChecking));
+		case astar:
+			return (aStar.searchPath(key.initialLoc, key.destinationLoc, limit,
+						 key.repeatedStateChecking));
+		case biucs:
+			bidirectionalUniformCost.setLocations(key.initialLoc, key.destinationLoc);
+			return (bidirectionalUniformCost.searchPath());
+		case biastar:
+			bidirectionalAStar.setLocations(key.initialLoc, key.destinationLoc);
+			return (bidirectionalAStar.searchPath());
+		case ch:
+			if (contraction == null) {
+				// No hierarchy, so find a path of the same cost without one ...
+				substituted = true;
+				bidirectionalUniformCost.setLocations(key.initialLoc, key.destinationLoc);
+				return (bidirectionalUniformCost.searchPath());
+			}
+			contraction.setLocations(key.initialLoc, key.destinationLoc);
+			return (contraction.searchPath());
+		}
+		return (null);
+	}
+
+}
@@ -0,0 +1,22 @@
+//
+// RouteQuery
+//
+// This class describes one shortest-path query to be answered by a
+// RouteQueryService: the names of the initial and destination locations,
+// and the search algorithm to use.
+//
+
+
+public class RouteQuery {
+    public String initialLoc;
+    public String destinationLoc;
+    public RouteAlgorithm algorithm;
+
+	// Constructor with locations and algorithm specified ...
+	public RouteQuery(String initialLoc, String destinationLoc, RouteAlgorithm algorithm) {
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.algorithm = algorithm;
+	}
+
+}
@@ -0,0 +1,327 @@
+//
+// RouteQueryService
+//
+// This class answers large batches of shortest-path queries in parallel.
+// Each query names an initial location, a destination location, and the
+// search algorithm to use, and each result reports whether a path was
+// found, its cost, the number of node expansions performed, and the time
+// taken to answer the query. All queries are answered over a single
+// CompactGraph, which is never modified once built, so any number of
+// threads can search it at once without locking. (The reverse adjacency of
+// the graph, needed by bidirectional search, is built up front.)
+//
+// Queries are run on a fixed pool of worker threads. Each thread keeps its
+// own set of search objects, one per algorithm, and reuses them for every
+// query that it answers, so the per-location arrays of a search are only
+// allocated once per thread rather than once per query. Searches run over
+// location indices and report only the cost of the path found, so no Node
+// objects are built for the solutions. Results are returned in the same
+// order as the queries.
+//
+// Contraction hierarchy queries use the hierarchy supplied with
+// "setHierarchy"; until one is supplied, they are answered by
+// bidirectional uniform-cost search instead, which finds a path of the
+// same cost. The heuristic used by greedy search, A* search, and
+// bidirectional A* search is GoodHeuristic unless another is supplied with
+// "setHeuristic"; it must not keep any per-query state, since it is shared
+// by all of the threads. The hierarchy, heuristic, and expansion limit may
+// be changed at any time: each thread rebuilds its search objects before
+// its next query. A query naming a location that is not on the map is
+// answered with an error, rather than reported as having no path.
+//
+// The "main" method provides a simple batch driver. It reads a map and a
+// query file, in which each non-blank line holds an initial location name,
+// a destination location name, and, optionally, an algorithm name (one of
+// "ucs", "greedy", "astar", "biucs", "biastar", or "ch"; "astar" if
+// omitted), answers all of the queries, and reports the results.
+//
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class RouteQueryService {
+    CompactGraph graph;
+    ContractionHierarchy hierarchy = null;
+    Heuristic heuristic = new GoodHeuristic();
+    int limit = Integer.MAX_VALUE;
+    volatile int generation = 0;   // Changes whenever searches must be rebuilt ...
+    ExecutorService pool;
+    ThreadLocal<RouteWorker> workers;
+
+	// Constructor with graph and number of threads specified ...
+	public RouteQueryService(CompactGraph graph, int threadCount) {
+		this.graph = graph;
+		graph.prepareReverseRoads();
+		this.pool = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread worker = new Thread(task, "route-query");
+					worker.setDaemon(true);
+					return (worker);
+				}
+			});
+		this.workers = new ThreadLocal<RouteWorker>() {
+				protected RouteWorker initialValue() {
+					return (new RouteWorker(RouteQueryService.this));
+				}
+			};
+	}
+
+	// Constructor with street map and number of threads specified ...
+	public RouteQueryService(StreetMap map, int threadCount) {
+		this(new CompactGraph(map), threadCount);
+	}
+
+	// setHierarchy -- Set the contraction hierarchy used by "ch" queries.
+	// It must have been built for the graph of this service. Queries that
+	// are already running finish with the previous hierarchy.
+	public synchronized void setHierarchy(ContractionHierarchy hierarchy) {
+		this.hierarchy = hierarchy;
+		generation++;
+	}
+
+	// setHeuristic -- Set the heuristic used by the informed searches.
+	// Queries that are already running finish with the previous heuristic.
+	public synchronized void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+		generation++;
+	}
+
+	// setLimit -- Set the maximum number of node expansions per query.
+	// Queries that are already running finish with the previous limit.
+	public synchronized void setLimit(int limit) {
+		this.limit = limit;
+		generation++;
+	}
+
+	// query -- Answer a single query on the calling thread, first
+	// rebuilding the thread's searches if the settings have changed since
+	// they were built.
+	public RouteResult query(RouteQuery query) {
+		RouteWorker worker = workers.get();
+		if (worker.generation != generation) {
+			worker = new RouteWorker(this);
+			workers.set(worker);
+		}
+		return (worker.answer(query));
+	}
+
+	// run -- Answer all of the given queries on the worker threads, and
+	// return the results in the same order as the queries.
+	public List<RouteResult> run(Iterable<RouteQuery> queries) {
+		List<Future<RouteResult>> pending = new ArrayList<Future<RouteResult>>();
+		for (final RouteQuery query : queries) {
+			pending.add(pool.submit(new Callable<RouteResult>() {
+					public RouteResult call() {
+						return (query(query));
+					}
+				}));
+		}
+		List<RouteResult> results = new ArrayList<RouteResult>(pending.size());
+		for (Future<RouteResult> result : pending) {
+			try {
+				results.add(result.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				results.add(null);
+			} catch (ExecutionException e) {
+				// Something went wrong ...
+				results.add(null);
+			}
+		}
+		return (results);
+	}
+
+	// shutdown -- Stop the worker threads once any queries that have
+	// already been submitted are answered.
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// readQueries -- Read a list of queries from the file with the given
+	// pathname. Return null on error.
+	public static List<RouteQuery> readQueries(String filename) {
+		List<RouteQuery> queries = new ArrayList<RouteQuery>();
+		MapFileReader in;
+		try {
+			in = new MapFileReader(filename);
+		} catch (IOException e) {
+			System.err.printf("Unable to open query file %s: %s\n", filename, e.getMessage());
+			return (null);
+		}
+		try {
+			while (in.nextLine()) {
+				String initialLoc = in.nextToken();
+				String destinationLoc = in.nextToken();
+				if (destinationLoc == null) {
+					in.error("Expected two location names and an optional algorithm.");
+					System.err.println(in.getError());
+					return (null);
+				}
+				RouteAlgorithm algorithm = RouteAlgorithm.astar;
+				if (in.hasToken()) {
+					String name = in.nextToken();
+					try {
+						algorithm = RouteAlgorithm.valueOf(name);
+					} catch (IllegalArgumentException e) {
+						in.error("Unknown algorithm \"" + name + "\".");
+						System.err.println(in.getError());
+						return (null);
+					}
+				}
+				queries.add(new RouteQuery(initialLoc, destinationLoc, algorithm));
+			}
+			return (queries);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to read query file %s: %s\n", filename, e.getMessage());
+			return (null);
+		} finally {
+			in.close();
+		}
+	}
+
+	// main -- Read a map and a query file, named on the command line along
+	// with an optional number of threads, answer every query, and report
+	// the results followed by a summary.
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: java RouteQueryService <locations> <roads> <queries> [threads]");
+			return;
+		}
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		if (args.length > 3)
+			threadCount = Integer.parseInt(args[3]);
+		CompactGraph graph = CompactGraph.read(args[0], args[1]);
+		if (graph == null) {
+			System.err.println("Error:  Unable to read map.");
+			return;
+		}
+		List<RouteQuery> queries = readQueries(args[2]);
+		if (queries == null)
+			return;
+		RouteQueryService service = new RouteQueryService(graph, threadCount);
+		for (RouteQuery query : queries) {
+			if (query.algorithm == RouteAlgorithm.ch) {
+				service.setHierarchy(ContractionHierarchy.build(graph));
+				break;
+			}
+		}
+		long start = System.nanoTime();
+		List<RouteResult> results = service.run(queries);
+		long elapsed = System.nanoTime() - start;
+		service.shutdown();
+		for (RouteResult result : results)
+			System.out.println(result);
+		System.out.printf("Answered %d queries on %d threads in %.3f ms (%.1f queries per second).\n",
+				  results.size(), threadCount, elapsed / 1.0e6,
+				  results.size() / (elapsed / 1.0e9));
+	}
+
+}
+
+
+class RouteWorker {
+    RouteQueryService service;
+    int generation;
+    int limit;
+    CompactSearch uniformCost;
+    CompactSearch greedy;
+    CompactSearch aStar;
+    BidirectionalSearch bidirectionalUniformCost;
+    BidirectionalSearch bidirectionalAStar;
+    ContractionSearch contraction;
+
+	// Constructor with service specified, using its current settings ...
+	RouteWorker(RouteQueryService service) {
+		this.service = service;
+		CompactGraph graph = service.graph;
+		Heuristic heuristic;
+		ContractionHierarchy hierarchy;
+		synchronized (service) {
+			generation = service.generation;
+			heuristic = service.heuristic;
+			hierarchy = service.hierarchy;
+			limit = service.limit;
+		}
+		uniformCost = new CompactSearch(graph, SortBy.g, new Heuristic());
+		greedy = new CompactSearch(graph, SortBy.h, heuristic);
+		aStar = new CompactSearch(graph, SortBy.f, heuristic);
+		bidirectionalUniformCost = new BidirectionalSearch(graph, null, null, limit);
+		bidirectionalAStar = new BidirectionalSearch(graph, null, null, limit, heuristic);
+		if (hierarchy != null)
+			contraction = new ContractionSearch(hierarchy, null, null, limit);
+	}
+
+	// answer -- Answer the given query, timing it.
+	RouteResult answer(RouteQuery query) {
+		RouteResult result = new RouteResult(query);
+		long start = System.nanoTime();
+		CompactGraph graph = service.graph;
+		int source = graph.findLocation(query.initialLoc);
+		int destination = graph.findLocation(query.destinationLoc);
+		if (source < 0) {
+			result.error = "No location named \"" + query.initialLoc + "\".";
+		} else if (destination < 0) {
+			result.error = "No location named \"" + query.destinationLoc + "\".";
+		} else {
+			switch (query.algorithm) {
+			case ucs:
+				runCompact(uniformCost, source, destination, result);
+				break;
+			case greedy:
+				runCompact(greedy, source, destination, result);
+				break;
+			case astar:
+				runCompact(aStar, source, destination, result);
+				break;
+			case biucs:
+				runBidirectional(bidirectionalUniformCost, source, destination, result);
+				break;
+			case biastar:
+				runBidirectional(bidirectionalAStar, source, destination, result);
+				break;
+			case ch:
+				if (contraction == null) {
+					// No hierarchy, so find a path of the same cost without one ...
+					runBidirectional(bidirectionalUniformCost, source, destination, result);
+					break;
+				}
+				int meeting = contraction.search(source, destination);
+				result.nodeExpansionCount = contraction.nodeExpansionCount;
+				if (meeting >= 0) {
+					result.found = true;
+					result.pathCost = contraction.pathCost(meeting);
+				}
+				break;
+			}
+		}
+		result.latencyNanos = System.nanoTime() - start;
+		return (result);
+	}
+
+	// runCompact -- Run the given best-first search, with repeated state
+	// checking, and record its outcome.
+	void runCompact(CompactSearch search, int source, int destination, RouteResult result) {
+		int goal = search.search(source, destination, limit, true);
+		result.nodeExpansionCount = search.nodeExpansionCount;
+		if (goal >= 0) {
+			result.found = true;
+			result.pathCost = search.pathCost(goal);
+		}
+	}
+
+	// runBidirectional -- Run the given bidirectional search and record its
+	// outcome.
+	void runBidirectional(BidirectionalSearch search, int source, int destination,
+			      RouteResult result) {
+		if (search.search(source, destination)) {
+			result.found = true;
+			result.pathCost = search.bestCost;
+		}
+		result.nodeExpansionCount = search.nodeExpansionCount;
+	}
+
+}
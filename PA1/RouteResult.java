@@ -0,0 +1,41 @@
+//
+// RouteResult
+//
+// This class reports the answer to one RouteQuery: whether a path was
+// found, its cost, the number of node expansions performed, and the time
+// taken to answer the query, in nanoseconds. A query that could not be
+// run at all, such as one naming a location that is not on the map, has
+// a description of the problem in "error", and no path.
+//
+
+
+public class RouteResult {
+    public RouteQuery query;
+    public boolean found = false;
+    public double pathCost = Double.NaN;
+    public int nodeExpansionCount = 0;
+    public long latencyNanos = 0;
+    public String error = null;
+
+	// Constructor with query specified ...
+	public RouteResult(RouteQuery query) {
+		this.query = query;
+	}
+
+	// toString -- Return a one-line description of this result.
+	public String toString() {
+		if (error != null) {
+			return (String.format("%s %s %s: error: %s",
+					      query.initialLoc, query.destinationLoc, query.algorithm, error));
+		}
+		if (!found) {
+			return (String.format("%s %s %s: none found, %d expansions, %.3f ms",
+					      query.initialLoc, query.destinationLoc, query.algorithm,
+					      nodeExpansionCount, latencyNanos / 1.0e6));
+		}
+		return (String.format("%s %s %s: cost %f, %d expansions, %.3f ms",
+				      query.initialLoc, query.destinationLoc, query.algorithm,
+				      pathCost, nodeExpansionCount, latencyNanos / 1.0e6));
+	}
+
+}
@@ -0,0 +1,315 @@
+package Assignment_1;
+
+import java.util.*;
+
+public class SMAStarSearch {
+	private StreetMap graph;
+	private String initialLoc;
+	private String destinationLoc;
+	private int limit;
+	private int maxNodes = 100000;
+	private Heuristic heuristic;
+	private SearchMetrics metrics;
+	// nodes in memory that still have children to generate, best (lowest f, deepest) first
+	private TreeSet<MemoryNode> open = new TreeSet<MemoryNode>();
+	private int nodesInMemory;
+	private int destinationIndex;
+	// lowest partial path cost with which each location has been placed in memory
+	private double[] bestCost = new double[0];
+	private long nextOrder;
+	public int nodeExpansionCount;
+	// largest number of nodes held in memory at once during the last search
+	public int maxNodesInMemory;
+
+	public SMAStarSearch(StreetMap graph, String initialLoc, String destinationLoc, int limit) {
+		this.graph = graph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+
+	// use the given heuristic (such as a LandmarkHeuristic) instead of GoodHeuristic
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	// record measurements of each search in the given metrics object, or none if it is null
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// set the largest number of search tree nodes kept in memory at once
+	public void setNodeBudget(int maxNodes) {
+		this.maxNodes = Math.max(2, maxNodes);
+	}
+
+	// A* that keeps at most maxNodes nodes; when memory is full, the shallowest leaf
+	// with the highest partial path cost + heuristic value is forgotten, and its parent
+	// remembers that value so the leaf can be generated again if it becomes the best
+	// choice; each node expansion generates one child of the best node, and generating
+	// a forgotten child again is reported to the metrics object as a re-opening
+	public Node search(boolean repeatedStateChecking) {
+		if (metrics == null) {
+			return bounded(repeatedStateChecking);
+		}
+		metrics.begin();
+		Node solution = bounded(repeatedStateChecking);
+		metrics.end();
+		return solution;
+	}
+
+	// the search itself, within the node budget
+	private Node bounded(boolean repeatedStateChecking) {
+		nodeExpansionCount = 0;
+		maxNodesInMemory = 0;
+		open.clear();
+		nodesInMemory = 0;
+
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
+		}
+		Heuristic goodHeuristic = heuristic != null ? heuristic : new GoodHeuristic();
+		goodHeuristic.setDestination(destination);
+		destinationIndex = destination.index;
+		if (bestCost.length < graph.locations.size()) {
+			bestCost = new double[graph.locations.size()];
+		}
+		Arrays.fill(bestCost, Double.POSITIVE_INFINITY);
+		bestCost[sourceLoc.index] = 0.0;
+
+		// the source node has a heuristic value of zero, as in AStarSearch
+		remember(new Node(sourceLoc), null, -1, 0.0);
+
+		while (!open.isEmpty() && nodeExpansionCount < limit) {
+			// get best node, leaving it in memory
+			MemoryNode best = open.first();
+
+			// return destination node
+			if (best.node.loc.index == destination.index) {
+				open.clear();
+				return best.node;
+			}
+
+			nodeExpansionCount++;
+			if (metrics != null) {
+				metrics.expanded(best.node.loc.index, best.f);
+				metrics.generated(1);
+			}
+
+			// generate one child, along a road never tried before, or else along the
+			// forgotten road with the lowest remembered value
+			int ungenerated = best.ungenerated;
+			int r = best.nextRoad();
+			if (metrics != null && best.ungenerated == ungenerated) {
+				metrics.reopened();
+			}
+			Road road = best.node.loc.roads.get(r);
+			Node child = best.node.child(road, goodHeuristic);
+			if (metrics != null) {
+				metrics.heuristicEvaluated();
+			}
+			double f;
+			if (repeatedStateChecking && (child.partialPathCost > bestCost[child.loc.index] || best.onPath(road.toLocation))) {
+				// a location already reached more cheaply, or already on the path to this
+				// node, can never help
+				f = Double.POSITIVE_INFINITY;
+			} else if (child.loc.index != destination.index && child.depth >= maxNodes - 1) {
+				// too deep for the path and any further child to fit in memory
+				f = Double.POSITIVE_INFINITY;
+			} else {
+				// the value never drops below the parent's, nor below a remembered one
+				f = Math.max(best.f, child.partialPathCost + child.heuristicValue);
+				if (!Double.isNaN(best.forgottenF[r])) {
+					f = Math.max(f, best.forgottenF[r]);
+				}
+			}
+
+			if (Double.isInfinite(f)) {
+				best.markDead(r);
+			} else {
+				// make room for the child by forgetting the worst leaf
+				if (nodesInMemory >= maxNodes && !forgetWorstLeaf(best)) {
+					best.markDead(r);
+				} else {
+					remember(child, best, r, f);
+					bestCost[child.loc.index] = Math.min(bestCost[child.loc.index], child.partialPathCost);
+					if (metrics != null) {
+						metrics.frontierSize(open.size());
+					}
+				}
+			}
+
+			// once every child is in memory or useless, the node leaves the open list
+			if (best.pending == 0) {
+				open.remove(best);
+			}
+			backUp(best);
+		}
+		open.clear();
+		return null;
+	}
+
+	// add a node to memory as the child of parent along its road r, placing it on the open list
+	private void remember(Node node, MemoryNode parent, int r, double f) {
+		MemoryNode m = new MemoryNode(node, parent, r, f, nextOrder++);
+		if (parent != null) {
+			parent.children[r] = m;
+			parent.childCount++;
+			parent.pending--;
+		}
+		nodesInMemory++;
+		maxNodesInMemory = Math.max(maxNodesInMemory, nodesInMemory);
+		if (m.pending > 0 || node.loc.index == destinationIndex) {
+			open.add(m);
+		} else {
+			// a dead end, with no children at all
+			m.f = Double.POSITIVE_INFINITY;
+			backUp(m);
+		}
+	}
+
+	// remove a leaf from memory, letting its parent remember its value
+	private void forget(MemoryNode m) {
+		open.remove(m);
+		nodesInMemory--;
+		MemoryNode parent = m.parent;
+		if (parent == null) {
+			return;
+		}
+		parent.children[m.parentRoad] = null;
+		parent.childCount--;
+		parent.forgottenF[m.parentRoad] = m.f;
+		if (!Double.isInfinite(m.f)) {
+			// the parent will have to generate this child again if it is needed
+			parent.pending++;
+			open.add(parent);
+		}
+	}
+
+	// forget the shallowest leaf with the highest value, other than the node being
+	// expanded; return false if there is no such leaf
+	private boolean forgetWorstLeaf(MemoryNode expanding) {
+		for (Iterator<MemoryNode> it = open.descendingIterator(); it.hasNext(); ) {
+			MemoryNode m = it.next();
+			if (m.childCount == 0 && m != expanding && m.parent != null) {
+				forget(m);
+				backUp(m.parent);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// once all children of a node have been generated, its value becomes the lowest
+	// value among them; pass changes up the tree, forgetting nodes that lead nowhere
+	private void backUp(MemoryNode m) {
+		while (m != null && m.ungenerated == 0) {
+			double f = m.lowestChildF();
+			if (f == m.f && !(Double.isInfinite(f) && m.childCount == 0)) {
+				return;
+			}
+			boolean wasOpen = open.remove(m);
+			m.f = f;
+			if (wasOpen) {
+				open.add(m);
+			}
+			MemoryNode parent = m.parent;
+			if (Double.isInfinite(f) && m.childCount == 0) {
+				forget(m);
+			}
+			m = parent;
+		}
+	}
+
+	// a search tree node held in memory, with what it knows about its children
+	private static class MemoryNode implements Comparable<MemoryNode> {
+		Node node;
+		MemoryNode parent;
+		int parentRoad;
+		double f;
+		long order;
+		// child along each road, or null if not in memory
+		MemoryNode[] children;
+		// value of each forgotten child: NaN if never generated, infinite if useless
+		double[] forgottenF;
+		int childCount;
+		// number of roads never tried, and of roads still worth trying but not in memory
+		int ungenerated;
+		int pending;
+
+		MemoryNode(Node node, MemoryNode parent, int parentRoad, double f, long order) {
+			this.node = node;
+			this.parent = parent;
+			this.parentRoad = parentRoad;
+			this.f = f;
+			this.order = order;
+			int roadCount = node.loc.roads.size();
+			children = new MemoryNode[roadCount];
+			forgottenF = new double[roadCount];
+			Arrays.fill(forgottenF, Double.NaN);
+			ungenerated = roadCount;
+			pending = roadCount;
+		}
+
+		// the road to generate next: the first one never tried, or else the forgotten
+		// one with the lowest remembered value
+		int nextRoad() {
+			int choice = -1;
+			for (int r = 0; r < children.length; r++) {
+				if (children[r] != null) {
+					continue;
+				}
+				if (Double.isNaN(forgottenF[r])) {
+					ungenerated--;
+					forgottenF[r] = 0.0;
+					return r;
+				}
+				if (!Double.isInfinite(forgottenF[r]) && (choice < 0 || forgottenF[r] < forgottenF[choice])) {
+					choice = r;
+				}
+			}
+			return choice;
+		}
+
+		// record that the child along road r is useless
+		void markDead(int r) {
+			forgottenF[r] = Double.POSITIVE_INFINITY;
+			pending--;
+		}
+
+		// true if the given location is this node's or one of its ancestors'
+		boolean onPath(Location loc) {
+			for (MemoryNode m = this; m != null; m = m.parent) {
+				if (m.node.loc.index == loc.index) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// lowest value among the children in memory and the forgotten ones
+		double lowestChildF() {
+			double lowest = Double.POSITIVE_INFINITY;
+			for (int r = 0; r < children.length; r++) {
+				double f = children[r] != null ? children[r].f : forgottenF[r];
+				lowest = Math.min(lowest, f);
+			}
+			return lowest;
+		}
+
+		// lowest value first, then deepest, then oldest
+		public int compareTo(MemoryNode other) {
+			if (f != other.f) {
+				return f < other.f ? -1 : 1;
+			}
+			if (node.depth != other.node.depth) {
+				return node.depth > other.node.depth ? -1 : 1;
+			}
+			return Long.compare(order, other.order);
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+//
+// SearchBenchmark
+//
+// This class measures the performance of the uniform-cost, greedy, and A*
+// searches (UniformCostSearch, GreedySearch, and AStarSearch), with and
+// without repeated state checking, on a synthetic map produced by
+// MapGenerator. A fixed set of queries, between locations chosen at
+// random from a seed, is answered by each combination of algorithm and
+// mode, first in a number of unmeasured "warm-up" rounds, which give the
+// virtual machine a chance to compile the search code, and then in a
+// number of measured rounds. Every query runs on a new search object,
+// just as in Pone, with the given limit on node expansions, so searches
+// without repeated state checking, which may otherwise run for a very long
+// time, end when the limit is reached.
+//
+// For each combination, the benchmark reports the number of queries
+// solved in each round, the mean number of node expansions per query, the
+// throughput in queries per second, the median, 90th percentile, 99th
+// percentile, and largest latencies of single queries, and the bytes
+// allocated per query and per second of searching (or "n/a" if the
+// virtual machine cannot count allocated bytes). Other threads should be
+// idle while the benchmark runs, and each row is only meaningful relative
+// to the others measured on the same machine.
+//
+
+
+import java.util.*;
+
+
+public class SearchBenchmark {
+    StreetMap map;
+    String[] initialLocs;
+    String[] destinationLocs;
+    int limit;
+    int warmupRounds = 3;
+    int measuredRounds = 5;
+
+	// Constructor with map, number of queries, expansion limit, and seed
+	// specified ...
+	public SearchBenchmark(StreetMap map, int queryCount, int limit, long seed) {
+		this.map = map;
+		this.limit = limit;
+		Random random = new Random(seed);
+		initialLocs = new String[queryCount];
+		destinationLocs = new String[queryCount];
+		for (int q = 0; q < queryCount; q++) {
+			initialLocs[q] = map.locations.get(random.nextInt(map.locations.size())).name;
+			destinationLocs[q] = map.locations.get(random.nextInt(map.locations.size())).name;
+		}
+	}
+
+	// setRounds -- Set the numbers of warm-up rounds and measured rounds.
+	public void setRounds(int warmupRounds, int measuredRounds) {
+		this.warmupRounds = warmupRounds;
+		this.measuredRounds = Math.max(1, measuredRounds);
+	}
+
+	// runAll -- Measure every combination of algorithm and mode, reporting
+	// one row for each on the standard output stream.
+	public void runAll() {
+		System.out.printf("%-8s %-4s %9s %10s %10s %9s %9s %9s %9s %11s %9s\n",
+				  "search", "rsc", "solved", "expanded", "queries/s", "p50 us", "p90 us",
+				  "p99 us", "max us", "bytes/q", "MB/s");
+		RouteAlgorithm[] algorithms = { RouteAlgorithm.ucs, RouteAlgorithm.greedy, RouteAlgorithm.astar };
+		for (RouteAlgorithm algorithm : algorithms) {
+			run(algorithm, true);
+			run(algorithm, false);
+		}
+	}
+
+	// run -- Measure the given algorithm, in the given mode, reporting one
+	// row on the standard output stream.
+	public void run(RouteAlgorithm algorithm, boolean repeatedStateChecking) {
+		for (int round = 0; round < warmupRounds; round++) {
+			for (int q = 0; q < initialLocs.length; q++)
+				query(algorithm, q, repeatedStateChecking);
+		}
+		int queryCount = initialLocs.length;
+		long[] latency = new long[measuredRounds * queryCount];
+		long solved = 0;
+		long expanded = 0;
+		long totalNanos = 0;
+		long startBytes = SearchMetrics.threadAllocatedBytes();
+		for (int round = 0; round < measuredRounds; round++) {
+			for (int q = 0; q < queryCount; q++) {
+				long start = System.nanoTime();
+				int expansions = query(algorithm, q, repeatedStateChecking);
+				long elapsed = System.nanoTime() - start;
+				latency[round * queryCount + q] = elapsed;
+				totalNanos += elapsed;
+				if (expansions >= 0) {
+					solved++;
+				} else {
+					expansions = -expansions - 1;
+				}
+				expanded += expansions;
+			}
+		}
+		long endBytes = SearchMetrics.threadAllocatedBytes();
+		Arrays.sort(latency);
+		long queries = latency.length;
+		String bytesPerQuery = "n/a";
+		String allocationRate = "n/a";
+		if ((startBytes >= 0) && (endBytes >= 0)) {
+			double bytes = endBytes - startBytes;
+			bytesPerQuery = String.format("%.0f", bytes / queries);
+			allocationRate = String.format("%.1f", (bytes / 1.0e6) / (totalNanos / 1.0e9));
+		}
+		System.out.printf("%-8s %-4s %9s %10.1f %10.1f %9.1f %9.1f %9.1f %9.1f %11s %9s\n",
+				  algorithm, repeatedStateChecking ? "yes" : "no",
+				  (solved / measuredRounds) + "/" + queryCount,
+				  (double) expanded / queries, queries / (totalNanos / 1.0e9),
+				  percentile(latency, 0.50) / 1.0e3, percentile(latency, 0.90) / 1.0e3,
+				  percentile(latency, 0.99) / 1.0e3, latency[latency.length - 1] / 1.0e3,
+				  bytesPerQuery, allocationRate);
+	}
+
+	// query -- Answer the query with the given number using the given
+	// algorithm and mode. Return the number of node expansions, if a
+	// solution was found, or, if not, minus one less than that number.
+	int query(RouteAlgorithm algorithm, int q, boolean repeatedStateChecking) {
+		Node solution;
+		int expansions;
+		switch (algorithm) {
+		case greedy:
+			GreedySearch greedy = new GreedySearch(map, initialLocs[q], destinationLocs[q], limit);
+			solution = greedy.search(repeatedStateChecking);
+			expansions = greedy.nodeExpansionCount;
+			break;
+		case astar:
+			AStarSearch aStar = new AStarSearch(map, initialLocs[q], destinationLocs[q], limit);
+			solution = aStar.search(repeatedStateChecking);
+			expansions = aStar.nodeExpansionCount;
+			break;
+		default:
+			UniformCostSearch uniformCost = new UniformCostSearch(map, initialLocs[q], destinationLocs[q], limit);
+			solution = uniformCost.search(repeatedStateChecking);
+			expansions = uniformCost.nodeExpansionCount;
+			break;
+		}
+		return ((solution != null) ? expansions : (-expansions - 1));
+	}
+
+	// percentile -- Return the given fraction's percentile of the given
+	// sorted array of latencies, in nanoseconds.
+	static long percentile(long[] sorted, double fraction) {
+		int i = (int) Math.ceil(fraction * sorted.length) - 1;
+		return (sorted[Math.max(0, Math.min(sorted.length - 1, i))]);
+	}
+
+	// main -- Generate a map and benchmark the searches on it. The
+	// arguments are "grid ROWS COLUMNS" or "geometric COUNT RADIUS",
+	// optionally followed by the number of queries (default 100), the
+	// expansion limit (default 10000), the numbers of warm-up and measured
+	// rounds (default 3 and 5), and a seed (default 1).
+	public static void main(String[] args) {
+		if ((args.length < 3) || (args.length > 8)) {
+			System.err.println("Usage: SearchBenchmark grid ROWS COLUMNS [QUERIES [LIMIT [WARMUP [MEASURED [SEED]]]]]");
+			System.err.println("       SearchBenchmark geometric COUNT RADIUS [QUERIES [LIMIT [WARMUP [MEASURED [SEED]]]]]");
+			System.exit(1);
+		}
+		try {
+			int queryCount = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+			int limit = (args.length > 4) ? Integer.parseInt(args[4]) : 10000;
+			int warmupRounds = (args.length > 5) ? Integer.parseInt(args[5]) : 3;
+			int measuredRounds = (args.length > 6) ? Integer.parseInt(args[6]) : 5;
+			long seed = (args.length > 7) ? Long.parseLong(args[7]) : 1;
+			StreetMap map;
+			if (args[0].equals("grid")) {
+				map = MapGenerator.grid(Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed);
+			} else if (args[0].equals("geometric")) {
+				map = MapGenerator.geometric(Integer.parseInt(args[1]), Double.parseDouble(args[2]), seed);
+			} else {
+				System.err.printf("Unknown map shape: %s\n", args[0]);
+				System.exit(1);
+				return;
+			}
+			if (map.locations.isEmpty()) {
+				System.err.println("The generated map has no locations.");
+				System.exit(1);
+			}
+			System.out.printf("%s map: %d locations; %d queries, limit %d, %d warm-up and %d measured rounds\n",
+					  args[0], map.locations.size(), queryCount, limit, warmupRounds, measuredRounds);
+			SearchBenchmark benchmark = new SearchBenchmark(map, queryCount, limit, seed);
+			benchmark.setRounds(warmupRounds, measuredRounds);
+			benchmark.runAll();
+		} catch (NumberFormatException e) {
+			System.err.printf("Bad number: %s\n", e.getMessage());
+			System.exit(1);
+		}
+	}
+
+}
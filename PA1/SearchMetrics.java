@@ -0,0 +1,222 @@
+//
+// SearchMetrics
+//
+// This class collects measurements of a single search. A search object
+// that has been given a SearchMetrics object (with "setMetrics") calls
+// "begin" when a search starts and "end" when it finishes, and, in
+// between, calls one of the other methods each time it expands a node,
+// generates children, places a location back on its frontier, evaluates
+// its heuristic function, or changes the size of its frontier. The
+// measurements recorded are:
+//
+//    expansions             nodes expanded
+//    generated              children generated (one per road segment
+//                           leading out of each expanded node)
+//    frontierPeak           largest number of entries on the frontier
+//    reopenings             times a location already reached was placed
+//                           on the frontier again, with a better key
+//    heuristicEvaluations   calls to the heuristic function
+//    wallNanos              elapsed time, in nanoseconds
+//    allocatedBytes         bytes allocated by the searching thread, or
+//                           -1 if the virtual machine cannot report it
+//
+// Searches that are given no SearchMetrics object skip all of this. The
+// methods called by searches can be overridden, so a subclass can pass
+// the measurements on elsewhere (for example, to a monitoring system)
+// instead of, or as well as, recording them here. A SearchMetrics object
+// is not safe for use by several threads at once, so each thread should
+// have its own.
+//
+// If tracing is turned on, the index of every expanded location, and the
+// key with which it left the frontier, is also recorded, in order, in
+// primitive arrays that are reused from one search to the next. The trace
+// can be written to a text file, one expansion per line, for offline
+// analysis.
+//
+
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+
+public class SearchMetrics {
+    public long expansions = 0;
+    public long generated = 0;
+    public long frontierPeak = 0;
+    public long reopenings = 0;
+    public long heuristicEvaluations = 0;
+    public long wallNanos = 0;
+    public long allocatedBytes = -1;
+
+    long startNanos;
+    long startBytes;
+
+    // Expansion trace ...
+    boolean tracing = false;
+    int[] traceLocation = new int[0];
+    double[] traceKey = new double[0];
+    int traceLength = 0;
+
+	// Default constructor ...
+	public SearchMetrics() {
+	}
+
+	// Constructor with tracing specified ...
+	public SearchMetrics(boolean tracing) {
+		this.tracing = tracing;
+	}
+
+	// setTracing -- Turn the recording of the expansion trace on or off.
+	public void setTracing(boolean tracing) {
+		this.tracing = tracing;
+	}
+
+	// begin -- Start measuring a new search, forgetting the measurements
+	// and the trace of the previous one.
+	public void begin() {
+		expansions = 0;
+		generated = 0;
+		frontierPeak = 0;
+		reopenings = 0;
+		heuristicEvaluations = 0;
+		wallNanos = 0;
+		traceLength = 0;
+		startBytes = threadAllocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	// end -- Finish measuring the current search.
+	public void end() {
+		wallNanos = System.nanoTime() - startNanos;
+		long bytes = threadAllocatedBytes();
+		allocatedBytes = ((bytes < 0) || (startBytes < 0)) ? -1 : (bytes - startBytes);
+	}
+
+	// expanded -- Record the expansion of a node for the location with the
+	// given index, which left the frontier with the given key.
+	public void expanded(int loc, double key) {
+		expansions++;
+		if (tracing) {
+			if (traceLength == traceLocation.length) {
+				int capacity = Math.max(64, 2 * traceLength);
+				traceLocation = Arrays.copyOf(traceLocation, capacity);
+				traceKey = Arrays.copyOf(traceKey, capacity);
+			}
+			traceLocation[traceLength] = loc;
+			traceKey[traceLength] = key;
+			traceLength++;
+		}
+	}
+
+	// generated -- Record the generation of the given number of children.
+	public void generated(int count) {
+		generated += count;
+	}
+
+	// reopened -- Record that a location already reached was placed on the
+	// frontier again.
+	public void reopened() {
+		reopenings++;
+	}
+
+	// heuristicEvaluated -- Record a call to the heuristic function.
+	public void heuristicEvaluated() {
+		heuristicEvaluations++;
+	}
+
+	// frontierSize -- Record the current number of entries on the
+	// frontier.
+	public void frontierSize(long size) {
+		if (size > frontierPeak)
+			frontierPeak = size;
+	}
+
+	// add -- Add the counts recorded by the given SearchMetrics object, for
+	// part of the same search run by another thread, to these. The frontier
+	// peaks are added too, giving an upper bound on the peak of the frontiers
+	// combined. The trace and the elapsed time are not changed.
+	public void add(SearchMetrics part) {
+		expansions += part.expansions;
+		generated += part.generated;
+		frontierPeak += part.frontierPeak;
+		reopenings += part.reopenings;
+		heuristicEvaluations += part.heuristicEvaluations;
+		if ((allocatedBytes < 0) || (part.allocatedBytes < 0))
+			allocatedBytes = -1;
+		else
+			allocatedBytes += part.allocatedBytes;
+	}
+
+	// traceLength -- Return the number of expansions in the trace.
+	public int traceLength() {
+		return (traceLength);
+	}
+
+	// traceLocation -- Return the index of the location expanded at the
+	// given step of the trace.
+	public int traceLocation(int step) {
+		return (traceLocation[step]);
+	}
+
+	// traceKey -- Return the key of the node expanded at the given step of
+	// the trace.
+	public double traceKey(int step) {
+		return (traceKey[step]);
+	}
+
+	// writeTrace -- Write the trace to the file with the given pathname,
+	// one expansion per line, giving the step, the location index, and the
+	// key. Return false on error.
+	public boolean writeTrace(String filename) {
+		return (writeTrace(filename, null));
+	}
+
+	// writeTrace -- Write the trace to the file with the given pathname,
+	// one expansion per line, giving the step, the location index, the
+	// location name on the given graph, and the key. Return false on
+	// error.
+	public boolean writeTrace(String filename, CompactGraph graph) {
+		try {
+			PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(filename)));
+			for (int step = 0; step < traceLength; step++) {
+				if (graph == null) {
+					out.printf("%d %d %f\n", step, traceLocation[step], traceKey[step]);
+				} else {
+					out.printf("%d %d %s %f\n", step, traceLocation[step],
+						   graph.locationName(traceLocation[step]), traceKey[step]);
+				}
+			}
+			out.close();
+			if (out.checkError()) {
+				System.err.printf("Unable to write trace file %s.\n", filename);
+				return (false);
+			}
+			return (true);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.printf("Unable to write trace file %s: %s\n", filename, e.getMessage());
+			return (false);
+		}
+	}
+
+	// toString -- Return a one-line summary of the measurements.
+	public String toString() {
+		return (String.format("%d expansions, %d generated, frontier peak %d, %d reopenings, %d heuristic evaluations, %.3f ms, %d bytes allocated",
+				      expansions, generated, frontierPeak, reopenings, heuristicEvaluations,
+				      wallNanos / 1.0e6, allocatedBytes));
+	}
+
+	// threadAllocatedBytes -- Return the number of bytes allocated so far
+	// by the calling thread, or -1 if the virtual machine cannot report it.
+	static long threadAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+			if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled())
+				return (counter.getThreadAllocatedBytes(Thread.currentThread().getId()));
+		}
+		return (-1);
+	}
+
+}
@@ -0,0 +1,101 @@
+//
+// SearchPath
+//
+// This class records a path found by a search over a CompactGraph, as two
+// primitive arrays: the indices of the locations visited along the path,
+// in order, and the indices of the road segments taken between them
+// ("road i" leads from "location i" to "location i+1"). Since the road
+// segment taken at each step is recorded, the path never has to be
+// recovered by searching a location's roads for one leading to the next
+// location, which could also pick the wrong segment when two locations are
+// joined by more than one. A path is built iteratively from the parent and
+// road arrays of a search tree, and it is reported iteratively, so very
+// long paths cannot overflow the call stack.
+//
+// A path can be reported in the same format as Node.reportSolution, or it
+// can be converted into the usual chain of Node objects with "toNode".
+//
+
+
+import java.io.*;
+
+
+public class SearchPath {
+    CompactGraph graph;
+    int[] locations;
+    int[] roads;
+    int count;           // Number of locations on the path ...
+
+	// Constructor with graph, locations, road segments, and length
+	// specified ...
+	public SearchPath(CompactGraph graph, int[] locations, int[] roads, int count) {
+		this.graph = graph;
+		this.locations = locations;
+		this.roads = roads;
+		this.count = count;
+	}
+
+	// fromParents -- Build the path that ends at the given search tree
+	// entry, given the parent entry (-1 for the root), location index, and
+	// incoming road segment index of every entry.
+	public static SearchPath fromParents(CompactGraph graph, int entry, int[] parent,
+					     int[] location, int[] road) {
+		int count = 0;
+		for (int e = entry; e >= 0; e = parent[e])
+			count++;
+		int[] locs = new int[count];
+		int[] roads = new int[Math.max(0, count - 1)];
+		int i = count - 1;
+		for (int e = entry; e >= 0; e = parent[e]) {
+			locs[i] = location[e];
+			if (i > 0)
+				roads[i - 1] = road[e];
+			i--;
+		}
+		return (new SearchPath(graph, locs, roads, count));
+	}
+
+	// size -- Return the number of locations on this path.
+	public int size() {
+		return (count);
+	}
+
+	// location -- Return the index of the location at the given position
+	// along this path.
+	public int location(int i) {
+		return (locations[i]);
+	}
+
+	// road -- Return the index of the road segment leading from the
+	// location at the given position along this path to the next one.
+	public int road(int i) {
+		return (roads[i]);
+	}
+
+	// pathCost -- Return the total cost of the road segments on this path.
+	public double pathCost() {
+		double cost = 0.0;
+		for (int i = 0; i + 1 < count; i++)
+			cost += graph.roadCost(roads[i]);
+		return (cost);
+	}
+
+	// report -- Output a textual description of this path, in the same
+	// format as Node.reportSolution, sending it to the given stream.
+	public void report(OutputStream str) {
+		PrintWriter out = new PrintWriter(str);
+		out.printf("START AT %s.\n", graph.locationName(locations[0]));
+		for (int i = 0; i + 1 < count; i++) {
+			out.printf("TAKE %s FROM %s TO %s.\n", graph.roadName(roads[i]),
+				   graph.locationName(locations[i]), graph.locationName(locations[i + 1]));
+		}
+		out.flush();
+	}
+
+	// toNode -- Build the chain of Node objects for this path, returning
+	// the final node.
+	public Node toNode() {
+		return (graph.solutionNode(locations, roads, count));
+	}
+
+}
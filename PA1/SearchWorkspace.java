@@ -0,0 +1,133 @@
+//
+// SearchWorkspace
+//
+// This class holds the per-location bookkeeping of a search, so that it
+// can be reused from one search to the next instead of being allocated
+// afresh for every query. Locations are identified by their integer
+// indices (see StreetMap and CompactGraph), and, for each location, the
+// workspace records whether it has been visited (expanded), the best
+// sorting key with which it has been placed on the frontier, and an
+// integer "entry" that a search may use to remember which of its search
+// tree nodes holds the location.
+//
+// Clearing all of this between searches would take time proportional to
+// the size of the map, so each record is instead stamped with the number
+// of the search (the "epoch") in which it was written, and a record with
+// an older stamp is treated as empty. Starting a new search just
+// increments the epoch. Only when the epoch counter wraps around, after
+// billions of searches, are the stamps actually cleared.
+//
+// The workspace also keeps one HeapFrontier for each combination of
+// sorting strategy and mode, which is cleared and handed out again at the
+// start of each search. A workspace must only be used by one search at a
+// time, so each thread should have its own; "forCurrentThread" returns a
+// workspace belonging to the calling thread.
+//
+
+
+import java.util.*;
+
+
+public class SearchWorkspace {
+    static final ThreadLocal<SearchWorkspace> threadWorkspace = new ThreadLocal<SearchWorkspace>() {
+	    protected SearchWorkspace initialValue() {
+		    return (new SearchWorkspace());
+	    }
+	};
+
+    int epoch = 0;
+    int[] visitedStamp = new int[0];   // Epoch in which each location was visited ...
+    int[] reachedStamp = new int[0];   // Epoch in which each key was recorded ...
+    double[] key = new double[0];      // Best frontier key of each location ...
+    int[] entry = new int[0];          // Search-specific entry of each location ...
+    HeapFrontier[] frontiers = new HeapFrontier[2 * SortBy.values().length];
+
+	// forCurrentThread -- Return the workspace belonging to the calling
+	// thread, creating it if necessary.
+	public static SearchWorkspace forCurrentThread() {
+		return (threadWorkspace.get());
+	}
+
+	// begin -- Start a new search over a map with the given number of
+	// locations, forgetting everything recorded by earlier searches.
+	public void begin(int locationCount) {
+		if (visitedStamp.length < locationCount) {
+			int capacity = Math.max(locationCount, 2 * visitedStamp.length);
+			visitedStamp = Arrays.copyOf(visitedStamp, capacity);
+			reachedStamp = Arrays.copyOf(reachedStamp, capacity);
+			key = Arrays.copyOf(key, capacity);
+			entry = Arrays.copyOf(entry, capacity);
+		}
+		if (epoch == Integer.MAX_VALUE) {
+			// The counter has wrapped, so the stamps must really be cleared ...
+			Arrays.fill(visitedStamp, 0);
+			Arrays.fill(reachedStamp, 0);
+			epoch = 0;
+		}
+		epoch++;
+	}
+
+	// visit -- Record that the location with the given index has been
+	// visited in the current search.
+	public void visit(int loc) {
+		visitedStamp[loc] = epoch;
+	}
+
+	// isVisited -- Return true if and only if the location with the given
+	// index has been visited in the current search.
+	public boolean isVisited(int loc) {
+		return (visitedStamp[loc] == epoch);
+	}
+
+	// isReached -- Return true if and only if a key has been recorded for
+	// the location with the given index in the current search.
+	public boolean isReached(int loc) {
+		return (reachedStamp[loc] == epoch);
+	}
+
+	// getKey -- Return the key recorded for the location with the given
+	// index, or positive infinity if none has been recorded.
+	public double getKey(int loc) {
+		if (reachedStamp[loc] != epoch)
+			return (Double.POSITIVE_INFINITY);
+		return (key[loc]);
+	}
+
+	// offer -- Consider placing a node for the location with the given
+	// index on the frontier with the given key. Return true, and record
+	// the key, if no key has been recorded for the location yet or the
+	// given key is no greater than the recorded one; otherwise, return
+	// false.
+	public boolean offer(int loc, double k) {
+		if ((reachedStamp[loc] == epoch) && (k > key[loc]))
+			return (false);
+		reachedStamp[loc] = epoch;
+		key[loc] = k;
+		return (true);
+	}
+
+	// setEntry -- Record the given entry for the location with the given
+	// index.
+	public void setEntry(int loc, int e) {
+		entry[loc] = e;
+	}
+
+	// getEntry -- Return the entry recorded for the location with the
+	// given index.
+	public int getEntry(int loc) {
+		return (entry[loc]);
+	}
+
+	// frontier -- Return an empty HeapFrontier with the given sorting
+	// strategy and mode, reusing the one handed out by an earlier search.
+	public HeapFrontier frontier(SortBy strategy, boolean keyed) {
+		int slot = 2 * strategy.ordinal() + (keyed ? 1 : 0);
+		if (frontiers[slot] == null) {
+			frontiers[slot] = new HeapFrontier(strategy, keyed);
+		} else {
+			frontiers[slot].clear();
+		}
+		return (frontiers[slot]);
+	}
+
+}
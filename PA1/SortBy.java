@@ -0,0 +1,10 @@
+//
+// SortBy
+//
+// This enumeration names the statistic by which a frontier orders its
+// search tree nodes: partial path cost ("g"), heuristic value ("h"), or
+// the sum of the two ("f").
+//
+
+
+public enum SortBy { g, h, f }
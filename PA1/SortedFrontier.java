@@ -23,9 +23,6 @@ import java.util.*;
 import java.io.*;
 
 
-enum SortBy { g, h, f }
-
-
 class NodeComparator implements Comparator<Node>, Serializable {
     static final long serialVersionUID = 1;  // Version 1
     SortBy statistic;
@@ -109,12 +106,29 @@ public class SortedFrontier {
 		this.mappedFringe = new HashMap<String, Node>();
 	}
 
+	// Constructor for subclasses that keep the nodes in storage of their
+	// own, and so override every method that uses the sorted set and the
+	// map. When "storage" is false, neither is allocated ...
+	protected SortedFrontier(SortBy strategy, boolean storage) {
+		this.sortingStrategy = strategy;
+		if (storage) {
+			Comparator<Node> sortingComparator = new NodeComparator(this.sortingStrategy);
+			this.sortedFringe = new TreeSet<Node>(sortingComparator);
+			this.mappedFringe = new HashMap<String, Node>();
+		}
+	}
+
 	// isEmpty -- Return true if and only if there are currently no nodes in
 	// the frontier.
 	public boolean isEmpty() {
 		return (sortedFringe.isEmpty());
 	}
 
+	// size -- Return the number of nodes currently in the frontier.
+	public int size() {
+		return (sortedFringe.size());
+	}
+
 	// removeTop -- Return the Node object at the top of the frontier
 	// list. Also, remove this node from the frontier. Return null if the
 	// frontier is empty.
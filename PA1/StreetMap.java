@@ -15,6 +15,26 @@
 // maintaining all of the Road objects corresponding to road segments leading
 // out of it.
 //
+// The map also keeps a version number, which changes whenever locations or
+// road segments are recorded, or when "markModified" is called after the
+// map has been changed in some other way, so that anything derived from the
+// map (such as a cache of routes) can tell when it has become out of date.
+//
+// Besides finding a location by its exact name, the map can find the
+// locations nearest to a given longitude and latitude, and the locations
+// within a given bounding box, using a LocationIndex. The index is built
+// the first time that it is needed, and locations recorded after that are
+// added to it as they are recorded.
+//
+// The cost of a road segment can be changed in place, with "setRoadCost",
+// while the map is in use (for example, as traffic conditions change).
+// Such changes are expected to be frequent, so they do not change the
+// version number; instead, every RoadCostListener registered with the map
+// is told of each one, so that incremental searches (such as
+// DStarLiteSearch) and caches (such as RouteCache) can repair what they
+// have derived from the map rather than starting over. Costs must not be
+// changed while a search of this map is running in another thread.
+//
 // David Noelle -- Sun Feb 11 18:05:18 PST 2007
 //                 Modified Sun Sep 23 18:34:05 PDT 2018
 //                   (Made minor changes.)
@@ -23,16 +43,22 @@
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 
 public class StreetMap {
     String locationFilename = "locations.dat";
     String roadFilename = "roads.dat";
     List<Location> locations;
+    HashMap<String, Location> locationIndex;
+    volatile int version = 0;
+    LocationIndex spatialIndex = null;
+    List<RoadCostListener> costListeners = new CopyOnWriteArrayList<RoadCostListener>();
 
 	// Default constructor ...
 	public StreetMap() {
 		this.locations = new ArrayList<Location>();
+		this.locationIndex = new HashMap<String, Location>();
 	}
 
 	// Constructor with filenames specified ...
@@ -78,44 +104,148 @@ public class StreetMap {
 		return (true);
 	}
 
-	// findLocation -- Search through the collection of locations on this map
-	// for one with the given textual name. Return a reference to the
+	// findLocation -- Look up the location with the given textual name in
+	// the index of locations on this map. Return a reference to the
 	// corresponding Location object, or null if no such location is found.
+	// If several locations share the name, the first one recorded is found.
 	public Location findLocation(String name) {
-		for (Location loc : locations) {
-			if (loc.name.equals(name))
-				return (loc);
+		return (locationIndex.get(name));
+	}
+
+	// findNearestLocation -- Return the location on this map nearest to
+	// the given longitude and latitude, or null if the map has no
+	// locations.
+	public Location findNearestLocation(double longitude, double latitude) {
+		return (getLocationIndex().nearest(longitude, latitude));
+	}
+
+	// findNearestLocations -- Return the "k" locations on this map nearest
+	// to the given longitude and latitude, nearest first.
+	public List<Location> findNearestLocations(double longitude, double latitude, int k) {
+		return (getLocationIndex().nearest(longitude, latitude, k));
+	}
+
+	// findLocationsWithin -- Return every location on this map within the
+	// bounding box with the given westmost and eastmost longitudes and
+	// southmost and northmost latitudes.
+	public List<Location> findLocationsWithin(double westmost, double southmost,
+						  double eastmost, double northmost) {
+		return (getLocationIndex().within(westmost, southmost, eastmost, northmost));
+	}
+
+	// getLocationIndex -- Return the spatial index of the locations on this
+	// map, building it if necessary.
+	public synchronized LocationIndex getLocationIndex() {
+		if (spatialIndex == null)
+			spatialIndex = new LocationIndex(locations);
+		return (spatialIndex);
+	}
+
+	// setRoadCost -- Change the cost of the given road segment, which must
+	// be on this map, to the given value, telling every registered
+	// RoadCostListener of the change. The cost may not be negative, but it
+	// may be positive infinity, closing the road segment. Return false,
+	// changing nothing, if the cost is not allowed.
+	public synchronized boolean setRoadCost(Road road, double cost) {
+		if (!(cost >= 0.0)) {
+			System.err.printf("Bad cost for road segment %s: %f\n", road.name, cost);
+			return (false);
 		}
-		return (null);
+		double oldCost = road.cost;
+		road.cost = cost;
+		for (RoadCostListener listener : costListeners)
+			listener.roadCostChanged(road, oldCost);
+		return (true);
+	}
+
+	// setRoadCost -- Change the cost of the road segment leading from the
+	// location with the first given name to the location with the second
+	// given name, as above. If several road segments join these locations,
+	// the first one recorded is changed. Return false if there is no such
+	// road segment, or if the cost is not allowed.
+	public boolean setRoadCost(String fromName, String toName, double cost) {
+		Location from = findLocation(fromName);
+		Location to = findLocation(toName);
+		if ((from == null) || (to == null))
+			return (false);
+		Road road = from.findRoad(to);
+		if (road == null)
+			return (false);
+		return (setRoadCost(road, cost));
+	}
+
+	// addRoadCostListener -- Tell the given listener of every later change
+	// to the cost of a road segment on this map.
+	public void addRoadCostListener(RoadCostListener listener) {
+		costListeners.add(listener);
+	}
+
+	// removeRoadCostListener -- Stop telling the given listener of changes
+	// to road segment costs.
+	public void removeRoadCostListener(RoadCostListener listener) {
+		costListeners.remove(listener);
+	}
+
+	// getVersion -- Return the version number of this map, which changes
+	// whenever the map is changed.
+	public int getVersion() {
+		return (version);
+	}
+
+	// markModified -- Record that this map has been changed, giving it a
+	// new version number.
+	public synchronized void markModified() {
+		version++;
 	}
 
 	// recordLocation -- Add the given Location object to the collection of
-	// locations for this map.
+	// locations for this map, giving it the next available index and
+	// entering it into the index of locations by name.
 	public void recordLocation(Location loc) {
+		addLocation(loc);
+		markModified();
+	}
+
+	// addLocation -- Record the given Location object as "recordLocation"
+	// does, but without changing the version number, which the caller must
+	// do once it has finished changing the map.
+	void addLocation(Location loc) {
+		loc.index = locations.size();
 		locations.add(loc);
+		if (!locationIndex.containsKey(loc.name))
+			locationIndex.put(loc.name, loc);
+		if (spatialIndex != null)
+			spatialIndex.add(loc);
 	}
 
 	// readLocations -- Attempt to open the location file specified by the
 	// appropriate pathname stored in this StreetMap object. If this file can
 	// be opened for reading, read a collection of locations from this file
-	// into the StreetMap object's collection of Location objects. Return
-	// false on error.
+	// into the StreetMap object's collection of Location objects. The file
+	// is tokenized by a MapFileReader, and a malformed line is reported,
+	// with its line number, on the standard error stream. The version
+	// number is changed once, after reading, if any location was recorded.
+	// Return false on error.
 	public boolean readLocations() {
+		int recorded = 0;
 		try {
 			File locFile = new File(locationFilename);
 			if (locFile.exists() && locFile.canRead()) {
-				FileInputStream locFileIn = new FileInputStream(locFile);
-				InputStreamReader locISReader = new InputStreamReader(locFileIn);
-				BufferedReader locBufferedReader = new BufferedReader(locISReader);
-				// Allocate storage for the first location to be read ...
-				Location loc = new Location();
-				while (loc.read(locBufferedReader)) {
-					// Record location in the map ...
-					recordLocation(loc);
-					// Allocate storage for the next location ...
-					loc = new Location();
+				MapFileReader in = new MapFileReader(locationFilename);
+				try {
+					while (in.nextLocation()) {
+						// Record location in the map ...
+						addLocation(new Location(in.locationName, in.longitude, in.latitude));
+						recorded++;
+					}
+					if (in.getError() != null) {
+						System.err.println(in.getError());
+						return (false);
+					}
+					return (true);
+				} finally {
+					in.close();
 				}
-				return (true);
 			} else {
 				// The file cannot be read ...
 				return (false);
@@ -123,6 +253,9 @@ public class StreetMap {
 		} catch (IOException e) {
 			// Something went wrong ...
 			return (false);
+		} finally {
+			if (recorded > 0)
+				markModified();
 		}
 	}
 
@@ -133,37 +266,54 @@ public class StreetMap {
 	// Location objects in this StreetMap object's collection of locations.
 	// Note that this means that the map must know about all locations on the
 	// map before a road file is read. This can be done by calling the
-	// "readLocations" method before calling this method. Return false on
-	// error.
+	// "readLocations" method before calling this method. Road objects with
+	// the same name share a single name string, and their location names are
+	// those of the corresponding Location objects. The version number is
+	// changed once, after reading, if any road was recorded. Return false
+	// on error.
 	public boolean readRoads() {
+		int recorded = 0;
 		try {
 			File roadFile = new File(roadFilename);
 			if (roadFile.exists() && roadFile.canRead()) {
-				FileInputStream roadFileIn = new FileInputStream(roadFile);
-				InputStreamReader roadISReader = new InputStreamReader(roadFileIn);
-				BufferedReader roadBufferedReader = new BufferedReader(roadISReader);
-				// Allocate storage for the first road segment ot be read ...
-				Road r = new Road();
-				while (r.read(roadBufferedReader)) {
-					// Fill in connections to location objects ...
-					r.fromLocation = findLocation(r.fromLocationName);
-					if (r.fromLocation == null) {
-						System.err.printf("The location, %s, is not known.\n", r.fromLocationName);
-						roadBufferedReader.close();
-						return (false);
+				MapFileReader in = new MapFileReader(roadFilename);
+				Map<String, String> roadNames = new HashMap<String, String>();
+				try {
+					while (in.nextRoad()) {
+						Road r = new Road();
+						// Fill in connections to location objects ...
+						r.fromLocation = findLocation(in.fromLocationName);
+						if (r.fromLocation == null) {
+							System.err.printf("%s:%d: The location, %s, is not known.\n",
+									  roadFilename, in.getLineNumber(), in.fromLocationName);
+							return (false);
+						}
+						r.toLocation = findLocation(in.toLocationName);
+						if (r.toLocation == null) {
+							System.err.printf("%s:%d: The location, %s, is not known.\n",
+									  roadFilename, in.getLineNumber(), in.toLocationName);
+							return (false);
+						}
+						r.name = roadNames.get(in.roadName);
+						if (r.name == null) {
+							r.name = in.roadName;
+							roadNames.put(r.name, r.name);
+						}
+						r.fromLocationName = r.fromLocation.name;
+						r.toLocationName = r.toLocation.name;
+						r.cost = in.cost;
+						// Record the road in the appropriate location ...
+						r.fromLocation.recordRoad(r);
+						recorded++;
 					}
-					r.toLocation = findLocation(r.toLocationName);
-					if (r.toLocation == null) {
-						System.err.printf("The location, %s, is not known.\n", r.toLocationName);
-						roadBufferedReader.close();
+					if (in.getError() != null) {
+						System.err.println(in.getError());
 						return (false);
 					}
-					// Record the road in the appropriate location ...
-					r.fromLocation.recordRoad(r);
-					// Allocate storage for the next road segment ...
-					r = new Road();
+					return (true);
+				} finally {
+					in.close();
 				}
-				return (true);
 			} else {
 				// The specified road file could not be read ...
 				return (false);
@@ -171,6 +321,9 @@ public class StreetMap {
 		} catch (IOException e) {
 			// Something went wrong ...
 			return (false);
+		} finally {
+			if (recorded > 0)
+				markModified();
 		}
 	}
 
@@ -182,4 +335,3 @@ public class StreetMap {
 	}
 
 }
-
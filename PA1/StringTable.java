@@ -0,0 +1,86 @@
+//
+// StringTable
+//
+// This class implements an immutable, indexed collection of strings that
+// is stored as two flat buffers: the UTF-8 bytes of all of the strings,
+// one after another, and the offset at which each string begins. Storing
+// names this way takes far less memory than an array of String objects,
+// and, since the buffers may be slices of a memory-mapped file, a table
+// can be used without ever decoding all of its strings. Individual strings
+// are decoded when they are requested, and a string can be compared with
+// a table entry without being decoded at all.
+//
+
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+
+public class StringTable {
+    ByteBuffer bytes;
+    IntBuffer offsets;   // One more offset than there are strings ...
+    int count;
+
+	// Constructor with buffers specified ...
+	public StringTable(ByteBuffer bytes, IntBuffer offsets) {
+		this.bytes = bytes;
+		this.offsets = offsets;
+		this.count = offsets.capacity() - 1;
+	}
+
+	// Constructor with a list of strings specified ...
+	public StringTable(List<String> strings) {
+		this.count = strings.size();
+		int[] offsetArray = new int[count + 1];
+		byte[][] encoded = new byte[count][];
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			offsetArray[i] = total;
+			total += encoded[i].length;
+		}
+		offsetArray[count] = total;
+		byte[] byteArray = new byte[total];
+		for (int i = 0; i < count; i++)
+			System.arraycopy(encoded[i], 0, byteArray, offsetArray[i], encoded[i].length);
+		this.bytes = ByteBuffer.wrap(byteArray);
+		this.offsets = IntBuffer.wrap(offsetArray);
+	}
+
+	// size -- Return the number of strings in this table.
+	public int size() {
+		return (count);
+	}
+
+	// get -- Decode and return the string with the given index.
+	public String get(int index) {
+		int start = offsets.get(index);
+		byte[] utf8 = new byte[offsets.get(index + 1) - start];
+		bytes.get(start, utf8);
+		return (new String(utf8, StandardCharsets.UTF_8));
+	}
+
+	// matches -- Return true if and only if the string with the given
+	// index has exactly the given UTF-8 encoding.
+	public boolean matches(int index, byte[] utf8) {
+		int start = offsets.get(index);
+		if (offsets.get(index + 1) - start != utf8.length)
+			return (false);
+		for (int i = 0; i < utf8.length; i++) {
+			if (bytes.get(start + i) != utf8[i])
+				return (false);
+		}
+		return (true);
+	}
+
+	// hash -- Return the hash code (32-bit FNV-1a) of the given UTF-8
+	// encoding of a string.
+	public static int hash(byte[] utf8) {
+		int h = 0x811C9DC5;
+		for (byte b : utf8)
+			h = (h ^ (b & 0xFF)) * 0x01000193;
+		return (h);
+	}
+
+}
@@ -4,9 +4,14 @@ import java.util.*;
 
 public class UniformCostSearch {
 	private StreetMap graph;
+	private CompactGraph compactGraph;
 	private String initialLoc;
 	private String destinationLoc;
 	private int limit;
+	private boolean useHeapFrontier = true;
+	private SearchWorkspace workspace;
+	private CompactSearch compactSearch;
+	private SearchMetrics metrics;
 	public int nodeExpansionCount;
 
 	public UniformCostSearch(StreetMap graph, String initialLoc, String destinationLoc, int limit) {
@@ -16,58 +21,120 @@ public class UniformCostSearch {
 		this.limit = limit;
 	}
 	
+	// search over a compact graph rather than a StreetMap
+	public UniformCostSearch(CompactGraph compactGraph, String initialLoc, String destinationLoc, int limit) {
+		this.compactGraph = compactGraph;
+		this.initialLoc = initialLoc;
+		this.destinationLoc = destinationLoc;
+		this.limit = limit;
+	}
+	
+	// choose between the binary heap frontier (default) and the TreeSet based SortedFrontier
+	public void setHeapFrontier(boolean useHeapFrontier) {
+		this.useHeapFrontier = useHeapFrontier;
+	}
+	
+	// use the given workspace instead of the one belonging to the current thread
+	public void setWorkspace(SearchWorkspace workspace) {
+		this.workspace = workspace;
+	}
+	
+	// record measurements of each search in the given metrics object, or none if it is null
+	public void setMetrics(SearchMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
 	public Node search(boolean repeatedStateChecking) {
+		if (compactGraph != null) {
+			// keep the compact search so its arrays are reused by later searches
+			if (compactSearch == null) {
+				compactSearch = new CompactSearch(compactGraph, SortBy.g, new Heuristic());
+			}
+			compactSearch.setWorkspace(workspace);
+			compactSearch.setMetrics(metrics);
+			Node solution = compactSearch.search(initialLoc, destinationLoc, limit, repeatedStateChecking);
+			nodeExpansionCount = compactSearch.nodeExpansionCount;
+			return solution;
+		}
+		
+		if (metrics == null) {
+			return searchMap(repeatedStateChecking);
+		}
+		metrics.begin();
+		Node solution = searchMap(repeatedStateChecking);
+		metrics.end();
+		return solution;
+	}
+	
+	// search the StreetMap itself, reporting to the metrics object, if any, as it goes
+	private Node searchMap(boolean repeatedStateChecking) {
 		nodeExpansionCount = 0;
-		Node source = null;
 		
-		// find source location to initialize source node
-		for (Location loc : graph.locations) {
-			if (loc.equals(graph.findLocation(initialLoc))) {
-				source = new Node(graph.findLocation(initialLoc));
-				break;
-			}
+		// look up source and destination once, through the map's location index
+		Location sourceLoc = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		if (sourceLoc == null || destination == null) {
+			return null;
 		}
+		Node source = new Node(sourceLoc);
 		
-		// initialize queue
-		SortedFrontier queue = new SortedFrontier(SortBy.g);
+		// start a new search in the workspace, which clears its visited and key records
+		SearchWorkspace ws = workspace != null ? workspace : SearchWorkspace.forCurrentThread();
+		ws.begin(graph.locations.size());
+		
+		// initialize queue, keyed by location when checking repeated states
+		SortedFrontier queue;
+		if (useHeapFrontier) {
+			queue = ws.frontier(SortBy.g, repeatedStateChecking);
+		} else {
+			queue = new SortedFrontier(SortBy.g);
+		}
 		queue.addSorted(source);
+		ws.offer(sourceLoc.index, 0.0);
 		
 		// initialize currentNode to source/initial location
 		Node currentNode = source;
 		
-		// initialize set of visited nodes
-		Set<Location> visited = new HashSet<Location>();
-		
 		// expand out node graph, searching for destination
 		while (!queue.isEmpty() && nodeExpansionCount < limit) {
 			// get and remove top node
 			currentNode = queue.removeTop();
 			
 			// mark node as visited
-			visited.add(currentNode.loc);
+			ws.visit(currentNode.loc.index);
 			
 			// return destination node
-			if (currentNode.loc.equals(graph.findLocation(destinationLoc))) {
+			if (currentNode.loc.index == destination.index) {
 				return currentNode;
 			}
 			
-			// expand node
-			currentNode.expand();
+			// expand node, one road at a time, only creating the children that are kept
 			nodeExpansionCount++;
+			if (metrics != null) {
+				metrics.expanded(currentNode.loc.index, currentNode.partialPathCost);
+				metrics.generated(currentNode.loc.roads.size());
+			}
 			
 			// add children nodes to queue
-			for (Node child : currentNode.children) {
+			for (Road road : currentNode.loc.roads) {
 				if(repeatedStateChecking) {
-					// add if location has not been visited and not in queue
-					if (!visited.contains(child.loc) && !queue.contains(child.loc)) {
-						queue.addSorted(child);
-					} 
-					// if not visited but in queue, add if partial path cost is lower or equal
-					else if (!visited.contains(child.loc) && child.partialPathCost <= queue.find(child).partialPathCost) {
-						queue.addSorted(child);
+					// add if location has not been visited, and either not in queue or
+					// its partial path cost is lower or equal to the queued one
+					Location next = road.toLocation;
+					if (!ws.isVisited(next.index)) {
+						boolean reached = metrics != null && ws.isReached(next.index);
+						if (ws.offer(next.index, currentNode.partialPathCost + road.cost)) {
+							if (reached) {
+								metrics.reopened();
+							}
+							queue.addSorted(currentNode.child(road));
+						}
 					}
 				} else { // add no matter what with no repeatedStateChecking
-					queue.addSorted(child);
+					queue.addSorted(currentNode.child(road));
+				}
+				if (metrics != null) {
+					metrics.frontierSize(queue.size());
 				}
 			}
 			